@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Provides a facade to invoke Maven without blocking the calling thread.
+ *
+ * @since 3.4.0
+ */
+public interface AsyncInvoker extends Invoker {
+
+    /**
+     * Executes Maven asynchronously using the parameters specified by the given invocation request. The command line
+     * is configured in the calling thread, the forked Maven process is then awaited by the executor of this invoker.
+     * <p>
+     * Configuration errors complete the returned future exceptionally with a {@link MavenInvocationException}.
+     * Cancelling the returned future kills the forked Maven process.
+     *
+     * @param request The invocation request to execute, must not be <code>null</code>.
+     * @return A future completed with the result of the Maven invocation, never <code>null</code>.
+     */
+    CompletableFuture<InvocationResult> executeAsync(InvocationRequest request);
+
+    /**
+     * Sets the executor used to await the forked Maven processes and to complete the futures returned by
+     * {@link #executeAsync(InvocationRequest)}.
+     *
+     * @param executor The executor to use, may be <code>null</code> to use a default executor shared by all invokers.
+     * @return This invoker instance.
+     */
+    AsyncInvoker setExecutor(Executor executor);
+}
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offers an output handler that writes to a print stream like {@link PrintStreamHandler}, but on a dedicated writer
+ * thread. The lines are enqueued into a bounded lock-free ring buffer and written in batches, so a slow console or
+ * disk does not stall the pumping thread and thereby the Maven process. The print stream is flushed whenever the
+ * writer has caught up with the queued lines, and at least once per flush interval while it lags behind.
+ * <p>
+ * Lines arriving while the buffer is full are handled according to the {@link OverflowPolicy}. The handler must be
+ * {@link #close() closed} to write the remaining lines and stop the writer thread.
+ *
+ * @since 3.4.0
+ */
+public class AsyncPrintStreamHandler implements InvocationOutputHandler, AutoCloseable {
+
+    /**
+     * Tells what to do with a line if the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the writer has made room for the line, which applies backpressure to the Maven process.
+         */
+        BLOCK,
+
+        /**
+         * Discard the oldest queued line to make room for the line.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard the line, except for every {@link #SAMPLE_RATE}th line arriving while the buffer is full,
+         * which waits for room like {@link #BLOCK}.
+         */
+        SAMPLE
+    }
+
+    /** The rate at which lines are kept by {@link OverflowPolicy#SAMPLE} while the buffer is full. */
+    public static final int SAMPLE_RATE = 16;
+
+    /** The default capacity of the buffer, in lines. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** The default flush interval, in milliseconds. */
+    public static final long DEFAULT_FLUSH_INTERVAL = 200;
+
+    /** The maximum number of lines written between two checks of the flush interval. */
+    private static final int BATCH_SIZE = 256;
+
+    /** Stands for a <code>null</code> line in the buffer, which uses <code>null</code> for empty slots. */
+    private static final String NULL_LINE = new String();
+
+    private final PrintStream out;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long flushIntervalNanos;
+
+    private final RingBuffer buffer;
+
+    private final Thread writer;
+
+    /** The number of lines accepted by {@link #consumeLine(String)}, including dropped lines. */
+    private final AtomicLong consumed = new AtomicLong();
+
+    /** The number of lines written or dropped, always at most {@link #consumed}. */
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong overflows = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /** A flag whether the writer is about to park or parked, so producers need to wake it up. */
+    private volatile boolean waiting;
+
+    /**
+     * Creates a new output handler that writes to {@link java.lang.System#out}, blocking if the buffer is full.
+     */
+    public AsyncPrintStreamHandler() {
+        this(System.out, DEFAULT_CAPACITY, OverflowPolicy.BLOCK, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Creates a new output handler and starts its writer thread.
+     *
+     * @param out The print stream to write to, must not be <code>null</code>.
+     * @param capacity The number of lines the buffer can hold, must be positive. It is rounded up to the next power of
+     *            two.
+     * @param overflowPolicy The handling of lines arriving while the buffer is full, must not be <code>null</code>.
+     * @param flushInterval The maximum time in milliseconds between two flushes of the print stream while the writer
+     *            lags behind, must not be negative.
+     */
+    public AsyncPrintStreamHandler(PrintStream out, int capacity, OverflowPolicy overflowPolicy, long flushInterval) {
+        if (out == null) {
+            throw new NullPointerException("missing output stream");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("missing overflow policy");
+        }
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("flushInterval must not be negative: " + flushInterval);
+        }
+        this.out = out;
+        this.overflowPolicy = overflowPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.buffer = new RingBuffer(capacity);
+        this.writer = InvokerThreads.newThread("maven-invoker-output-writer", this::write);
+        this.writer.start();
+    }
+
+    /** {@inheritDoc} */
+    public void consumeLine(String line) {
+        String element = line == null ? NULL_LINE : line;
+
+        if (closed && !writer.isAlive()) {
+            synchronized (out) {
+                drainRemaining();
+                println(element);
+            }
+            return;
+        }
+
+        consumed.incrementAndGet();
+
+        if (!buffer.offer(element)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    do {
+                        if (buffer.poll() != null) {
+                            dropped.incrementAndGet();
+                            processed.incrementAndGet();
+                        }
+                    } while (!buffer.offer(element));
+                    break;
+                case SAMPLE:
+                    if (overflows.incrementAndGet() % SAMPLE_RATE != 0) {
+                        dropped.incrementAndGet();
+                        processed.incrementAndGet();
+                        return;
+                    }
+                    // fall through
+                default:
+                    while (!buffer.offer(element)) {
+                        if (!writer.isAlive()) {
+                            drainRemaining();
+                        }
+                        LockSupport.unpark(writer);
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                    }
+            }
+        }
+
+        if (waiting) {
+            LockSupport.unpark(writer);
+        }
+        if (closed && !writer.isAlive()) {
+            // enqueued while closing, after the writer has finished
+            drainRemaining();
+        }
+    }
+
+    /**
+     * Waits until all lines consumed so far have been written and flushes the print stream.
+     */
+    public void flush() {
+        long target = consumed.get();
+        while (processed.get() < target) {
+            if (!writer.isAlive()) {
+                drainRemaining();
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining lines and stops the writer thread. Lines consumed afterwards are written directly. The
+     * print stream itself is flushed but not closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        drainRemaining();
+        out.flush();
+    }
+
+    /**
+     * Gets the number of lines discarded because the buffer was full.
+     *
+     * @return The number of discarded lines.
+     */
+    public long getDroppedLines() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the lines left in the buffer once the writer has finished.
+     */
+    private void drainRemaining() {
+        synchronized (out) {
+            for (String line = buffer.poll(); line != null; line = buffer.poll()) {
+                println(line);
+                processed.incrementAndGet();
+            }
+        }
+    }
+
+    private void println(String line) {
+        if (line == NULL_LINE) {
+            out.println();
+        } else {
+            out.println(line);
+        }
+    }
+
+    private void write() {
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+
+        while (true) {
+            // read the flag before draining, so no line enqueued before closing is missed
+            boolean closing = closed;
+
+            int written = 0;
+            String line;
+            while (written < BATCH_SIZE && (line = buffer.poll()) != null) {
+                println(line);
+                written++;
+            }
+
+            if (written > 0) {
+                processed.addAndGet(written);
+                unflushed = true;
+            }
+
+            long now = System.nanoTime();
+            boolean caughtUp = written < BATCH_SIZE;
+            if (unflushed && (caughtUp || now - lastFlush >= flushIntervalNanos)) {
+                out.flush();
+                lastFlush = now;
+                unflushed = false;
+            }
+
+            if (caughtUp) {
+                if (closing) {
+                    return;
+                }
+                waiting = true;
+                if (buffer.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, flushIntervalNanos > 0 ? flushIntervalNanos : 1_000_000L);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    /**
+     * A bounded multi-producer multi-consumer queue based on an array of sequenced slots, after the algorithm of
+     * Dmitry Vyukov. Consumers are the writer thread and producers dropping the oldest line.
+     */
+    private static final class RingBuffer {
+
+        private final int mask;
+
+        private final AtomicReferenceArray<String> elements;
+
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong head = new AtomicLong();
+
+        private final AtomicLong tail = new AtomicLong();
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(capacity);
+            if (size < capacity) {
+                size <<= 1;
+            }
+            this.mask = size - 1;
+            this.elements = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(String element) {
+            while (true) {
+                long position = tail.get();
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        elements.set(index, element);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return head.get() >= tail.get();
+        }
+
+        String poll() {
+            while (true) {
+                long position = head.get();
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (head.compareAndSet(position, position + 1)) {
+                        String element = elements.get(index);
+                        elements.set(index, null);
+                        sequences.set(index, position + mask + 1);
+                        return element;
+                    }
+                } else if (difference < 0) {
+                    return null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Executes a batch of invocation requests through an {@link AsyncInvoker}, running a limited number of them in
+ * parallel. The requests are started in the iteration order of the batch; all of them share the configuration, the
+ * executor and the output handlers of the invoker.
+ *
+ * @since 3.4.0
+ */
+public class BatchInvoker {
+
+    private final AsyncInvoker invoker;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private boolean failFast;
+
+    private InvocationListener listener;
+
+    /**
+     * Creates a new batch invoker.
+     *
+     * @param invoker The invoker to execute the requests, must not be <code>null</code>.
+     */
+    public BatchInvoker(AsyncInvoker invoker) {
+        if (invoker == null) {
+            throw new NullPointerException("missing invoker");
+        }
+        this.invoker = invoker;
+    }
+
+    /**
+     * Sets the maximum number of requests running at the same time. Defaults to the number of available processors.
+     *
+     * @param parallelism The maximum number of running requests, must be positive.
+     * @return This batch invoker.
+     */
+    public BatchInvoker setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets whether the batch stops starting requests once a request did not succeed. The requests not started are
+     * reported with a {@link CancellationException}. Defaults to <code>false</code>.
+     *
+     * @param failFast <code>true</code> to stop after the first unsuccessful request.
+     * @return This batch invoker.
+     */
+    public BatchInvoker setFailFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified of the completion of each started request.
+     *
+     * @param listener The listener, may be <code>null</code>.
+     * @return This batch invoker.
+     */
+    public BatchInvoker setListener(InvocationListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Executes the given requests and waits for all of them to complete. Interrupting the calling thread cancels the
+     * batch.
+     *
+     * @param requests The requests to execute, must not be <code>null</code>.
+     * @return The aggregated outcome of the requests, never <code>null</code>.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     */
+    public BatchResult executeAll(Collection<InvocationRequest> requests) throws InterruptedException {
+        CompletableFuture<BatchResult> future = executeAllAsync(requests);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            // the batch only completes normally or by cancellation
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Executes the given requests without blocking the calling thread. Cancelling the returned future stops starting
+     * requests and cancels the running ones.
+     *
+     * @param requests The requests to execute, must not be <code>null</code>.
+     * @return A future completed with the aggregated outcome once all started requests have completed, never
+     *         <code>null</code>.
+     */
+    public CompletableFuture<BatchResult> executeAllAsync(Collection<InvocationRequest> requests) {
+        Batch batch = new Batch(new ArrayList<>(requests), parallelism, failFast, listener);
+
+        batch.future.whenComplete((result, error) -> {
+            if (batch.future.isCancelled()) {
+                batch.cancel();
+            }
+        });
+
+        batch.dispatch();
+
+        return batch.future;
+    }
+
+    /**
+     * The state of a running batch.
+     */
+    private final class Batch {
+
+        final List<InvocationRequest> requests;
+
+        final int parallelism;
+
+        final boolean failFast;
+
+        final InvocationListener listener;
+
+        final BatchResult result;
+
+        final CompletableFuture<BatchResult> future = new CompletableFuture<>();
+
+        final List<CompletableFuture<InvocationResult>> executions = new ArrayList<>();
+
+        int next;
+
+        int running;
+
+        boolean stopped;
+
+        boolean dispatching;
+
+        boolean redispatch;
+
+        Batch(List<InvocationRequest> requests, int parallelism, boolean failFast, InvocationListener listener) {
+            this.requests = requests;
+            this.parallelism = parallelism;
+            this.failFast = failFast;
+            this.listener = listener;
+            this.result = new BatchResult(requests);
+        }
+
+        /**
+         * Starts requests until the parallelism is reached. Executions completing synchronously re-enter this method,
+         * which then only flags the active dispatch to continue, so long batches do not grow the stack.
+         */
+        void dispatch() {
+            synchronized (this) {
+                if (dispatching) {
+                    redispatch = true;
+                    return;
+                }
+                dispatching = true;
+            }
+
+            while (true) {
+                int index;
+                synchronized (this) {
+                    if (stopped || next >= requests.size() || running >= parallelism) {
+                        if (redispatch) {
+                            redispatch = false;
+                            continue;
+                        }
+                        dispatching = false;
+                        break;
+                    }
+                    index = next++;
+                    running++;
+                }
+
+                start(index);
+            }
+
+            completeIfDone();
+        }
+
+        private void start(int index) {
+            InvocationRequest request = requests.get(index);
+
+            CompletableFuture<InvocationResult> execution;
+            try {
+                execution = invoker.executeAsync(request);
+            } catch (RuntimeException e) {
+                execution = new CompletableFuture<>();
+                execution.completeExceptionally(e);
+            }
+
+            synchronized (this) {
+                executions.add(execution);
+                if (stopped) {
+                    execution.cancel(true);
+                }
+            }
+
+            execution.whenComplete((invocationResult, error) -> completed(index, invocationResult, unwrap(error)));
+        }
+
+        private void completed(int index, InvocationResult invocationResult, Throwable failure) {
+            result.set(index, invocationResult, failure);
+
+            try {
+                if (listener != null) {
+                    listener.invocationCompleted(requests.get(index), invocationResult, failure);
+                }
+            } finally {
+                synchronized (this) {
+                    running--;
+                    if (failFast && !result.isSuccessful(index)) {
+                        stopped = true;
+                    }
+                }
+
+                dispatch();
+            }
+        }
+
+        private void completeIfDone() {
+            synchronized (this) {
+                if (running > 0 || (!stopped && next < requests.size())) {
+                    return;
+                }
+                for (int i = next; i < requests.size(); i++) {
+                    result.set(i, null, new CancellationException("Batch stopped before starting the request"));
+                }
+                next = requests.size();
+            }
+
+            future.complete(result);
+        }
+
+        void cancel() {
+            List<CompletableFuture<InvocationResult>> running;
+            synchronized (this) {
+                stopped = true;
+                running = new ArrayList<>(executions);
+            }
+
+            for (CompletableFuture<InvocationResult> execution : running) {
+                execution.cancel(true);
+            }
+        }
+
+        private Throwable unwrap(Throwable error) {
+            if (error instanceof CompletionException && error.getCause() != null) {
+                return error.getCause();
+            }
+            return error;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregated outcome of a batch executed by {@link BatchInvoker}. The outcomes of the single requests are indexed
+ * in the iteration order of the submitted collection.
+ *
+ * @since 3.4.0
+ */
+public final class BatchResult {
+
+    private final List<InvocationRequest> requests;
+
+    private final InvocationResult[] results;
+
+    private final Throwable[] failures;
+
+    BatchResult(List<InvocationRequest> requests) {
+        this.requests = Collections.unmodifiableList(requests);
+        this.results = new InvocationResult[requests.size()];
+        this.failures = new Throwable[requests.size()];
+    }
+
+    synchronized void set(int index, InvocationResult result, Throwable failure) {
+        results[index] = result;
+        failures[index] = failure;
+    }
+
+    /**
+     * Gets the number of requests of the batch.
+     *
+     * @return The number of requests.
+     */
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * Gets the requests of the batch.
+     *
+     * @return The unmodifiable list of requests, never <code>null</code>.
+     */
+    public List<InvocationRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the result of a request.
+     *
+     * @param index The index of the request.
+     * @return The result of the request, <code>null</code> if the request failed.
+     */
+    public synchronized InvocationResult getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * Gets the reason why a request failed without result.
+     *
+     * @param index The index of the request.
+     * @return The reason why the request failed, <code>null</code> if the request has a result.
+     */
+    public synchronized Throwable getFailure(int index) {
+        return failures[index];
+    }
+
+    /**
+     * Tells whether a request succeeded, i.e. Maven was executed and exited with code <code>0</code>.
+     *
+     * @param index The index of the request.
+     * @return <code>true</code> if the request succeeded, <code>false</code> otherwise.
+     */
+    public synchronized boolean isSuccessful(int index) {
+        InvocationResult result = results[index];
+        return result != null && result.getExecutionException() == null && result.getExitCode() == 0;
+    }
+
+    /**
+     * Tells whether all requests of the batch succeeded.
+     *
+     * @return <code>true</code> if all requests succeeded, <code>false</code> otherwise.
+     */
+    public boolean isSuccessful() {
+        return getSuccessCount() == size();
+    }
+
+    /**
+     * Gets the number of requests that succeeded.
+     *
+     * @return The number of successful requests.
+     */
+    public synchronized int getSuccessCount() {
+        int count = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (isSuccessful(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the requests that did not succeed, in the order of the batch.
+     *
+     * @return The requests that did not succeed, never <code>null</code>.
+     */
+    public synchronized List<InvocationRequest> getFailedRequests() {
+        List<InvocationRequest> failed = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (!isSuccessful(i)) {
+                failed.add(requests.get(i));
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.shared.invoker.spy.BuildEvents;
+
+/**
+ * Decodes the build events recorded by {@link org.apache.maven.shared.invoker.spy.BuildEventSpy} into a
+ * {@link BuildSummary}. A truncated last record, e.g. of a killed Maven process, is ignored.
+ */
+final class BuildEventReader {
+
+    private final Map<String, Project> projects = new LinkedHashMap<>();
+
+    private BuildStatus status;
+
+    private Duration totalTime;
+
+    private BuildEventReader() {
+        // use read()
+    }
+
+    /**
+     * Reads the build events from the given stream.
+     *
+     * @param in The stream to read, must not be <code>null</code>. It is not closed.
+     * @return The build summary, never <code>null</code>.
+     * @throws IOException if the stream cannot be read or is corrupt.
+     */
+    static BuildSummary read(InputStream in) throws IOException {
+        BuildEventReader reader = new BuildEventReader();
+
+        DataInputStream events = new DataInputStream(new BufferedInputStream(in));
+        try {
+            while (true) {
+                int type = events.read();
+                if (type < 0) {
+                    break;
+                }
+                reader.readRecord(type, events);
+            }
+        } catch (EOFException e) {
+            // truncated record
+        }
+
+        return reader.toSummary();
+    }
+
+    private void readRecord(int type, DataInputStream events) throws IOException {
+        long time = events.readLong();
+
+        switch (type) {
+            case BuildEvents.SESSION_STARTED:
+                for (int count = events.readInt(); count > 0; count--) {
+                    String id = events.readUTF();
+                    projects.put(id, new Project(id, events.readUTF()));
+                }
+                break;
+            case BuildEvents.PROJECT_DEPENDENCIES:
+                readProjectDependencies(events);
+                break;
+            case BuildEvents.PROJECT_STARTED:
+                getProject(events.readUTF()).startTime = time;
+                break;
+            case BuildEvents.PROJECT_FINISHED:
+                readProjectFinished(time, events);
+                break;
+            case BuildEvents.MOJO_STARTED:
+                readMojoStarted(time, events);
+                break;
+            case BuildEvents.MOJO_FINISHED:
+                readMojoFinished(time, events);
+                break;
+            case BuildEvents.SESSION_FINISHED:
+                status = toStatus(events.readByte());
+                totalTime = Duration.ofMillis(time);
+                break;
+            default:
+                throw new IOException("Unknown build event: " + type);
+        }
+    }
+
+    private void readProjectDependencies(DataInputStream events) throws IOException {
+        for (int count = events.readInt(); count > 0; count--) {
+            Project project = getProject(events.readUTF());
+            for (int upstream = events.readInt(); upstream > 0; upstream--) {
+                project.upstreamProjects.add(events.readUTF());
+            }
+        }
+    }
+
+    private void readProjectFinished(long time, DataInputStream events) throws IOException {
+        Project project = getProject(events.readUTF());
+        project.status = toStatus(events.readByte());
+        project.failure = readOptionalString(events);
+        if (project.startTime >= 0) {
+            project.duration = Duration.ofMillis(time - project.startTime);
+        }
+    }
+
+    private void readMojoStarted(long time, DataInputStream events) throws IOException {
+        Project project = getProject(events.readUTF());
+        project.mojos.add(new Mojo(events.readUTF(), events.readUTF(), readOptionalString(events), time));
+    }
+
+    private void readMojoFinished(long time, DataInputStream events) throws IOException {
+        Project project = getProject(events.readUTF());
+        BuildStatus mojoStatus = toStatus(events.readByte());
+        String failure = readOptionalString(events);
+        Mojo mojo = project.mojos.isEmpty() ? null : project.mojos.get(project.mojos.size() - 1);
+        // a skipped mojo has not been started
+        if (mojo != null && mojo.status == null && mojoStatus != BuildStatus.SKIPPED) {
+            mojo.status = mojoStatus;
+            mojo.failure = failure;
+            mojo.duration = Duration.ofMillis(time - mojo.startTime);
+        }
+    }
+
+    private Project getProject(String id) {
+        return projects.computeIfAbsent(id, key -> new Project(key, key));
+    }
+
+    private static String readOptionalString(DataInputStream events) throws IOException {
+        String value = events.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BuildStatus toStatus(int status) throws IOException {
+        switch (status) {
+            case BuildEvents.SUCCESS:
+                return BuildStatus.SUCCESS;
+            case BuildEvents.FAILURE:
+                return BuildStatus.FAILURE;
+            case BuildEvents.SKIPPED:
+                return BuildStatus.SKIPPED;
+            default:
+                throw new IOException("Unknown build status: " + status);
+        }
+    }
+
+    private BuildSummary toSummary() {
+        List<ProjectSummary> summaries = new ArrayList<>(projects.size());
+        for (Project project : projects.values()) {
+            List<MojoSummary> mojos = new ArrayList<>(project.mojos.size());
+            for (Mojo mojo : project.mojos) {
+                mojos.add(new MojoSummary(
+                        mojo.pluginId, mojo.goal, mojo.executionId, mojo.status, mojo.duration, mojo.failure));
+            }
+            BuildStatus projectStatus = project.status;
+            if (projectStatus == null && project.startTime < 0 && status != null) {
+                // like the reactor summary, which reports the modules not built after a failure as skipped
+                projectStatus = BuildStatus.SKIPPED;
+            }
+            summaries.add(new ProjectSummary.Builder(project.id, project.name)
+                    .setStatus(projectStatus)
+                    .setDuration(project.duration)
+                    .setFailure(project.failure)
+                    .setMojos(mojos)
+                    .setUpstreamProjects(project.upstreamProjects)
+                    .build());
+        }
+        return new BuildSummary(summaries, status, totalTime);
+    }
+
+    /**
+     * The state of a module while the events are read.
+     */
+    private static final class Project {
+
+        final String id;
+
+        final String name;
+
+        final List<Mojo> mojos = new ArrayList<>();
+
+        final List<String> upstreamProjects = new ArrayList<>();
+
+        long startTime = -1;
+
+        BuildStatus status;
+
+        Duration duration;
+
+        String failure;
+
+        Project(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * The state of a mojo execution while the events are read.
+     */
+    private static final class Mojo {
+
+        final String pluginId;
+
+        final String goal;
+
+        final String executionId;
+
+        final long startTime;
+
+        BuildStatus status;
+
+        Duration duration;
+
+        String failure;
+
+        Mojo(String pluginId, String goal, String executionId, long startTime) {
+            this.pluginId = pluginId;
+            this.goal = goal;
+            this.executionId = executionId;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Provides the jar that loads {@link org.apache.maven.shared.invoker.spy.BuildEventSpy} into Maven as a core
+ * extension. The jar is written once per JVM to a temporary file and holds only the classes of the spy and a Plexus
+ * descriptor, so neither the rest of the invoker nor its Sisu index end up in the realm of Maven.
+ */
+final class BuildEventSpyJar {
+
+    private static final String SPY_PACKAGE = "org/apache/maven/shared/invoker/spy/";
+
+    private static final String[] CLASSES = {"BuildEventSpy.class", "BuildEvents.class"};
+
+    private static final String COMPONENTS = "<component-set>\n"
+            + "  <components>\n"
+            + "    <component>\n"
+            + "      <role>org.apache.maven.eventspy.EventSpy</role>\n"
+            + "      <role-hint>maven-invoker</role-hint>\n"
+            + "      <implementation>org.apache.maven.shared.invoker.spy.BuildEventSpy</implementation>\n"
+            + "    </component>\n"
+            + "  </components>\n"
+            + "</component-set>\n";
+
+    private static File jar;
+
+    private BuildEventSpyJar() {
+        // static methods only
+    }
+
+    /**
+     * Gets the jar, writing it if it does not exist (anymore).
+     *
+     * @return The jar, never <code>null</code>.
+     * @throws IOException if the jar cannot be written.
+     */
+    static synchronized File get() throws IOException {
+        if (jar == null || !jar.isFile()) {
+            File file = File.createTempFile("maven-invoker-spy", ".jar");
+            file.deleteOnExit();
+            try {
+                write(file);
+            } catch (IOException e) {
+                file.delete();
+                throw e;
+            }
+            jar = file;
+        }
+        return jar;
+    }
+
+    private static void write(File file) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (String name : CLASSES) {
+                out.putNextEntry(new ZipEntry(SPY_PACKAGE + name));
+                try (InputStream in = BuildEventSpyJar.class.getResourceAsStream("spy/" + name)) {
+                    if (in == null) {
+                        throw new IOException("Missing class of the build event spy: " + name);
+                    }
+                    copy(in, out);
+                }
+                out.closeEntry();
+            }
+
+            out.putNextEntry(new ZipEntry("META-INF/plexus/components.xml"));
+            out.write(COMPONENTS.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The summary of a build, as parsed from the output of Maven if requested by
+ * {@link InvocationRequest#setBuildSummaryParsed(boolean)} or as recorded by a build event spy if requested by
+ * {@link InvocationRequest#setBuildEventsRecorded(boolean)}.
+ *
+ * @since 3.4.0
+ */
+public final class BuildSummary {
+
+    private final List<ProjectSummary> projects;
+
+    private final BuildStatus status;
+
+    private final Duration totalTime;
+
+    BuildSummary(List<ProjectSummary> projects, BuildStatus status, Duration totalTime) {
+        this.projects = Collections.unmodifiableList(projects);
+        this.status = status;
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * Gets the modules of the build, in the order of the reactor if it is known, in the order they were started
+     * otherwise.
+     *
+     * @return The unmodifiable list of modules, never <code>null</code>.
+     */
+    public List<ProjectSummary> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Gets the module with the given identifier or name.
+     *
+     * @param idOrName The identifier in the form <code>groupId:artifactId</code> or the name of the module.
+     * @return The module or <code>null</code> if no such module was reported.
+     */
+    public ProjectSummary getProject(String idOrName) {
+        for (ProjectSummary project : projects) {
+            if (idOrName.equals(project.getId()) || idOrName.equals(project.getName())) {
+                return project;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the modules with the given outcome.
+     *
+     * @param status The outcome of the modules, may be <code>null</code> for the modules that did not finish.
+     * @return The modules with the outcome, never <code>null</code>.
+     */
+    public List<ProjectSummary> getProjects(BuildStatus status) {
+        List<ProjectSummary> result = new ArrayList<>();
+        for (ProjectSummary project : projects) {
+            if (project.getStatus() == status) {
+                result.add(project);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the outcome of the build.
+     *
+     * @return The outcome of the build or <code>null</code> if Maven did not report it.
+     */
+    public BuildStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the total time of the build as reported by Maven.
+     *
+     * @return The total time or <code>null</code> if Maven did not report it.
+     */
+    public Duration getTotalTime() {
+        return totalTime;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the output of Maven line by line into a {@link BuildSummary}. Only the state of the modules is retained, so
+ * the memory used does not depend on the length of the output.
+ */
+final class BuildSummaryParser implements InvocationOutputHandler {
+
+    private static final Pattern ANSI_ESCAPE = Pattern.compile("\u001B\\[[;\\d]*m");
+
+    private static final Pattern LEVEL = Pattern.compile("^\\[[A-Z]+\\] ?");
+
+    private static final Pattern SEPARATOR = Pattern.compile("^-{8,}$");
+
+    private static final Pattern PROJECT_HEADER = Pattern.compile("^-+< (\\S+) >-+$");
+
+    private static final Pattern PROJECT_COUNTER = Pattern.compile("\\s+\\[\\d+/\\d+\\]$");
+
+    private static final Pattern TESTS = Pattern.compile(
+            "^Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)(?:, Flakes: \\d+)?$");
+
+    private static final Pattern SUMMARY_LINE =
+            Pattern.compile("^(.+?) (?:\\.+ )?(SUCCESS|FAILURE|SKIPPED)(?: \\[\\s*([^\\]]+)\\])?$");
+
+    private static final Pattern SECONDS = Pattern.compile("^(\\d+)(?:[.,](\\d+))? ?s$");
+
+    private static final Pattern CLOCK = Pattern.compile("^(\\d+):(\\d+)(?::(\\d+))? ?(min|h)$");
+
+    private final List<Project> started = new ArrayList<>();
+
+    private List<Project> summarized;
+
+    private Project current;
+
+    /**
+     * The identifier announced by the last project header, to be assigned to the next started module.
+     */
+    private String pendingId;
+
+    /**
+     * A flag whether the last line was a separator or project header, which precede the start of a module.
+     */
+    private boolean afterSeparator;
+
+    private boolean inReactorSummary;
+
+    private BuildStatus status;
+
+    private Duration totalTime;
+
+    @Override
+    public synchronized void consumeLine(String line) {
+        String text = line;
+        if (text.indexOf('\u001B') >= 0) {
+            text = ANSI_ESCAPE.matcher(text).replaceAll("");
+        }
+        text = LEVEL.matcher(text).replaceFirst("").trim();
+
+        boolean startOfProject = afterSeparator;
+        afterSeparator = false;
+        parse(text, startOfProject);
+    }
+
+    private void parse(String text, boolean startOfProject) {
+        if (SEPARATOR.matcher(text).matches()) {
+            afterSeparator = true;
+            inReactorSummary = false;
+            return;
+        }
+
+        Matcher matcher = PROJECT_HEADER.matcher(text);
+        if (matcher.matches()) {
+            pendingId = matcher.group(1);
+            // the header replaces the separator before the start of a module since Maven 3.6
+            afterSeparator = true;
+            return;
+        }
+
+        if (startOfProject && text.startsWith("Building ")) {
+            startProject(text.substring("Building ".length()));
+            return;
+        }
+
+        if (text.startsWith("Reactor Summary")) {
+            inReactorSummary = true;
+            summarized = new ArrayList<>();
+            return;
+        }
+
+        if (inReactorSummary) {
+            matcher = SUMMARY_LINE.matcher(text);
+            if (matcher.matches()) {
+                summarizeProject(matcher.group(1), BuildStatus.valueOf(matcher.group(2)), matcher.group(3));
+            }
+            return;
+        }
+
+        if (text.startsWith("BUILD ")) {
+            String outcome = text.substring("BUILD ".length());
+            if ("SUCCESS".equals(outcome)) {
+                status = BuildStatus.SUCCESS;
+            } else if ("FAILURE".equals(outcome)) {
+                status = BuildStatus.FAILURE;
+            }
+            return;
+        }
+
+        if (text.startsWith("Total time:")) {
+            totalTime = parseDuration(text.substring("Total time:".length()).trim());
+            return;
+        }
+
+        if (current != null) {
+            matcher = TESTS.matcher(text);
+            if (matcher.matches()) {
+                current.testsRun += Integer.parseInt(matcher.group(1));
+                current.testFailures += Integer.parseInt(matcher.group(2));
+                current.testErrors += Integer.parseInt(matcher.group(3));
+                current.testsSkipped += Integer.parseInt(matcher.group(4));
+            }
+        }
+    }
+
+    private void startProject(String nameAndVersion) {
+        String name = PROJECT_COUNTER.matcher(nameAndVersion).replaceFirst("");
+        int space = name.lastIndexOf(' ');
+        if (space > 0) {
+            name = name.substring(0, space);
+        }
+
+        current = new Project(pendingId, name);
+        started.add(current);
+        pendingId = null;
+    }
+
+    /**
+     * Records a line of the reactor summary, which names the modules with their version if it differs from the
+     * version of the build.
+     */
+    private void summarizeProject(String nameAndVersion, BuildStatus projectStatus, String duration) {
+        Project project = null;
+        for (Project candidate : started) {
+            if (!candidate.summarized
+                    && (nameAndVersion.equals(candidate.name) || nameAndVersion.startsWith(candidate.name + " "))) {
+                project = candidate;
+                break;
+            }
+        }
+        if (project == null) {
+            project = new Project(null, nameAndVersion);
+        }
+
+        project.summarized = true;
+        project.status = projectStatus;
+        project.duration = duration != null ? parseDuration(duration) : null;
+        summarized.add(project);
+    }
+
+    /**
+     * Parses a duration as formatted by Maven, e.g. <code>1.234 s</code>, <code>01:02 min</code> or
+     * <code>01:02 h</code>.
+     */
+    static Duration parseDuration(String text) {
+        Matcher matcher = SECONDS.matcher(text);
+        if (matcher.matches()) {
+            String fraction = matcher.group(2) != null ? (matcher.group(2) + "00").substring(0, 3) : "0";
+            return Duration.ofSeconds(Long.parseLong(matcher.group(1))).plusMillis(Long.parseLong(fraction));
+        }
+
+        matcher = CLOCK.matcher(text);
+        if (matcher.matches()) {
+            long first = Long.parseLong(matcher.group(1));
+            long second = Long.parseLong(matcher.group(2));
+            if ("min".equals(matcher.group(4))) {
+                return Duration.ofMinutes(first).plusSeconds(second);
+            }
+            Duration duration = Duration.ofHours(first).plusMinutes(second);
+            return matcher.group(3) != null ? duration.plusSeconds(Long.parseLong(matcher.group(3))) : duration;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a snapshot of the summary parsed so far.
+     *
+     * @return The build summary, never <code>null</code>.
+     */
+    synchronized BuildSummary getSummary() {
+        List<Project> projects = summarized != null ? summarized : started;
+
+        List<ProjectSummary> summaries = new ArrayList<>(projects.size());
+        for (Project project : projects) {
+            BuildStatus projectStatus = project.status;
+            Duration duration = project.duration;
+            if (summarized == null && projects.size() == 1) {
+                // a build of a single module has no reactor summary
+                projectStatus = status;
+                duration = totalTime;
+            }
+            summaries.add(project.toSummary(projectStatus, duration));
+        }
+
+        return new BuildSummary(summaries, status, totalTime);
+    }
+
+    /**
+     * The mutable state of a module while the output is parsed.
+     */
+    private static final class Project {
+
+        final String id;
+
+        final String name;
+
+        boolean summarized;
+
+        BuildStatus status;
+
+        Duration duration;
+
+        int testsRun;
+
+        int testFailures;
+
+        int testErrors;
+
+        int testsSkipped;
+
+        Project(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        ProjectSummary toSummary(BuildStatus status, Duration duration) {
+            return new ProjectSummary.Builder(id, name)
+                    .setStatus(status)
+                    .setDuration(duration)
+                    .setTests(testsRun, testFailures, testErrors, testsSkipped)
+                    .build();
+        }
+    }
+}
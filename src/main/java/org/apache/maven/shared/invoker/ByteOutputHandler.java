@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.IOException;
+
+/**
+ * Receives the standard/error output from a Maven invocation as raw bytes, without decoding it into lines. The bytes
+ * are passed on in chunks as read from the process, a chunk may end in the middle of a line or even of a character.
+ * <p>
+ * Handlers which need lines can be adapted with {@link LineByteOutputHandler}, which is also how the line oriented
+ * {@link InvocationOutputHandler}s are served.
+ *
+ * @since 3.4.0
+ */
+@FunctionalInterface
+public interface ByteOutputHandler {
+
+    /**
+     * Consumes the next chunk of output. The buffer is reused for the following chunks, so its content must be copied
+     * if it is needed after this method returned.
+     *
+     * @param buffer The buffer holding the output, never <code>null</code>.
+     * @param offset The offset of the first byte of the chunk in the buffer.
+     * @param length The number of bytes of the chunk, always positive.
+     * @throws IOException if the output cannot be processed, which makes the invocation fail.
+     */
+    void consume(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Notifies the end of the output. The default implementation does nothing.
+     *
+     * @throws IOException if the output cannot be processed, which makes the invocation fail.
+     */
+    default void complete() throws IOException {
+        // nothing buffered
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes the bytes written to it on to a {@link ByteOutputHandler}, like the stream pumps do for the output of a
+ * forked process. Closing the stream completes the output of the handler.
+ */
+class ByteOutputHandlerStream extends OutputStream {
+
+    private final ByteOutputHandler handler;
+
+    private final byte[] single = new byte[1];
+
+    /**
+     * Creates a new stream.
+     *
+     * @param handler The handler of the output, may be <code>null</code> to discard it.
+     */
+    ByteOutputHandlerStream(ByteOutputHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (handler != null && len > 0) {
+            handler.consume(b, off, len);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (handler != null) {
+            handler.complete();
+        }
+    }
+}
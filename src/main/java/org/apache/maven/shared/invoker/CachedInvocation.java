@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+/**
+ * The output of a successful Maven invocation, as stored by an {@link InvocationResultStore} and replayed by
+ * {@link CachingInvoker} for later invocations with the same fingerprint.
+ *
+ * @since 3.4.0
+ */
+public final class CachedInvocation {
+
+    private final byte[] output;
+
+    private final byte[] error;
+
+    /**
+     * Creates a new cached invocation.
+     *
+     * @param output The standard output of the invocation, must not be <code>null</code>.
+     * @param error The error output of the invocation, must not be <code>null</code>.
+     */
+    public CachedInvocation(byte[] output, byte[] error) {
+        if (output == null || error == null) {
+            throw new NullPointerException("missing output");
+        }
+        this.output = output;
+        this.error = error;
+    }
+
+    /**
+     * Gets the standard output of the invocation, as read from the process. The returned array must not be modified.
+     *
+     * @return The standard output, never <code>null</code>.
+     */
+    public byte[] getOutput() {
+        return output;
+    }
+
+    /**
+     * Gets the error output of the invocation, as read from the process. The returned array must not be modified.
+     *
+     * @return The error output, never <code>null</code>.
+     */
+    public byte[] getError() {
+        return error;
+    }
+}
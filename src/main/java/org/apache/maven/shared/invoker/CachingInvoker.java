@@ -0,0 +1,492 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Skips Maven invocations whose inputs did not change since a successful invocation, replaying the output stored for
+ * it instead. The inputs are identified by a fingerprint of the command line rendered by the decorated invoker, the
+ * environment variables configuring Maven and Java, the Maven executable and the files of the project directory,
+ * i.e. the directory of the POM. Build output directories like <code>target</code> of the project and its modules are
+ * excluded from the fingerprint, see {@link #setExcludes(Collection)}. The files are hashed incrementally by a
+ * {@link FileTreeIndex} per project directory. They are hashed again after the invocation, which is not stored if they
+ * changed meanwhile, e.g. because the build generated files outside of the excluded directories, since its output
+ * might not match the files it would be replayed for.
+ * <p>
+ * A replayed result reports the exit code <code>0</code> and passes the stored output to the handlers of the request,
+ * including the tail and the build summary parser if requested. It has no resource usage and no summary recorded by
+ * the build event spy. Changes outside of the project directory, e.g. of snapshot dependencies in the local
+ * repository or of parent POMs in other directories, are not detected. Requests running in interactive mode or
+ * redirecting their output are always executed.
+ * <p>
+ * All other settings are taken from the decorated invoker, whose configuration methods are exposed by this invoker.
+ *
+ * @since 3.4.0
+ */
+public class CachingInvoker implements Invoker {
+
+    private static final Set<String> DEFAULT_EXCLUDES =
+            Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList("target", ".git", ".svn", ".hg")));
+
+    private final DefaultInvoker invoker;
+
+    private final InvocationResultStore store;
+
+    private Set<String> excludes = DEFAULT_EXCLUDES;
+
+    private int maxOutputSize = 16 * 1024 * 1024;
+
+    private File indexDirectory;
+
+    private boolean watching;
+
+    private final ConcurrentMap<File, FileTreeIndex> indices = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new caching invoker.
+     *
+     * @param invoker The invoker executing the invocations not cached, must not be <code>null</code>.
+     * @param store The store of the invocations, must not be <code>null</code>.
+     */
+    public CachingInvoker(DefaultInvoker invoker, InvocationResultStore store) {
+        if (invoker == null) {
+            throw new NullPointerException("missing invoker");
+        }
+        if (store == null) {
+            throw new NullPointerException("missing store");
+        }
+        this.invoker = invoker;
+        this.store = store;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InvocationResult execute(InvocationRequest request) throws MavenInvocationException {
+        Commandline cli = invoker.buildCommandLine(request);
+
+        if (!request.isBatchMode() || request.getOutputRedirect() != null || request.getErrorRedirect() != null) {
+            return invoker.executeCommandLine(cli, request);
+        }
+
+        File projectDirectory = getProjectDirectory(cli, request);
+        String treeHash;
+        String fingerprint;
+        try {
+            treeHash = getIndex(projectDirectory).getHash();
+            fingerprint = InvocationFingerprint.compute(cli, treeHash);
+        } catch (IOException e) {
+            getLogger().warn("Failed to fingerprint project directory: '" + projectDirectory + "'.", e);
+            return invoker.executeCommandLine(cli, request);
+        }
+
+        CachedInvocation cached = null;
+        try {
+            cached = store.load(fingerprint);
+        } catch (IOException e) {
+            getLogger().warn("Failed to load cached invocation: " + fingerprint, e);
+        }
+
+        if (cached != null) {
+            if (getLogger().isDebugEnabled()) {
+                getLogger().debug("Replaying cached invocation " + fingerprint + ": " + cli);
+            }
+            return replay(cached, request);
+        }
+
+        Capture output = new Capture(maxOutputSize);
+        Capture error = new Capture(maxOutputSize);
+
+        InvocationRequest execution = InvocationTemplate.snapshot(request);
+        ByteOutputHandler outputHandler = request.getByteOutputHandler();
+        if (outputHandler == null) {
+            outputHandler = DefaultInvoker.toByteOutputHandler(invoker.getOutputHandler(request));
+        }
+        execution.setByteOutputHandler(DefaultInvoker.tee(outputHandler, output));
+        ByteOutputHandler errorHandler = request.getByteErrorHandler();
+        if (errorHandler == null) {
+            errorHandler = DefaultInvoker.toByteOutputHandler(invoker.getErrorHandler(request));
+        }
+        execution.setByteErrorHandler(DefaultInvoker.tee(errorHandler, error));
+
+        InvocationResult result = invoker.executeCommandLine(cli, execution);
+
+        if (result.getExecutionException() == null
+                && result.getExitCode() == 0
+                && !output.isOverflowed()
+                && !error.isOverflowed()
+                && isUnchanged(projectDirectory, treeHash)) {
+            try {
+                store.save(fingerprint, new CachedInvocation(output.toByteArray(), error.toByteArray()));
+            } catch (IOException e) {
+                getLogger().warn("Failed to save cached invocation: " + fingerprint, e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Tells whether the files of the given project directory still have the given hash.
+     */
+    private boolean isUnchanged(File projectDirectory, String treeHash) {
+        try {
+            if (getIndex(projectDirectory).getHash().equals(treeHash)) {
+                return true;
+            }
+            getLogger()
+                    .debug("Not caching invocation, project directory changed meanwhile: '" + projectDirectory + "'.");
+        } catch (IOException e) {
+            getLogger().warn("Failed to fingerprint project directory: '" + projectDirectory + "'.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Gets the index hashing the files of the given project directory, creating it on first use.
+     */
+    private FileTreeIndex getIndex(File projectDirectory) {
+        return indices.computeIfAbsent(projectDirectory, directory -> {
+            File indexFile = indexDirectory != null
+                    ? new File(indexDirectory, InvocationFingerprint.hash(directory.getPath()) + ".index")
+                    : null;
+            FileTreeIndex index = new FileTreeIndex(directory, excludes, indexFile);
+            if (watching) {
+                try {
+                    index.watch();
+                } catch (IOException e) {
+                    getLogger().debug("Failed to watch project directory: '" + directory + "'.", e);
+                }
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Stops watching the project directories and discards the indices of their files. Later invocations create them
+     * again.
+     */
+    public void dispose() {
+        for (Iterator<FileTreeIndex> it = indices.values().iterator(); it.hasNext(); ) {
+            FileTreeIndex index = it.next();
+            it.remove();
+            try {
+                index.close();
+            } catch (IOException e) {
+                getLogger().debug("Failed to stop watching project directory: '" + index.getRoot() + "'.", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the directory of the POM of the request, whose files are part of the fingerprint.
+     */
+    private static File getProjectDirectory(Commandline cli, InvocationRequest request) {
+        File directory = cli.getWorkingDirectory();
+        if (directory == null) {
+            directory = new File(System.getProperty("user.dir"));
+        }
+
+        File pom = request.getPomFile();
+        if (pom != null) {
+            pom = pom.isAbsolute() ? pom : new File(directory, pom.getPath());
+            directory = pom.isDirectory() ? pom : pom.getParentFile();
+        }
+
+        return directory.getAbsoluteFile();
+    }
+
+    /**
+     * Passes the stored output to the handlers of the request.
+     */
+    private InvocationResult replay(CachedInvocation cached, InvocationRequest request) {
+        DefaultInvocationResult result = new DefaultInvocationResult();
+        try {
+            replay(cached.getOutput(), invoker.getByteOutputHandler(request, result));
+            replay(cached.getError(), invoker.getByteErrorHandler(request, result));
+            result.setExitCode(0);
+        } catch (IOException e) {
+            result.setExecutionException(new CommandLineException("Failure replaying cached output.", e));
+        }
+        return result;
+    }
+
+    private static void replay(byte[] bytes, ByteOutputHandler handler) throws IOException {
+        if (handler != null) {
+            if (bytes.length > 0) {
+                handler.consume(bytes, 0, bytes.length);
+            }
+            handler.complete();
+        }
+    }
+
+    /**
+     * Gets the names of the directories and files excluded from the fingerprint.
+     *
+     * @return The unmodifiable names of the excluded directories and files, never <code>null</code>.
+     */
+    public Set<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Sets the names of the directories and files excluded from the fingerprint, which should include all directories
+     * written by the build. Defaults to <code>target</code>, <code>.git</code>, <code>.svn</code> and
+     * <code>.hg</code>. They are only excluded in the project directory and in the directories of its modules, i.e.
+     * next to a <code>pom.xml</code>, see {@link FileTreeIndex}.
+     *
+     * @param excludes The names of the excluded directories and files, may be <code>null</code> to exclude nothing.
+     * @return This invoker instance.
+     */
+    public CachingInvoker setExcludes(Collection<String> excludes) {
+        this.excludes = excludes != null
+                ? Collections.unmodifiableSet(new LinkedHashSet<>(excludes))
+                : Collections.<String>emptySet();
+        dispose();
+        return this;
+    }
+
+    /**
+     * Gets the directory persisting the indices of the files of the project directories.
+     *
+     * @return The directory persisting the indices or <code>null</code> if they are kept in memory only.
+     */
+    public File getIndexDirectory() {
+        return indexDirectory;
+    }
+
+    /**
+     * Sets the directory persisting the indices of the files of the project directories, so that other invokers, e.g.
+     * of later JVMs, only hash the contents of the files changed meanwhile. Defaults to <code>null</code>.
+     *
+     * @param indexDirectory The directory persisting the indices, may be <code>null</code> to keep them in memory
+     *            only.
+     * @return This invoker instance.
+     * @see FileTreeIndex
+     */
+    public CachingInvoker setIndexDirectory(File indexDirectory) {
+        this.indexDirectory = indexDirectory;
+        dispose();
+        return this;
+    }
+
+    /**
+     * Indicates whether the project directories are watched for changes.
+     *
+     * @return <code>true</code> if the project directories are watched, <code>false</code> otherwise.
+     */
+    public boolean isWatching() {
+        return watching;
+    }
+
+    /**
+     * Sets whether the project directories are watched for changes, so that the fingerprint of an unchanged project
+     * is computed without listing its directories. A change is only noticed once reported by the file system, which
+     * some platforms delay by seconds. Call {@link #dispose()} to stop watching. Defaults to <code>false</code>.
+     *
+     * @param watching <code>true</code> to watch the project directories.
+     * @return This invoker instance.
+     * @see FileTreeIndex#watch()
+     */
+    public CachingInvoker setWatching(boolean watching) {
+        this.watching = watching;
+        dispose();
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of bytes of the standard and error output of a stored invocation.
+     *
+     * @return The maximum output size in bytes.
+     */
+    public int getMaxOutputSize() {
+        return maxOutputSize;
+    }
+
+    /**
+     * Sets the maximum number of bytes of each of the standard and error output of a stored invocation. Invocations
+     * producing more output are not stored. Defaults to 16 MiB.
+     *
+     * @param maxOutputSize The maximum output size in bytes, must not be negative.
+     * @return This invoker instance.
+     */
+    public CachingInvoker setMaxOutputSize(int maxOutputSize) {
+        if (maxOutputSize < 0) {
+            throw new IllegalArgumentException("Maximum output size must not be negative: " + maxOutputSize);
+        }
+        this.maxOutputSize = maxOutputSize;
+        return this;
+    }
+
+    /**
+     * Gets the invoker executing the invocations not cached.
+     *
+     * @return The decorated invoker, never <code>null</code>.
+     */
+    public DefaultInvoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Gets the store of the invocations.
+     *
+     * @return The store, never <code>null</code>.
+     */
+    public InvocationResultStore getStore() {
+        return store;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getLocalRepositoryDirectory() {
+        return invoker.getLocalRepositoryDirectory();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getWorkingDirectory() {
+        return invoker.getWorkingDirectory();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InvokerLogger getLogger() {
+        return invoker.getLogger();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getMavenHome() {
+        return invoker.getMavenHome();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Invoker setMavenHome(File mavenHome) {
+        invoker.setMavenHome(mavenHome);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getMavenExecutable() {
+        return invoker.getMavenExecutable();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Invoker setMavenExecutable(File mavenExecutable) {
+        invoker.setMavenExecutable(mavenExecutable);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Invoker setLocalRepositoryDirectory(File localRepositoryDirectory) {
+        invoker.setLocalRepositoryDirectory(localRepositoryDirectory);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Invoker setLogger(InvokerLogger logger) {
+        invoker.setLogger(logger);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Invoker setWorkingDirectory(File workingDirectory) {
+        invoker.setWorkingDirectory(workingDirectory);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Invoker setInputStream(InputStream inputStream) {
+        invoker.setInputStream(inputStream);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Invoker setOutputHandler(InvocationOutputHandler outputHandler) {
+        invoker.setOutputHandler(outputHandler);
+        return this;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Invoker setErrorHandler(InvocationOutputHandler errorHandler) {
+        invoker.setErrorHandler(errorHandler);
+        return this;
+    }
+
+    /**
+     * Collects the output of an invocation up to a maximum size.
+     */
+    private static final class Capture implements ByteOutputHandler {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final int maxSize;
+
+        private boolean overflowed;
+
+        Capture(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void consume(byte[] buffer, int offset, int length) {
+            if (overflowed || bytes.size() + length > maxSize) {
+                overflowed = true;
+                bytes.reset();
+            } else {
+                bytes.write(buffer, offset, length);
+            }
+        }
+
+        synchronized boolean isOverflowed() {
+            return overflowed;
+        }
+
+        synchronized byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
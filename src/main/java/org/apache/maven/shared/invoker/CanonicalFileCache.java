@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the canonical forms of the files passed to the command line by {@link MavenCommandLineBuilder}, e.g. the
+ * settings, the POM and the local repository, which are typically the same for many builds. Canonicalizing resolves
+ * every path component with a system call, a cache hit does not touch the file system.
+ * <p>
+ * The cache holds a bounded number of files, evicting the least recently used one, and each entry expires after a
+ * time to live so that changed symbolic links are eventually noticed. Instances are thread-safe.
+ */
+class CanonicalFileCache {
+
+    /** The default maximum number of cached files. */
+    static final int DEFAULT_MAX_ENTRIES = 256;
+
+    /** The default time to live of an entry, in milliseconds. */
+    static final long DEFAULT_TIME_TO_LIVE = TimeUnit.SECONDS.toMillis(30);
+
+    private final long timeToLiveNanos;
+
+    private final Map<File, CachedFile> entries;
+
+    /**
+     * Creates a new cache with the default bounds.
+     */
+    CanonicalFileCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries The maximum number of cached files, must be positive.
+     * @param timeToLive The time in milliseconds after which an entry expires, must not be negative.
+     */
+    CanonicalFileCache(final int maxEntries, long timeToLive) {
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.entries = new LinkedHashMap<File, CachedFile>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, CachedFile> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the canonical form of the given file.
+     *
+     * @param file The file to canonicalize, must not be <code>null</code>.
+     * @return The canonical file, never <code>null</code>.
+     * @throws IOException if the file cannot be canonicalized, such failures are not cached.
+     */
+    File getCanonicalFile(File file) throws IOException {
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            CachedFile entry = entries.get(file);
+            if (entry != null && now - entry.created < timeToLiveNanos) {
+                return entry.canonicalFile;
+            }
+        }
+
+        File canonicalFile = file.getCanonicalFile();
+
+        synchronized (entries) {
+            entries.put(file, new CachedFile(canonicalFile, now));
+        }
+
+        return canonicalFile;
+    }
+
+    private static final class CachedFile {
+
+        private final File canonicalFile;
+
+        private final long created;
+
+        CachedFile(File canonicalFile, long created) {
+            this.canonicalFile = canonicalFile;
+            this.created = created;
+        }
+    }
+}
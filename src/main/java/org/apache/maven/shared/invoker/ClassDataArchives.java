@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the dynamic class data sharing (AppCDS) archives of the forked Maven JVMs, which let Java map the classes
+ * loaded by Maven at startup from an archive instead of loading and verifying them again for every invocation.
+ * <p>
+ * On first use of a Maven home with a Java installation, a training build of an empty project is run with
+ * <code>-XX:ArchiveClassesAtExit</code> to dump the archive, which later invocations pass to Java with
+ * <code>-XX:SharedArchiveFile</code>. The name of an archive is derived from the paths of the Maven home and the Java
+ * executable and from the modification times of their files, so a changed installation gets a new archive and the
+ * outdated archive is deleted. Dynamic archives require Java 13+, older Java installations are not trained. A failed
+ * training is not repeated by the same instance.
+ * <p>
+ * Instances are thread-safe and shared by all builds of an invoker. The training runs in the background, invocations
+ * run without an archive until it exists.
+ */
+class ClassDataArchives {
+
+    static final int DYNAMIC_ARCHIVE_JAVA_VERSION = 13;
+
+    private static final int TRAINING_TIMEOUT = 300;
+
+    private static final String EXTENSION = ".jsa";
+
+    private final File directory;
+
+    private final ConcurrentMap<String, CompletableFuture<Void>> trainings = new ConcurrentHashMap<>();
+
+    private final Set<String> failures = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates the archives stored in the given directory.
+     *
+     * @param directory The directory storing the archives, must not be <code>null</code>.
+     */
+    ClassDataArchives(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory storing the archives.
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the archive of the given Maven home and Java executable, starting to train it in the background on first
+     * use.
+     *
+     * @param mavenHome The Maven home, must not be <code>null</code>.
+     * @param javaExecutable The Java executable, must not be <code>null</code>.
+     * @param logger The logger reporting failed trainings, must not be <code>null</code>.
+     * @return The archive or <code>null</code> if none is available yet.
+     */
+    File getArchive(File mavenHome, File javaExecutable, InvokerLogger logger) {
+        File javaHome = javaExecutable.getParentFile() != null
+                ? javaExecutable.getParentFile().getParentFile()
+                : null;
+        if (javaHome == null || DirectLaunchCache.getJavaVersion(javaHome) < DYNAMIC_ARCHIVE_JAVA_VERSION) {
+            return null;
+        }
+
+        File canonicalMavenHome;
+        File canonicalJavaExecutable;
+        try {
+            canonicalMavenHome = mavenHome.getCanonicalFile();
+            canonicalJavaExecutable = javaExecutable.getCanonicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+
+        String prefix = hash(canonicalMavenHome.getPath(), canonicalJavaExecutable.getPath()) + '-';
+        String name = prefix + hash(stamps(canonicalMavenHome, javaHome)) + EXTENSION;
+        File archive = new File(directory, name);
+
+        if (archive.isFile()) {
+            return archive;
+        }
+        if (failures.contains(name)) {
+            return null;
+        }
+
+        CompletableFuture<Void> training = new CompletableFuture<>();
+        if (trainings.putIfAbsent(name, training) != null) {
+            return null;
+        }
+        if (archive.isFile()) {
+            // trained by another thread meanwhile
+            trainings.remove(name);
+            training.complete(null);
+            return archive;
+        }
+
+        InvokerThreads.newThread("maven-invoker-class-data-training", () -> {
+                    try {
+                        if (train(canonicalMavenHome, canonicalJavaExecutable, archive, logger)) {
+                            deleteOutdatedArchives(prefix, name);
+                        } else {
+                            failures.add(name);
+                        }
+                    } finally {
+                        trainings.remove(name);
+                        training.complete(null);
+                    }
+                })
+                .start();
+
+        return null;
+    }
+
+    /**
+     * Waits for the trainings running in the background.
+     */
+    void awaitTrainings() {
+        for (CompletableFuture<Void> training : new ArrayList<>(trainings.values())) {
+            training.join();
+        }
+    }
+
+    /**
+     * Runs a training build of an empty project with the class worlds launcher of the Maven home, which dumps the
+     * classes it loaded into the archive on exit.
+     */
+    private boolean train(File mavenHome, File javaExecutable, File archive, InvokerLogger logger) {
+        File classWorldsJar = DirectLaunchCache.findClassWorldsJar(mavenHome);
+        if (classWorldsJar == null) {
+            logger.debug("Cannot train class data archive without class worlds launcher in: '" + mavenHome + "'.");
+            return false;
+        }
+
+        File project = null;
+        File dump = new File(directory, archive.getName() + '.' + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(directory.toPath());
+            project = Files.createTempDirectory("maven-invoker-cds").toFile();
+            Files.write(
+                    new File(project, "pom.xml").toPath(),
+                    ("<project><modelVersion>4.0.0</modelVersion>"
+                                    + "<groupId>org.apache.maven.shared.invoker</groupId>"
+                                    + "<artifactId>class-data-training</artifactId><version>1</version>"
+                                    + "<packaging>pom</packaging></project>")
+                            .getBytes(StandardCharsets.UTF_8));
+            File log = new File(project, "training.log");
+
+            List<String> command = new ArrayList<>();
+            command.add(javaExecutable.getPath());
+            command.add("-XX:ArchiveClassesAtExit=" + dump.getPath());
+            command.addAll(DirectCommandLineBuilder.getLauncherArgs(mavenHome, classWorldsJar, project));
+            command.add("-B");
+            command.add("-o");
+            command.add("validate");
+
+            logger.debug("Training class data archive: " + command);
+
+            Process process = new ProcessBuilder(command)
+                    .directory(project)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start();
+            if (!process.waitFor(TRAINING_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                logger.warn("Training of class data archive timed out for Maven home: '" + mavenHome + "'.");
+                return false;
+            }
+            if (process.exitValue() != 0 || !dump.isFile()) {
+                logger.warn("Training of class data archive failed for Maven home: '" + mavenHome + "':"
+                        + System.lineSeparator()
+                        + new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8));
+                return false;
+            }
+
+            try {
+                Files.move(dump.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(dump.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to train class data archive for Maven home: '" + mavenHome + "'.", e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (dump.exists() && !dump.delete()) {
+                dump.deleteOnExit();
+            }
+            if (project != null) {
+                try {
+                    Directories.delete(project.toPath());
+                } catch (IOException e) {
+                    logger.debug("Failed to delete training project: '" + project + "'.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the archives of the same Maven home and Java executable trained for outdated installations.
+     */
+    private void deleteOutdatedArchives(String prefix, String name) {
+        File[] archives = directory.listFiles(
+                (dir, file) -> file.startsWith(prefix) && file.endsWith(EXTENSION) && !file.equals(name));
+        if (archives != null) {
+            for (File archive : archives) {
+                archive.delete();
+            }
+        }
+    }
+
+    /**
+     * Gets the modification times and sizes of the files of the installations that an archive depends on.
+     */
+    private static String stamps(File mavenHome, File javaHome) {
+        StringBuilder stamps = new StringBuilder();
+        for (File file : new File[] {
+            new File(mavenHome, "boot"),
+            new File(mavenHome, "lib"),
+            new File(mavenHome, "lib/ext"),
+            new File(mavenHome, "bin/m2.conf"),
+            new File(javaHome, "release"),
+            new File(javaHome, "lib/modules")
+        }) {
+            stamps.append(file.lastModified()).append(':').append(file.length()).append(';');
+        }
+        return stamps.toString();
+    }
+
+    private static String hash(String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder();
+            byte[] bytes = digest.digest();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", bytes[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.CommandLineTimeOutException;
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.apache.maven.shared.utils.cli.ShutdownHookUtils;
+import org.apache.maven.shared.utils.cli.StreamConsumer;
+
+/**
+ * Executes a command line in a forked process, equivalent to
+ * {@link org.apache.maven.shared.utils.cli.CommandLineUtils#executeCommandLine(Commandline, InputStream,
+ * StreamConsumer, StreamConsumer, int)}. The threads pumping the process streams are obtained from
+ * {@link InvokerThreads}, which uses virtual threads on Java 21+.
+ */
+class CommandLineRunner {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int FEEDER_BUFFER_SIZE = 80;
+
+    private final Commandline cli;
+
+    private final InputStream inputStream;
+
+    private final ByteOutputHandler outputHandler;
+
+    private final ByteOutputHandler errorHandler;
+
+    private Redirect outputRedirect;
+
+    private Redirect errorRedirect;
+
+    private ResourceMonitor resourceMonitor;
+
+    private ProcessTerminator terminator;
+
+    /**
+     * Creates a new runner for the given command line.
+     *
+     * @param cli The command line to execute, must not be <code>null</code>.
+     * @param inputStream The stream to feed to the standard input of the process, may be <code>null</code>.
+     * @param outputHandler The consumer of the standard output of the process, may be <code>null</code>.
+     * @param errorHandler The consumer of the error output of the process, may be <code>null</code>.
+     */
+    CommandLineRunner(
+            Commandline cli, InputStream inputStream, ByteOutputHandler outputHandler, ByteOutputHandler errorHandler) {
+        this.cli = cli;
+        this.inputStream = inputStream;
+        this.outputHandler = outputHandler;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Redirects the output of the process, so it is written by the process itself instead of being pumped to the
+     * handlers.
+     *
+     * @param outputRedirect The redirection of the standard output, may be <code>null</code> to pass it to the output
+     *            handler.
+     * @param errorRedirect The redirection of the error output, may be <code>null</code> to pass it to the error
+     *            handler.
+     * @return This runner.
+     */
+    CommandLineRunner redirect(Redirect outputRedirect, Redirect errorRedirect) {
+        this.outputRedirect = isPipe(outputRedirect) ? null : outputRedirect;
+        this.errorRedirect = isPipe(errorRedirect) ? null : errorRedirect;
+        return this;
+    }
+
+    /**
+     * Measures the resources used by the process.
+     *
+     * @param resourceMonitor The monitor measuring the process, may be <code>null</code> to not measure it.
+     * @return This runner.
+     */
+    CommandLineRunner monitor(ResourceMonitor resourceMonitor) {
+        this.resourceMonitor = resourceMonitor;
+        return this;
+    }
+
+    /**
+     * Terminates the process tree when the process times out or the calling thread is interrupted, instead of
+     * destroying the process alone.
+     *
+     * @param terminator The terminator of the process tree, may be <code>null</code> to destroy the process alone.
+     * @return This runner.
+     */
+    CommandLineRunner terminate(ProcessTerminator terminator) {
+        this.terminator = terminator;
+        return this;
+    }
+
+    private static boolean isPipe(Redirect redirect) {
+        return redirect == null || redirect.type() == Redirect.Type.PIPE;
+    }
+
+    /**
+     * Executes the command line and waits for the process to terminate. Interrupting the calling thread destroys the
+     * process.
+     *
+     * @param timeoutInSeconds The maximum time to wait for the process, a value less than or equal to zero to wait
+     *            without limit.
+     * @return The exit code of the process.
+     * @throws CommandLineException if the process could not be started, timed out or its streams failed.
+     */
+    int run(int timeoutInSeconds) throws CommandLineException {
+        final Process process = start();
+
+        if (resourceMonitor != null) {
+            resourceMonitor.start(process);
+        }
+
+        Thread processHook = new Thread(process::destroy, "maven-invoker process shutdown hook");
+        processHook.setContextClassLoader(null);
+        ShutdownHookUtils.addShutDownHook(processHook);
+
+        StreamFeeder inputFeeder = null;
+        StreamPump outputPump = null;
+        StreamPump errorPump = null;
+        try {
+            if (inputStream != null) {
+                inputFeeder = new StreamFeeder(inputStream, process.getOutputStream());
+                InvokerThreads.newThread("maven-invoker-stdin", inputFeeder).start();
+            }
+
+            if (outputRedirect == null) {
+                outputPump = new StreamPump(process.getInputStream(), outputHandler);
+                InvokerThreads.newThread("maven-invoker-stdout", outputPump).start();
+            }
+
+            if (errorRedirect == null) {
+                errorPump = new StreamPump(process.getErrorStream(), errorHandler);
+                InvokerThreads.newThread("maven-invoker-stderr", errorPump).start();
+            }
+
+            if (!InvokerThreads.waitFor(process, timeoutInSeconds)) {
+                if (terminator != null) {
+                    terminator.timeOut(process);
+                }
+                throw new CommandLineTimeOutException(
+                        String.format("Process timed out after %d seconds.", timeoutInSeconds));
+            }
+
+            int exitCode = process.exitValue();
+
+            if (inputFeeder != null) {
+                inputFeeder.waitUntilDone();
+            }
+            if (outputPump != null) {
+                outputPump.waitUntilDone();
+            }
+            if (errorPump != null) {
+                errorPump.waitUntilDone();
+            }
+
+            if (inputFeeder != null && inputFeeder.exception != null) {
+                throw new CommandLineException("Failure processing stdin.", inputFeeder.exception);
+            }
+            if (outputPump != null && outputPump.exception != null) {
+                throw new CommandLineException("Failure processing stdout.", outputPump.exception);
+            }
+            if (errorPump != null && errorPump.exception != null) {
+                throw new CommandLineException("Failure processing stderr.", errorPump.exception);
+            }
+
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineTimeOutException("Error while executing external command, process killed.", e);
+        } finally {
+            if (inputFeeder != null) {
+                inputFeeder.stop();
+            }
+            if (outputPump != null) {
+                outputPump.disable();
+            }
+            if (errorPump != null) {
+                errorPump.disable();
+            }
+
+            if (resourceMonitor != null) {
+                resourceMonitor.stop();
+            }
+
+            ShutdownHookUtils.removeShutdownHook(processHook);
+            if (terminator != null && process.isAlive()) {
+                terminator.terminate(process);
+            } else {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Starts the process like {@link Commandline#execute()} does, using a {@link ProcessBuilder} if the output is
+     * redirected.
+     */
+    private Process start() throws CommandLineException {
+        if (outputRedirect == null && errorRedirect == null) {
+            return cli.execute();
+        }
+
+        ProcessBuilder builder = new ProcessBuilder(cli.getShell().getShellCommandLine(cli.getArguments()));
+
+        File workingDirectory = cli.getWorkingDirectory();
+        if (workingDirectory != null) {
+            if (!workingDirectory.exists()) {
+                throw new CommandLineException(
+                        "Working directory \"" + workingDirectory.getPath() + "\" does not exist!");
+            } else if (!workingDirectory.isDirectory()) {
+                throw new CommandLineException(
+                        "Path \"" + workingDirectory.getPath() + "\" does not specify a directory.");
+            }
+            builder.directory(workingDirectory);
+        }
+
+        Map<String, String> environment = builder.environment();
+        environment.clear();
+        for (String variable : cli.getEnvironmentVariables()) {
+            // names of hidden variables on Windows start with '='
+            int separator = variable.indexOf('=', 1);
+            environment.put(variable.substring(0, separator), variable.substring(separator + 1));
+        }
+
+        if (outputRedirect != null) {
+            builder.redirectOutput(outputRedirect);
+        }
+        if (errorRedirect != null) {
+            builder.redirectError(errorRedirect);
+        }
+
+        try {
+            return builder.start();
+        } catch (IOException e) {
+            throw new CommandLineException("Error while executing process.", e);
+        }
+    }
+
+    /**
+     * Reads the bytes of a process stream and passes them to a handler, reusing a single buffer.
+     */
+    private static final class StreamPump implements Runnable {
+
+        private final InputStream in;
+
+        private final ByteOutputHandler handler;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile boolean disabled;
+
+        private volatile Exception exception;
+
+        StreamPump(InputStream in, ByteOutputHandler handler) {
+            this.in = in;
+            this.handler = handler;
+        }
+
+        public void run() {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream input = in) {
+                for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                    if (handler != null && read > 0 && !disabled && exception == null) {
+                        try {
+                            handler.consume(buffer, 0, read);
+                        } catch (Exception e) {
+                            exception = e;
+                        }
+                    }
+                }
+                if (handler != null && !disabled && exception == null) {
+                    try {
+                        handler.complete();
+                    } catch (Exception e) {
+                        exception = e;
+                    }
+                }
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void waitUntilDone() throws InterruptedException {
+            done.await();
+        }
+
+        void disable() {
+            disabled = true;
+        }
+    }
+
+    /**
+     * Copies the available bytes of an input stream to the standard input of a process, without blocking on the
+     * input stream so the feeder can be stopped once the process has terminated.
+     */
+    private static final class StreamFeeder implements Runnable {
+
+        private final InputStream input;
+
+        private final OutputStream output;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile boolean stopped;
+
+        private volatile Throwable exception;
+
+        StreamFeeder(InputStream input, OutputStream output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        public void run() {
+            byte[] buffer = new byte[FEEDER_BUFFER_SIZE];
+            try {
+                while (!stopped) {
+                    if (input.available() > 0) {
+                        int read = input.read(buffer);
+                        if (read < 0) {
+                            break;
+                        }
+                        output.write(buffer, 0, read);
+                        output.flush();
+                    } else {
+                        Thread.sleep(100);
+                    }
+                }
+            } catch (IOException e) {
+                exception = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    if (exception == null) {
+                        exception = e;
+                    }
+                }
+                done.countDown();
+            }
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        void waitUntilDone() throws InterruptedException {
+            stop();
+            done.await();
+        }
+    }
+}
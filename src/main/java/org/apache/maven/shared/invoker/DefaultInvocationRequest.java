@@ -104,12 +104,32 @@ public class DefaultInvocationRequest implements InvocationRequest {
 
     private int timeoutInSeconds = NO_TIMEOUT;
 
+    private int timeoutGracePeriodInSeconds = 5;
+
+    private boolean threadDumpedOnTimeout;
+
     private boolean quiet;
 
     private File mavenHome;
 
     private File mavenExecutable;
 
+    private ByteOutputHandler byteOutputHandler;
+
+    private ByteOutputHandler byteErrorHandler;
+
+    private ProcessBuilder.Redirect outputRedirect;
+
+    private ProcessBuilder.Redirect errorRedirect;
+
+    private int outputTailSize;
+
+    private boolean buildSummaryParsed;
+
+    private boolean buildEventsRecorded;
+
+    private boolean resourceUsageMeasured;
+
     private boolean noTransferProgress;
 
     private boolean ignoreTransitiveRepositories;
@@ -738,4 +758,174 @@ public class DefaultInvocationRequest implements InvocationRequest {
         this.mavenExecutable = mavenExecutable;
         return this;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteOutputHandler getByteOutputHandler() {
+        return byteOutputHandler;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setByteOutputHandler(ByteOutputHandler outputHandler) {
+        this.byteOutputHandler = outputHandler;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteOutputHandler getByteErrorHandler() {
+        return byteErrorHandler;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setByteErrorHandler(ByteOutputHandler errorHandler) {
+        this.byteErrorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProcessBuilder.Redirect getOutputRedirect() {
+        return outputRedirect;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setOutputRedirect(ProcessBuilder.Redirect outputRedirect) {
+        this.outputRedirect = outputRedirect;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProcessBuilder.Redirect getErrorRedirect() {
+        return errorRedirect;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setErrorRedirect(ProcessBuilder.Redirect errorRedirect) {
+        this.errorRedirect = errorRedirect;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOutputTailSize() {
+        return outputTailSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setOutputTailSize(int outputTailSize) {
+        this.outputTailSize = outputTailSize;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isBuildSummaryParsed() {
+        return buildSummaryParsed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setBuildSummaryParsed(boolean buildSummaryParsed) {
+        this.buildSummaryParsed = buildSummaryParsed;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isBuildEventsRecorded() {
+        return buildEventsRecorded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setBuildEventsRecorded(boolean buildEventsRecorded) {
+        this.buildEventsRecorded = buildEventsRecorded;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isResourceUsageMeasured() {
+        return resourceUsageMeasured;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setResourceUsageMeasured(boolean resourceUsageMeasured) {
+        this.resourceUsageMeasured = resourceUsageMeasured;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTimeoutGracePeriodInSeconds() {
+        return timeoutGracePeriodInSeconds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setTimeoutGracePeriodInSeconds(int timeoutGracePeriodInSeconds) {
+        this.timeoutGracePeriodInSeconds = timeoutGracePeriodInSeconds;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isThreadDumpedOnTimeout() {
+        return threadDumpedOnTimeout;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InvocationRequest setThreadDumpedOnTimeout(boolean threadDumpedOnTimeout) {
+        this.threadDumpedOnTimeout = threadDumpedOnTimeout;
+        return this;
+    }
 }
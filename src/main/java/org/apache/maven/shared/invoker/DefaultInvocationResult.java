@@ -37,6 +37,38 @@ public final class DefaultInvocationResult implements InvocationResult {
      */
     private int exitCode = Integer.MIN_VALUE;
 
+    /**
+     * The end of the standard output, <code>null</code> if not requested.
+     */
+    private TailOutputHandler outputTail;
+
+    /**
+     * The end of the error output, <code>null</code> if not requested.
+     */
+    private TailOutputHandler errorTail;
+
+    /**
+     * The parser of the standard output, <code>null</code> if not requested.
+     */
+    private BuildSummaryParser buildSummaryParser;
+
+    /**
+     * The summary decoded from the recorded build events, <code>null</code> if not requested.
+     */
+    private BuildSummary recordedBuildSummary;
+
+    /**
+     * The resources used by the forked process tree, <code>null</code> if not measured.
+     */
+    private ResourceUsage resourceUsage;
+
+    private boolean timedOut;
+
+    /**
+     * The thread dumps of the Java processes that timed out, <code>null</code> if not requested.
+     */
+    private String threadDump;
+
     /**
      * Creates a new invocation result
      */
@@ -62,6 +94,39 @@ public final class DefaultInvocationResult implements InvocationResult {
         return executionException;
     }
 
+    /** {@inheritDoc} */
+    public String getOutputTail() {
+        return outputTail == null ? null : outputTail.toString();
+    }
+
+    /** {@inheritDoc} */
+    public String getErrorTail() {
+        return errorTail == null ? null : errorTail.toString();
+    }
+
+    /** {@inheritDoc} */
+    public BuildSummary getBuildSummary() {
+        if (recordedBuildSummary != null) {
+            return recordedBuildSummary;
+        }
+        return buildSummaryParser == null ? null : buildSummaryParser.getSummary();
+    }
+
+    /** {@inheritDoc} */
+    public ResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /** {@inheritDoc} */
+    public String getThreadDump() {
+        return threadDump;
+    }
+
     /**
      * Sets the exit code reported by the Maven invocation.
      *
@@ -79,4 +144,67 @@ public final class DefaultInvocationResult implements InvocationResult {
     void setExecutionException(CommandLineException executionException) {
         this.executionException = executionException;
     }
+
+    /**
+     * Sets the handler keeping the end of the standard output.
+     *
+     * @param outputTail The handler keeping the end of the standard output, may be <code>null</code>.
+     */
+    void setOutputTail(TailOutputHandler outputTail) {
+        this.outputTail = outputTail;
+    }
+
+    /**
+     * Sets the handler keeping the end of the error output.
+     *
+     * @param errorTail The handler keeping the end of the error output, may be <code>null</code>.
+     */
+    void setErrorTail(TailOutputHandler errorTail) {
+        this.errorTail = errorTail;
+    }
+
+    /**
+     * Sets the parser of the standard output.
+     *
+     * @param buildSummaryParser The parser of the standard output, may be <code>null</code>.
+     */
+    void setBuildSummaryParser(BuildSummaryParser buildSummaryParser) {
+        this.buildSummaryParser = buildSummaryParser;
+    }
+
+    /**
+     * Sets the summary decoded from the recorded build events.
+     *
+     * @param recordedBuildSummary The summary decoded from the build events, may be <code>null</code>.
+     */
+    void setRecordedBuildSummary(BuildSummary recordedBuildSummary) {
+        this.recordedBuildSummary = recordedBuildSummary;
+    }
+
+    /**
+     * Sets the resources used by the forked process tree.
+     *
+     * @param resourceUsage The resources used by the forked process tree, may be <code>null</code>.
+     */
+    void setResourceUsage(ResourceUsage resourceUsage) {
+        this.resourceUsage = resourceUsage;
+    }
+
+    /**
+     * Sets whether the Maven invocation timed out.
+     *
+     * @param timedOut <code>true</code> if the invocation timed out, <code>false</code> otherwise.
+     */
+    void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * Sets the thread dumps of the Java processes that timed out.
+     *
+     * @param threadDump The thread dumps, may be <code>null</code>.
+     */
+    void setThreadDump(String threadDump) {
+        this.threadDump = threadDump;
+    }
 }
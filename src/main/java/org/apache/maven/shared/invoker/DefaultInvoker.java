@@ -22,10 +22,17 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.apache.maven.shared.invoker.spy.BuildEvents;
 import org.apache.maven.shared.utils.cli.CommandLineException;
-import org.apache.maven.shared.utils.cli.CommandLineUtils;
 import org.apache.maven.shared.utils.cli.Commandline;
 
 /**
@@ -35,7 +42,7 @@ import org.apache.maven.shared.utils.cli.Commandline;
  */
 @Named
 @Singleton
-public class DefaultInvoker implements Invoker {
+public class DefaultInvoker implements AsyncInvoker {
     /** Constant <code>ROLE_HINT="default"</code> */
     public static final String ROLE_HINT = "default";
 
@@ -59,9 +66,158 @@ public class DefaultInvoker implements Invoker {
 
     private InvocationOutputHandler errorHandler = DEFAULT_OUTPUT_HANDLER;
 
+    private Executor executor;
+
+    private final MavenExecutableCache executableCache = new MavenExecutableCache();
+
+    private final CanonicalFileCache canonicalFileCache = new CanonicalFileCache();
+
+    private ClassDataArchives classDataArchives;
+
     /** {@inheritDoc} */
     public InvocationResult execute(InvocationRequest request) throws MavenInvocationException {
-        MavenCommandLineBuilder cliBuilder = new MavenCommandLineBuilder();
+        Commandline cli = buildCommandLine(request);
+
+        return executeCommandLine(cli, request);
+    }
+
+    /** {@inheritDoc} */
+    public CompletableFuture<InvocationResult> executeAsync(InvocationRequest request) {
+        CompletableFuture<InvocationResult> future = new CompletableFuture<>();
+
+        Commandline cli;
+
+        try {
+            cli = buildCommandLine(request);
+        } catch (MavenInvocationException | RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        return executeAsync(cli, request, future);
+    }
+
+    /**
+     * Renders the command line of the given request once, except for its goals and projects, so that invocations
+     * differing only in those can be derived cheaply. The template uses the configuration of this invoker at the time
+     * of its creation.
+     *
+     * @param request The invocation request to render, must not be <code>null</code>. Its goals and projects are
+     *            ignored.
+     * @return The template, never <code>null</code>.
+     * @throws MavenInvocationException if the command line cannot be configured.
+     * @since 3.4.0
+     */
+    public InvocationTemplate newTemplate(InvocationRequest request) throws MavenInvocationException {
+        InvocationRequest constantRequest = InvocationTemplate.withoutGoalsAndProjects(request);
+        MavenCommandLineBuilder cliBuilder = newConfiguredCommandLineBuilder(constantRequest);
+        Commandline cli = buildCommandLine(cliBuilder, constantRequest);
+
+        return new InvocationTemplate(request, cliBuilder.getMavenExecutable(), cli);
+    }
+
+    /**
+     * Executes Maven with the command line of the given template for the given goals and projects.
+     *
+     * @param template The template to derive the command line from, must not be <code>null</code>.
+     * @param goals The goals to execute, may be <code>null</code>.
+     * @param projects The projects to build, may be <code>null</code> to build all projects.
+     * @return The result of the Maven invocation, never <code>null</code>.
+     * @throws MavenInvocationException if the command line cannot be configured.
+     * @since 3.4.0
+     */
+    public InvocationResult execute(InvocationTemplate template, List<String> goals, List<String> projects)
+            throws MavenInvocationException {
+        return executeCommandLine(newCommandLine(template, goals, projects), template.getRequest());
+    }
+
+    /**
+     * Executes Maven asynchronously with the command line of the given template for the given goals and projects, see
+     * {@link #executeAsync(InvocationRequest)}.
+     *
+     * @param template The template to derive the command line from, must not be <code>null</code>.
+     * @param goals The goals to execute, may be <code>null</code>.
+     * @param projects The projects to build, may be <code>null</code> to build all projects.
+     * @return A future completed with the result of the Maven invocation, never <code>null</code>.
+     * @since 3.4.0
+     */
+    public CompletableFuture<InvocationResult> executeAsync(
+            InvocationTemplate template, List<String> goals, List<String> projects) {
+        CompletableFuture<InvocationResult> future = new CompletableFuture<>();
+
+        Commandline cli;
+
+        try {
+            cli = newCommandLine(template, goals, projects);
+        } catch (MavenInvocationException | RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        return executeAsync(cli, template.getRequest(), future);
+    }
+
+    private Commandline newCommandLine(InvocationTemplate template, List<String> goals, List<String> projects)
+            throws MavenInvocationException {
+        try {
+            return template.newCommandLine(goals, projects);
+        } catch (CommandLineConfigurationException e) {
+            throw new MavenInvocationException("Error configuring command line", e);
+        }
+    }
+
+    private CompletableFuture<InvocationResult> executeAsync(
+            Commandline cli, InvocationRequest request, CompletableFuture<InvocationResult> future) {
+        AsyncInvocation invocation = new AsyncInvocation(cli, request, future);
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                invocation.cancel();
+            }
+        });
+
+        try {
+            getExecutor().execute(invocation);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Creates the builder for the command line of the given request. Subclasses may override this method to target
+     * another Maven client.
+     *
+     * @param request The invocation request to execute, never <code>null</code>.
+     * @return The command line builder, never <code>null</code>.
+     * @since 3.4.0
+     */
+    protected MavenCommandLineBuilder newCommandLineBuilder(InvocationRequest request) {
+        return new MavenCommandLineBuilder();
+    }
+
+    Commandline buildCommandLine(InvocationRequest request) throws MavenInvocationException {
+        return buildCommandLine(newConfiguredCommandLineBuilder(request), request);
+    }
+
+    Commandline buildCommandLine(MavenCommandLineBuilder cliBuilder, InvocationRequest request)
+            throws MavenInvocationException {
+        try {
+            return cliBuilder.build(request);
+        } catch (CommandLineConfigurationException e) {
+            throw new MavenInvocationException("Error configuring command line", e);
+        }
+    }
+
+    /**
+     * Creates the builder for the command line of the given request, configured with the settings of this invoker.
+     */
+    MavenCommandLineBuilder newConfiguredCommandLineBuilder(InvocationRequest request) {
+        MavenCommandLineBuilder cliBuilder = newCommandLineBuilder(request);
+        cliBuilder.setExecutableCache(executableCache);
+        cliBuilder.setCanonicalFileCache(canonicalFileCache);
+        cliBuilder.setClassDataArchives(classDataArchives);
 
         if (logger != null) {
             cliBuilder.setLogger(logger);
@@ -83,34 +239,78 @@ public class DefaultInvoker implements Invoker {
             cliBuilder.setBaseDirectory(workingDirectory);
         }
 
-        Commandline cli;
-
-        try {
-            cli = cliBuilder.build(request);
-        } catch (CommandLineConfigurationException e) {
-            throw new MavenInvocationException("Error configuring command line", e);
-        }
+        return cliBuilder;
+    }
 
+    InvocationResult executeCommandLine(Commandline cli, InvocationRequest request) {
         DefaultInvocationResult result = new DefaultInvocationResult();
 
+        File buildEvents = null;
         try {
-            int exitCode = executeCommandLine(cli, request, request.getTimeoutInSeconds());
+            buildEvents = addBuildEventsFile(cli, request);
+
+            int exitCode = executeCommandLine(cli, request, result, request.getTimeoutInSeconds());
 
             result.setExitCode(exitCode);
         } catch (CommandLineException e) {
             result.setExecutionException(e);
+        } finally {
+            readBuildEvents(buildEvents, result);
         }
 
         return result;
     }
 
-    private int executeCommandLine(Commandline cli, InvocationRequest request, int timeoutInSeconds)
-            throws CommandLineException {
-        int result;
+    /**
+     * Creates the file receiving the build events recorded by the spy and passes it to Maven, if the request records
+     * the build events.
+     *
+     * @return The file receiving the build events or <code>null</code> if the request does not record them.
+     */
+    File addBuildEventsFile(Commandline cli, InvocationRequest request) throws CommandLineException {
+        if (!request.isBuildEventsRecorded()) {
+            return null;
+        }
 
-        InputStream inputStream = request.getInputStream(this.inputStream);
-        InvocationOutputHandler outputHandler = request.getOutputHandler(this.outputHandler);
-        InvocationOutputHandler errorHandler = request.getErrorHandler(this.errorHandler);
+        File file;
+        try {
+            file = File.createTempFile("maven-invoker-events", ".bin");
+        } catch (IOException e) {
+            throw new CommandLineException("Error creating build events file", e);
+        }
+
+        cli.createArg().setValue("-D");
+        cli.createArg().setValue(BuildEvents.FILE_PROPERTY + '=' + file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Decodes the recorded build events into the result and deletes their file.
+     *
+     * @param file The file receiving the build events, may be <code>null</code> if no events were recorded.
+     */
+    void readBuildEvents(File file, DefaultInvocationResult result) {
+        if (file == null) {
+            return;
+        }
+
+        try (InputStream in = new FileInputStream(file)) {
+            result.setRecordedBuildSummary(BuildEventReader.read(in));
+        } catch (IOException e) {
+            getLogger().warn("Failed to read build events: '" + file + "'.", e);
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private int executeCommandLine(
+            Commandline cli, InvocationRequest request, DefaultInvocationResult result, int timeoutInSeconds)
+            throws CommandLineException {
+        InputStream inputStream = getInputStream(request);
+        ByteOutputHandler outputHandler = getByteOutputHandler(request, result);
+        ByteOutputHandler errorHandler = getByteErrorHandler(request, result);
 
         if (getLogger().isDebugEnabled()) {
             getLogger().debug("Executing: " + cli);
@@ -121,21 +321,190 @@ public class DefaultInvoker implements Invoker {
                 getLogger().info("Executing in batch mode. The configured input stream will be ignored.");
             }
 
-            result = CommandLineUtils.executeCommandLine(cli, outputHandler, errorHandler, timeoutInSeconds);
-        } else {
-            if (inputStream == null) {
-                getLogger()
-                        .warn("Maven will be executed in interactive mode"
-                                + ", but no input stream has been configured for this MavenInvoker instance.");
-
-                result = CommandLineUtils.executeCommandLine(cli, outputHandler, errorHandler, timeoutInSeconds);
-            } else {
-                result = CommandLineUtils.executeCommandLine(
-                        cli, inputStream, outputHandler, errorHandler, timeoutInSeconds);
+            inputStream = null;
+        } else if (inputStream == null) {
+            getLogger()
+                    .warn("Maven will be executed in interactive mode"
+                            + ", but no input stream has been configured for this MavenInvoker instance.");
+        }
+
+        ResourceMonitor resourceMonitor = request.isResourceUsageMeasured() ? new ResourceMonitor() : null;
+        ProcessTerminator terminator = newProcessTerminator(request);
+        try {
+            return new CommandLineRunner(cli, inputStream, outputHandler, errorHandler)
+                    .redirect(request.getOutputRedirect(), request.getErrorRedirect())
+                    .monitor(resourceMonitor)
+                    .terminate(terminator)
+                    .run(timeoutInSeconds);
+        } finally {
+            readTermination(terminator, result);
+            if (resourceMonitor != null && resourceMonitor.isStarted()) {
+                result.setResourceUsage(resourceMonitor.getUsage());
             }
         }
+    }
 
-        return result;
+    /**
+     * Creates the terminator of the forked process tree, configured with the grace period and thread dump of the
+     * request.
+     */
+    static ProcessTerminator newProcessTerminator(InvocationRequest request) {
+        return new ProcessTerminator(request.getTimeoutGracePeriodInSeconds(), request.isThreadDumpedOnTimeout());
+    }
+
+    /**
+     * Reports the timeout and the thread dump recorded by the terminator in the result.
+     */
+    static void readTermination(ProcessTerminator terminator, DefaultInvocationResult result) {
+        result.setTimedOut(terminator.isTimedOut());
+        result.setThreadDump(terminator.getThreadDump());
+    }
+
+    /**
+     * Awaits a forked Maven process on behalf of {@link #executeAsync(InvocationRequest)}. Cancellation interrupts
+     * the awaiting thread, which makes {@link CommandLineRunner} destroy the process.
+     */
+    private final class AsyncInvocation implements Runnable {
+
+        private final Commandline cli;
+
+        private final InvocationRequest request;
+
+        private final CompletableFuture<InvocationResult> future;
+
+        /**
+         * The thread currently awaiting the process, <code>null</code> if the invocation is not running.
+         */
+        private Thread runner;
+
+        AsyncInvocation(Commandline cli, InvocationRequest request, CompletableFuture<InvocationResult> future) {
+            this.cli = cli;
+            this.request = request;
+            this.future = future;
+        }
+
+        public void run() {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+
+            try {
+                future.complete(executeCommandLine(cli, request));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // do not leak a late cancellation into the next task of a pooled thread
+                Thread.interrupted();
+            }
+        }
+
+        synchronized void cancel() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    InputStream getInputStream(InvocationRequest request) {
+        return request.getInputStream(inputStream);
+    }
+
+    InvocationOutputHandler getOutputHandler(InvocationRequest request) {
+        return request.getOutputHandler(outputHandler);
+    }
+
+    InvocationOutputHandler getErrorHandler(InvocationRequest request) {
+        return request.getErrorHandler(errorHandler);
+    }
+
+    /**
+     * Gets the handler of the standard output of the request, adapting the line oriented output handler if no byte
+     * output handler is set. If requested, the output is also passed to a tail handler and a build summary parser
+     * registered with the result.
+     */
+    ByteOutputHandler getByteOutputHandler(InvocationRequest request, DefaultInvocationResult result) {
+        ByteOutputHandler handler = request.getByteOutputHandler();
+        if (handler == null) {
+            handler = toByteOutputHandler(getOutputHandler(request));
+        }
+
+        if (request.getOutputTailSize() > 0) {
+            TailOutputHandler tail = new TailOutputHandler(request.getOutputTailSize());
+            result.setOutputTail(tail);
+            handler = tee(handler, tail);
+        }
+
+        if (request.isBuildSummaryParsed()) {
+            BuildSummaryParser parser = new BuildSummaryParser();
+            result.setBuildSummaryParser(parser);
+            handler = tee(handler, new LineByteOutputHandler(parser));
+        }
+
+        return handler;
+    }
+
+    /**
+     * Gets the handler of the error output of the request, adapting the line oriented error handler if no byte error
+     * handler is set. If requested, the output is also passed to a tail handler registered with the result.
+     */
+    ByteOutputHandler getByteErrorHandler(InvocationRequest request, DefaultInvocationResult result) {
+        ByteOutputHandler handler = request.getByteErrorHandler();
+        if (handler == null) {
+            handler = toByteOutputHandler(getErrorHandler(request));
+        }
+
+        if (request.getOutputTailSize() > 0) {
+            TailOutputHandler tail = new TailOutputHandler(request.getOutputTailSize());
+            result.setErrorTail(tail);
+            handler = tee(handler, tail);
+        }
+
+        return handler;
+    }
+
+    /**
+     * Passes the output to another handler in addition to the given handler.
+     */
+    static ByteOutputHandler tee(ByteOutputHandler handler, ByteOutputHandler other) {
+        if (handler == null) {
+            return other;
+        }
+
+        return new ByteOutputHandler() {
+            @Override
+            public void consume(byte[] buffer, int offset, int length) throws IOException {
+                other.consume(buffer, offset, length);
+                handler.consume(buffer, offset, length);
+            }
+
+            @Override
+            public void complete() throws IOException {
+                other.complete();
+                handler.complete();
+            }
+        };
+    }
+
+    static ByteOutputHandler toByteOutputHandler(InvocationOutputHandler handler) {
+        return handler != null ? new LineByteOutputHandler(handler) : null;
+    }
+
+    private Executor getExecutor() {
+        return executor != null ? executor : DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Lazily creates the executor shared by all invokers without a configured executor.
+     */
+    private static final class DefaultExecutorHolder {
+
+        static final ExecutorService EXECUTOR = InvokerThreads.newExecutor("maven-invoker-");
     }
 
     /**
@@ -231,4 +600,40 @@ public class DefaultInvoker implements Invoker {
         this.outputHandler = outputHandler;
         return this;
     }
+
+    /** {@inheritDoc} */
+    public AsyncInvoker setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Gets the directory storing the class data sharing archives of the forked Maven JVMs.
+     *
+     * @return The directory storing the archives or <code>null</code> if class data sharing is disabled.
+     * @since 3.4.0
+     */
+    public File getClassDataArchiveDirectory() {
+        return classDataArchives != null ? classDataArchives.getDirectory() : null;
+    }
+
+    /**
+     * Enables dynamic class data sharing (AppCDS) for the forked Maven JVMs, which saves loading and verifying the
+     * classes of Maven on startup. On first use of a Maven home with a Java installation, a training build of an empty
+     * project dumps the classes loaded by Maven into an archive, which is passed with
+     * <code>-XX:SharedArchiveFile</code> in <code>MAVEN_OPTS</code> to the later invocations running the
+     * <code>mvn</code> script of that Maven home or launched by {@link DirectInvoker}. An archive is replaced when the
+     * Maven home or the Java installation change. Requires Java 13+ for Maven, invocations with older Java
+     * installations or a Maven wrapper run without archive.
+     *
+     * @param classDataArchiveDirectory The directory storing the archives, may be <code>null</code> to disable class
+     *            data sharing.
+     * @return This invoker instance.
+     * @since 3.4.0
+     */
+    public DefaultInvoker setClassDataArchiveDirectory(File classDataArchiveDirectory) {
+        this.classDataArchives =
+                classDataArchiveDirectory != null ? new ClassDataArchives(classDataArchiveDirectory) : null;
+        return this;
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+/**
+ * A descendant of a forked Maven process, identified by its pid together with its start time, so that a process which
+ * reuses the pid after the descendant terminated is not taken for it.
+ */
+interface DescendantProcess {
+
+    /**
+     * Gets the pid of the process.
+     *
+     * @return The pid of the process.
+     */
+    long pid();
+
+    /**
+     * Tells whether the process is alive.
+     *
+     * @return <code>true</code> if the process is alive, <code>false</code> if it terminated.
+     */
+    boolean isAlive();
+
+    /**
+     * Requests the process to terminate, e.g. with <code>SIGTERM</code>, or kills it, e.g. with <code>SIGKILL</code>.
+     * Nothing is signaled if the process terminated meanwhile.
+     *
+     * @param forcibly <code>true</code> to kill the process, <code>false</code> to request it to terminate.
+     */
+    void destroy(boolean forcibly);
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.shared.utils.cli.CommandLineUtils;
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Builds a command line executing <code>java</code> directly with the class worlds launcher of Maven, computing the
+ * options the <code>bin/mvn</code> script of Maven 3 would pass: the options of <code>.mvn/jvm.config</code> and
+ * <code>MAVEN_OPTS</code>, the class worlds configuration, <code>maven.home</code>,
+ * <code>maven.multiModuleProjectDirectory</code> and <code>MAVEN_ARGS</code>. Falls back to the script if the Maven
+ * home has no class worlds launcher, no Java executable is found or <code>.mvn/jvm.config</code> cannot be read.
+ */
+class DirectCommandLineBuilder extends MavenCommandLineBuilder {
+
+    static final String LAUNCHER = "org.codehaus.plexus.classworlds.launcher.Launcher";
+
+    private final DirectLaunchCache launchCache;
+
+    /**
+     * The class worlds JAR launched by the Java executable, <code>null</code> when running the script.
+     */
+    private File classWorldsJar;
+
+    /**
+     * The options of <code>.mvn/jvm.config</code> joined like the script does, <code>null</code> when running the
+     * script.
+     */
+    private String jvmConfig;
+
+    DirectCommandLineBuilder(DirectLaunchCache launchCache) {
+        this.launchCache = launchCache;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void setupMavenExecutable(InvocationRequest request) throws CommandLineConfigurationException {
+        classWorldsJar = null;
+        jvmConfig = null;
+
+        File mavenHome = getMavenHome();
+        File jar = mavenHome != null ? launchCache.getClassWorldsJar(mavenHome) : null;
+        File java = jar != null ? findJavaExecutable(request) : null;
+
+        if (java == null) {
+            getLogger().debug("Cannot launch Java directly for Maven home: '" + mavenHome + "', using the script.");
+            super.setupMavenExecutable(request);
+            return;
+        }
+
+        File projectBaseDirectory = findProjectBaseDirectory(request);
+        try {
+            jvmConfig = readJvmConfig(projectBaseDirectory);
+        } catch (IOException e) {
+            getLogger()
+                    .warn(
+                            "Failed to read .mvn/jvm.config of project base directory: '" + projectBaseDirectory
+                                    + "', using the script.",
+                            e);
+            super.setupMavenExecutable(request);
+            return;
+        }
+
+        classWorldsJar = jar;
+        setMavenExecutable(java);
+    }
+
+    /**
+     * Gets the arguments of the Java executable up to the arguments of the launcher.
+     */
+    private List<String> getJavaArgs(InvocationRequest request, File projectBaseDirectory) {
+        File mavenHome = getMavenHome();
+        File java = getMavenExecutable();
+
+        List<String> args = new ArrayList<>();
+        if (launchCache.isNativeAccessSupported(java)) {
+            args.add("--enable-native-access=ALL-UNNAMED");
+        }
+        args.addAll(translate(jvmConfig, ".mvn/jvm.config"));
+        String classDataOption = getClassDataOption(mavenHome, java);
+        if (classDataOption != null) {
+            args.add(classDataOption);
+        }
+        args.addAll(translate(getEnvironment(request, "MAVEN_OPTS", request.getMavenOpts()), "MAVEN_OPTS"));
+        args.addAll(getLauncherArgs(mavenHome, classWorldsJar, projectBaseDirectory));
+        args.addAll(translate(getEnvironment(request, "MAVEN_ARGS", null), "MAVEN_ARGS"));
+        return args;
+    }
+
+    /**
+     * Gets the arguments of <code>java</code> running the class worlds launcher of the given Maven home, like the
+     * script passes them after the options of Java.
+     *
+     * @param mavenHome The Maven home, must not be <code>null</code>.
+     * @param classWorldsJar The class worlds JAR in the <code>boot</code> directory of the Maven home, must not be
+     *            <code>null</code>.
+     * @param projectBaseDirectory The base directory of the project, must not be <code>null</code>.
+     * @return The arguments from the class path up to the launcher class, never <code>null</code>.
+     */
+    static List<String> getLauncherArgs(File mavenHome, File classWorldsJar, File projectBaseDirectory) {
+        return Arrays.asList(
+                "-classpath",
+                classWorldsJar.getPath(),
+                "-Dclassworlds.conf=" + new File(mavenHome, "bin/m2.conf").getPath(),
+                "-Dmaven.home=" + mavenHome.getPath(),
+                "-Dlibrary.jansi.path=" + new File(mavenHome, "lib/jansi-native").getPath(),
+                "-Dmaven.multiModuleProjectDirectory=" + projectBaseDirectory.getPath(),
+                LAUNCHER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void setShellEnvironment(InvocationRequest request, Commandline cli) {
+        super.setShellEnvironment(request, cli);
+
+        if (classWorldsJar != null) {
+            File projectBaseDirectory = findProjectBaseDirectory(request);
+            cli.addEnvironment("MAVEN_PROJECTBASEDIR", projectBaseDirectory.getPath());
+
+            // the first arguments of the command line, since the executable is set just before
+            for (String arg : getJavaArgs(request, projectBaseDirectory)) {
+                cli.createArg().setValue(arg);
+            }
+        }
+    }
+
+    /**
+     * Finds the base directory of the project like the script does: the first directory containing <code>.mvn</code>
+     * from the directory of the POM up to the root, or else the directory of the POM.
+     */
+    private File findProjectBaseDirectory(InvocationRequest request) {
+        String mavenBaseDirectory = getEnvironment(request, "MAVEN_BASEDIR", null);
+        if (mavenBaseDirectory != null && !mavenBaseDirectory.isEmpty()) {
+            return new File(mavenBaseDirectory);
+        }
+
+        File directory = getBaseDirectory();
+        File pom = request.getPomFile();
+        if (pom != null) {
+            directory = (pom.isAbsolute() ? pom : new File(directory, pom.getPath())).getAbsoluteFile();
+            if (!directory.isDirectory()) {
+                directory = directory.getParentFile();
+            }
+        }
+
+        for (File candidate = directory; candidate != null; candidate = candidate.getParentFile()) {
+            if (new File(candidate, ".mvn").isDirectory()) {
+                return candidate;
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * Reads <code>.mvn/jvm.config</code> like the script does: carriage returns and everything from a <code>#</code> to
+     * the end of a line are removed, and the remaining lines are joined with spaces.
+     *
+     * @return The options or an empty string if there is no <code>.mvn/jvm.config</code>.
+     */
+    private static String readJvmConfig(File projectBaseDirectory) throws IOException {
+        File jvmConfig = new File(projectBaseDirectory, ".mvn/jvm.config");
+        if (!jvmConfig.isFile()) {
+            return "";
+        }
+
+        StringBuilder options = new StringBuilder();
+        for (String line : Files.readAllLines(jvmConfig.toPath(), StandardCharsets.UTF_8)) {
+            line = line.replace("\r", "");
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            if (!line.trim().isEmpty()) {
+                options.append(options.length() > 0 ? " " : "").append(line);
+            }
+        }
+        return options.toString();
+    }
+
+    private List<String> translate(String options, String source) {
+        if (options == null || options.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return Arrays.asList(CommandLineUtils.translateCommandline(options));
+        } catch (Exception e) {
+            // like the script, which does not interpret quotes
+            getLogger().warn("Invalid quoting in " + source + ", splitting it at whitespace: " + options);
+            return Arrays.asList(options.trim().split("\\s+"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Invokes Maven by executing <code>java</code> directly with the class worlds launcher of the Maven installation,
+ * instead of running the <code>bin/mvn</code> script, which forks several helper processes before starting Java,
+ * e.g. to locate Java, to find the project base directory or to probe the options Java accepts.
+ * <p>
+ * The command line is computed like the script of Maven 3 does: <code>.mvn/jvm.config</code> of the project base
+ * directory and <code>MAVEN_OPTS</code> are passed to Java, followed by the class worlds configuration,
+ * <code>maven.home</code>, <code>maven.multiModuleProjectDirectory</code> and <code>MAVEN_ARGS</code>. Java is looked
+ * up in the requested Java home, <code>JAVA_HOME</code> or else on the <code>PATH</code>. What is found in the Maven
+ * home and the Java installation is cached for later invocations. Invocations fall back to the script if a Maven
+ * executable was explicitly configured, e.g. a Maven wrapper, if the Maven home has no class worlds launcher or if
+ * <code>.mvn/jvm.config</code> cannot be read.
+ *
+ * @since 3.4.0
+ */
+@Named(DirectInvoker.ROLE_HINT)
+@Singleton
+public class DirectInvoker extends DefaultInvoker {
+    /** Constant <code>ROLE_HINT="direct"</code> */
+    public static final String ROLE_HINT = "direct";
+
+    private final DirectLaunchCache launchCache = new DirectLaunchCache();
+
+    /** {@inheritDoc} */
+    @Override
+    protected MavenCommandLineBuilder newCommandLineBuilder(InvocationRequest request) {
+        if (request.getMavenExecutable() == null && getMavenExecutable() == null) {
+            return new DirectCommandLineBuilder(launchCache);
+        }
+
+        return super.newCommandLineBuilder(request);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches what {@link DirectCommandLineBuilder} needs to know about Maven homes and Java installations, so that repeated
+ * builds neither list the <code>boot</code> directory of Maven nor read the <code>release</code> file of Java every
+ * time. The class worlds launcher of a Maven home is valid as long as the modification time of its <code>boot</code>
+ * directory is unchanged.
+ * <p>
+ * Instances are thread-safe and shared by all builds of an invoker.
+ */
+class DirectLaunchCache {
+
+    private static final int NATIVE_ACCESS_JAVA_VERSION = 17;
+
+    private final ConcurrentMap<File, Launcher> launchers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<File, Boolean> nativeAccess = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the class worlds launcher of the given Maven home, i.e. the JAR in its <code>boot</code> directory, if it
+     * also contains <code>bin/m2.conf</code>.
+     *
+     * @param mavenHome The Maven home, must not be <code>null</code>.
+     * @return The launcher JAR or <code>null</code> if Maven cannot be launched directly.
+     */
+    File getClassWorldsJar(File mavenHome) {
+        File boot = new File(mavenHome, "boot");
+        long stamp = boot.lastModified();
+
+        Launcher launcher = launchers.get(mavenHome);
+        if (launcher == null || launcher.stamp != stamp) {
+            launcher = new Launcher(findClassWorldsJar(mavenHome), stamp);
+            launchers.put(mavenHome, launcher);
+        }
+        return launcher.jar;
+    }
+
+    /**
+     * Finds the class worlds launcher of the given Maven home without caching it.
+     *
+     * @param mavenHome The Maven home, must not be <code>null</code>.
+     * @return The launcher JAR or <code>null</code> if Maven cannot be launched directly.
+     */
+    static File findClassWorldsJar(File mavenHome) {
+        if (!new File(mavenHome, "bin/m2.conf").isFile()) {
+            return null;
+        }
+
+        File[] jars = new File(mavenHome, "boot")
+                .listFiles((dir, name) -> name.startsWith("plexus-classworlds-") && name.endsWith(".jar"));
+        return jars != null && jars.length == 1 ? jars[0].getAbsoluteFile() : null;
+    }
+
+    /**
+     * Tells whether the given Java executable accepts <code>--enable-native-access=ALL-UNNAMED</code>, which the
+     * <code>mvn</code> script finds out by running <code>java -version</code> with it.
+     *
+     * @param javaExecutable The Java executable in the <code>bin</code> directory of a Java home, must not be
+     *            <code>null</code>.
+     * @return <code>true</code> if the option is accepted, <code>false</code> if not or unknown.
+     */
+    boolean isNativeAccessSupported(File javaExecutable) {
+        return nativeAccess.computeIfAbsent(javaExecutable, executable -> {
+            File bin = executable.getParentFile();
+            File javaHome = bin != null ? bin.getParentFile() : null;
+            return javaHome != null && getJavaVersion(javaHome) >= NATIVE_ACCESS_JAVA_VERSION;
+        });
+    }
+
+    /**
+     * Gets the feature version of the given Java home from its <code>release</code> file, e.g. <code>8</code> for
+     * <code>JAVA_VERSION="1.8.0_392"</code> or <code>17</code> for <code>JAVA_VERSION="17.0.9"</code>.
+     *
+     * @param javaHome The Java home, must not be <code>null</code>.
+     * @return The feature version or <code>-1</code> if unknown.
+     */
+    static int getJavaVersion(File javaHome) {
+        try {
+            for (String line : Files.readAllLines(new File(javaHome, "release").toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("JAVA_VERSION=")) {
+                    String version = line.substring("JAVA_VERSION=".length()).replace("\"", "");
+                    if (version.startsWith("1.")) {
+                        version = version.substring(2);
+                    }
+                    int end = 0;
+                    while (end < version.length() && Character.isDigit(version.charAt(end))) {
+                        end++;
+                    }
+                    return end > 0 ? Integer.parseInt(version.substring(0, end)) : -1;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // no release file
+        }
+        return -1;
+    }
+
+    private static final class Launcher {
+
+        private final File jar;
+
+        private final long stamp;
+
+        Launcher(File jar, long stamp) {
+            this.jar = jar;
+            this.stamp = stamp;
+        }
+    }
+}
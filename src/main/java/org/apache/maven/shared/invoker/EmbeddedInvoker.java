@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Invokes Maven inside the current JVM instead of forking a Maven process, which saves the JVM startup for short
+ * goals. Maven is booted from the <code>bin/m2.conf</code> of its installation into isolated ClassWorlds realms, which
+ * are cached per Maven home and reused by later invocations until {@link #dispose()} is called. The output of Maven is
+ * passed line by line to the configured output and error handlers.
+ * <p>
+ * Maven reads its configuration from the system properties of the JVM, so embedded invocations are serialized for the
+ * whole JVM. A request is forked as usual if it needs a separate process: if it sets a Java home, Maven options, shell
+ * environment variables or a timeout, if it is interactive with an input stream, or if the Maven executable is not the
+ * <code>mvn</code> script of a Maven installation, e.g. a Maven wrapper.
+ *
+ * @since 3.4.0
+ */
+@Named(EmbeddedInvoker.ROLE_HINT)
+@Singleton
+public class EmbeddedInvoker extends DefaultInvoker {
+    /** Constant <code>ROLE_HINT="embedded"</code> */
+    public static final String ROLE_HINT = "embedded";
+
+    private final Map<File, EmbeddedMaven> embeddedMavens = new HashMap<>();
+
+    /** {@inheritDoc} */
+    @Override
+    InvocationResult executeCommandLine(Commandline cli, InvocationRequest request) {
+        File mavenHome = canEmbed(request) ? findEmbeddableMavenHome(cli) : null;
+
+        EmbeddedMaven embeddedMaven = null;
+
+        if (mavenHome != null) {
+            try {
+                embeddedMaven = getEmbeddedMaven(mavenHome);
+            } catch (IOException | ReflectiveOperationException | RuntimeException | LinkageError e) {
+                getLogger().warn("Failed to boot embedded Maven from: '" + mavenHome + "', forking Maven.", e);
+            }
+        }
+
+        if (embeddedMaven == null) {
+            return super.executeCommandLine(cli, request);
+        }
+
+        return executeEmbedded(embeddedMaven, cli, request);
+    }
+
+    private InvocationResult executeEmbedded(EmbeddedMaven embeddedMaven, Commandline cli, InvocationRequest request) {
+        DefaultInvocationResult result = new DefaultInvocationResult();
+
+        if (getLogger().isDebugEnabled()) {
+            getLogger().debug("Executing embedded: " + cli);
+        }
+
+        File workingDirectory = cli.getWorkingDirectory();
+        if (workingDirectory == null) {
+            workingDirectory = new File(System.getProperty("user.dir"));
+        }
+
+        File buildEvents;
+        try {
+            buildEvents = addBuildEventsFile(cli, request);
+        } catch (CommandLineException e) {
+            result.setExecutionException(e);
+            return result;
+        }
+
+        ByteOutputHandlerStream out = new ByteOutputHandlerStream(getByteOutputHandler(request, result));
+        ByteOutputHandlerStream err = new ByteOutputHandlerStream(getByteErrorHandler(request, result));
+
+        try (PrintStream stdout = new PrintStream(out, true);
+                PrintStream stderr = new PrintStream(err, true)) {
+            result.setExitCode(
+                    embeddedMaven.run(cli.getArguments(), workingDirectory.getAbsoluteFile(), stdout, stderr));
+        } catch (InvocationTargetException e) {
+            result.setExecutionException(new CommandLineException("Error executing embedded Maven", e.getCause()));
+        } catch (IllegalAccessException e) {
+            result.setExecutionException(new CommandLineException("Error executing embedded Maven", e));
+        } finally {
+            readBuildEvents(buildEvents, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Tells whether the request can run inside this JVM, i.e. does not need a separate process.
+     */
+    boolean canEmbed(InvocationRequest request) {
+        return request.getJavaHome() == null
+                && request.getMavenOpts() == null
+                && request.getShellEnvironments().isEmpty()
+                && request.isShellEnvironmentInherited()
+                && request.getTimeoutInSeconds() <= 0
+                && request.getOutputRedirect() == null
+                && request.getErrorRedirect() == null
+                && (request.isBatchMode() || getInputStream(request) == null);
+    }
+
+    /**
+     * Finds the Maven installation whose <code>mvn</code> script is the executable of the given command line.
+     *
+     * @return The base directory of the Maven installation or <code>null</code> if the executable is not part of a
+     *         Maven installation.
+     */
+    static File findEmbeddableMavenHome(Commandline cli) {
+        if (cli.getExecutable() == null) {
+            return null;
+        }
+
+        File binDirectory = new File(unquote(cli.getExecutable())).getParentFile();
+        if (binDirectory == null || !"bin".equals(binDirectory.getName())) {
+            return null;
+        }
+
+        File mavenHome = binDirectory.getParentFile();
+        if (mavenHome == null
+                || !new File(binDirectory, "m2.conf").isFile()
+                || !new File(mavenHome, "boot").isDirectory()) {
+            return null;
+        }
+
+        return mavenHome;
+    }
+
+    /**
+     * Reverts the quoting of the executable by the Bourne shell of a command line, e.g.
+     * <code>'/opt/maven/bin/mvn'</code>.
+     */
+    static String unquote(String executable) {
+        if (executable.length() >= 2 && executable.startsWith("'") && executable.endsWith("'")) {
+            return executable.substring(1, executable.length() - 1).replace("'\"'\"'", "'");
+        }
+        return executable;
+    }
+
+    private EmbeddedMaven getEmbeddedMaven(File mavenHome) throws IOException, ReflectiveOperationException {
+        File key = mavenHome.getCanonicalFile();
+
+        synchronized (embeddedMavens) {
+            EmbeddedMaven embeddedMaven = embeddedMavens.get(key);
+
+            if (embeddedMaven == null) {
+                getLogger().debug("Booting embedded Maven from: '" + key + "'.");
+
+                embeddedMaven = EmbeddedMaven.boot(key);
+                embeddedMavens.put(key, embeddedMaven);
+            }
+
+            return embeddedMaven;
+        }
+    }
+
+    /**
+     * Disposes the cached Maven realms and releases their class loaders. Later invocations boot Maven again.
+     */
+    public void dispose() {
+        List<EmbeddedMaven> disposed;
+
+        synchronized (embeddedMavens) {
+            disposed = new ArrayList<>(embeddedMavens.values());
+            embeddedMavens.clear();
+        }
+
+        for (EmbeddedMaven embeddedMaven : disposed) {
+            embeddedMaven.dispose();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Maven booted from a Maven installation inside this JVM. Like the <code>mvn</code> script, this loads the ClassWorlds
+ * launcher from <code>boot</code> and lets it create the realms described by <code>bin/m2.conf</code>, so the classes
+ * of Maven are isolated from the classes of the calling application.
+ * <p>
+ * Maven reads its configuration from, and writes user properties to, the system properties of the JVM. Booting and
+ * running Maven is therefore serialized for all instances, and the system properties are restored afterwards.
+ * <p>
+ * This class only depends on the JDK so it can also be used in a JVM started with nothing but the invoker classes on
+ * its class path.
+ */
+final class EmbeddedMaven {
+
+    private static final Object LOCK = new Object();
+
+    private final File mavenHome;
+
+    private final URLClassLoader bootLoader;
+
+    private final Object classWorld;
+
+    private final Object mavenCli;
+
+    private final Method doMain;
+
+    private EmbeddedMaven(
+            File mavenHome, URLClassLoader bootLoader, Object classWorld, Object mavenCli, Method doMain) {
+        this.mavenHome = mavenHome;
+        this.bootLoader = bootLoader;
+        this.classWorld = classWorld;
+        this.mavenCli = mavenCli;
+        this.doMain = doMain;
+    }
+
+    /**
+     * Boots Maven from the given installation.
+     *
+     * @param mavenHome The base directory of the Maven installation, must not be <code>null</code>.
+     * @return The booted Maven, never <code>null</code>.
+     * @throws IOException if the installation lacks the ClassWorlds launcher or its configuration.
+     * @throws ReflectiveOperationException if the launcher or the Maven CLI cannot be initialized.
+     */
+    static EmbeddedMaven boot(File mavenHome) throws IOException, ReflectiveOperationException {
+        File bootDirectory = new File(mavenHome, "boot");
+        File[] bootJars = bootDirectory.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (bootJars == null || bootJars.length == 0) {
+            throw new IOException("ClassWorlds launcher not found in: '" + bootDirectory + "'");
+        }
+
+        URL[] urls = new URL[bootJars.length];
+        for (int i = 0; i < bootJars.length; i++) {
+            urls[i] = bootJars[i].toURI().toURL();
+        }
+
+        // isolated from the application class path, only the JDK classes are visible
+        URLClassLoader bootLoader =
+                new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+
+        synchronized (LOCK) {
+            Thread thread = Thread.currentThread();
+            ClassLoader contextClassLoader = thread.getContextClassLoader();
+            Properties systemProperties = System.getProperties();
+
+            try {
+                // m2.conf refers to ${maven.home} and sets maven.conf
+                Properties properties = copy(systemProperties);
+                properties.setProperty("maven.home", mavenHome.getPath());
+                System.setProperties(properties);
+
+                thread.setContextClassLoader(bootLoader);
+
+                Class<?> launcherClass = bootLoader.loadClass("org.codehaus.plexus.classworlds.launcher.Launcher");
+                Object launcher = launcherClass.getConstructor().newInstance();
+
+                try (InputStream config = new FileInputStream(new File(mavenHome, "bin/m2.conf"))) {
+                    launcherClass.getMethod("configure", InputStream.class).invoke(launcher, config);
+                }
+
+                Object classWorld = launcherClass.getMethod("getWorld").invoke(launcher);
+                Class<?> cliClass =
+                        (Class<?>) launcherClass.getMethod("getMainClass").invoke(launcher);
+                Object mavenCli = cliClass.getConstructor(classWorld.getClass()).newInstance(classWorld);
+                Method doMain = cliClass.getMethod(
+                        "doMain", String[].class, String.class, PrintStream.class, PrintStream.class);
+
+                return new EmbeddedMaven(mavenHome, bootLoader, classWorld, mavenCli, doMain);
+            } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+                bootLoader.close();
+                throw e;
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+                System.setProperties(systemProperties);
+            }
+        }
+    }
+
+    /**
+     * Runs Maven with the given arguments, like the <code>mvn</code> script started in the given directory.
+     *
+     * @param args The command line arguments, must not be <code>null</code>.
+     * @param workingDirectory The directory to run Maven in, must not be <code>null</code>.
+     * @param out The stream receiving the standard output of Maven, must not be <code>null</code>.
+     * @param err The stream receiving the error output of Maven, must not be <code>null</code>.
+     * @return The exit code of Maven.
+     * @throws InvocationTargetException if Maven failed with an exception.
+     * @throws IllegalAccessException if the Maven CLI cannot be called.
+     */
+    int run(String[] args, File workingDirectory, PrintStream out, PrintStream err)
+            throws InvocationTargetException, IllegalAccessException {
+        synchronized (LOCK) {
+            Thread thread = Thread.currentThread();
+            ClassLoader contextClassLoader = thread.getContextClassLoader();
+            Properties systemProperties = System.getProperties();
+
+            try {
+                Properties properties = copy(systemProperties);
+                properties.setProperty("maven.home", mavenHome.getPath());
+                properties.setProperty("maven.conf", new File(mavenHome, "conf").getPath());
+                properties.setProperty("library.jansi.path", new File(mavenHome, "lib/jansi-native").getPath());
+                properties.setProperty("user.dir", workingDirectory.getPath());
+                properties.setProperty(
+                        "maven.multiModuleProjectDirectory",
+                        findMultiModuleProjectDirectory(workingDirectory).getPath());
+                System.setProperties(properties);
+
+                thread.setContextClassLoader(mavenCli.getClass().getClassLoader());
+
+                Object exitCode = doMain.invoke(mavenCli, args, workingDirectory.getPath(), out, err);
+
+                return ((Number) exitCode).intValue();
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+                System.setProperties(systemProperties);
+            }
+        }
+    }
+
+    /**
+     * Disposes the realms of this Maven and closes its boot class loader.
+     */
+    void dispose() {
+        synchronized (LOCK) {
+            try {
+                Method getRealms = classWorld.getClass().getMethod("getRealms");
+                Method disposeRealm = classWorld.getClass().getMethod("disposeRealm", String.class);
+
+                for (Object realm : new ArrayList<>((Collection<?>) getRealms.invoke(classWorld))) {
+                    Object id = realm.getClass().getMethod("getId").invoke(realm);
+                    disposeRealm.invoke(classWorld, id);
+                }
+            } catch (ReflectiveOperationException e) {
+                // best effort, the realms are garbage once unreferenced
+            }
+
+            try {
+                bootLoader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    File getMavenHome() {
+        return mavenHome;
+    }
+
+    /**
+     * Finds the directory of the project like the <code>mvn</code> script: the closest directory containing a
+     * <code>.mvn</code> directory, or the working directory itself.
+     */
+    static File findMultiModuleProjectDirectory(File workingDirectory) {
+        for (File dir = workingDirectory; dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, ".mvn").isDirectory()) {
+                return dir;
+            }
+        }
+        return workingDirectory;
+    }
+
+    private static Properties copy(Properties properties) {
+        Properties copy = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            copy.setProperty(name, properties.getProperty(name));
+        }
+        return copy;
+    }
+}
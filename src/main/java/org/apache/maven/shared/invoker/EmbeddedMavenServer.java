@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Main class of a warm Maven JVM started by {@link PooledInvoker}. It boots Maven once from the Maven home given as
+ * the first argument and then runs the requests it receives one after the other, until the invoker closes the
+ * connection.
+ * <p>
+ * Requests and responses are exchanged as frames over a loopback socket connected to the port given as the second
+ * argument, so that output written directly to the standard streams of the process, e.g. by the JVM or by native code,
+ * cannot corrupt them. The connection starts with the token read from the standard input. A request consists of the
+ * number of arguments, the arguments and the working directory. The response consists of {@link #OUT} and
+ * {@link #ERR} frames carrying the output of Maven, an {@link #EXIT} or {@link #ERROR} frame and finally a
+ * {@link #STATS} frame with the heap retained after the last garbage collection.
+ * <p>
+ * Like {@link EmbeddedMaven}, this class only depends on the JDK.
+ */
+final class EmbeddedMavenServer {
+
+    /** Frame with bytes of the standard output: length, bytes. */
+    static final int OUT = 1;
+
+    /** Frame with bytes of the error output: length, bytes. */
+    static final int ERR = 2;
+
+    /** Frame telling that Maven has been booted, without payload. */
+    static final int READY = 3;
+
+    /** Frame telling that Maven failed to boot: message. */
+    static final int FAILED = 4;
+
+    /** Frame with the exit code of a request: exit code. */
+    static final int EXIT = 5;
+
+    /** Frame telling that a request failed with an exception: message. */
+    static final int ERROR = 6;
+
+    /** Frame closing the response to a request: retained heap in bytes. */
+    static final int STATS = 7;
+
+    private final DataOutputStream frames;
+
+    private EmbeddedMavenServer(DataOutputStream frames) {
+        this.frames = frames;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String token = new DataInputStream(System.in).readUTF();
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]));
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream frames = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        frames.writeUTF(token);
+        frames.flush();
+
+        EmbeddedMavenServer server = new EmbeddedMavenServer(frames);
+
+        // the output of Maven is passed to the invoker per request, Maven must neither read nor write the standard
+        // streams directly
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(server.new FrameOutputStream(OUT), true));
+        System.setErr(new PrintStream(server.new FrameOutputStream(ERR), true));
+
+        EmbeddedMaven embeddedMaven;
+        try {
+            embeddedMaven = EmbeddedMaven.boot(new File(args[0]));
+        } catch (IOException | ReflectiveOperationException | RuntimeException | LinkageError e) {
+            server.writeMessage(FAILED, stackTrace(e));
+            return;
+        }
+        server.writeFrame(READY);
+
+        while (true) {
+            String[] mavenArgs;
+            File workingDirectory;
+            try {
+                mavenArgs = new String[requests.readInt()];
+                for (int i = 0; i < mavenArgs.length; i++) {
+                    mavenArgs[i] = readString(requests);
+                }
+                workingDirectory = new File(readString(requests));
+            } catch (EOFException e) {
+                // the invoker has released this JVM
+                return;
+            }
+
+            server.run(embeddedMaven, mavenArgs, workingDirectory);
+        }
+    }
+
+    private void run(EmbeddedMaven embeddedMaven, String[] args, File workingDirectory) throws IOException {
+        try (PrintStream out = new PrintStream(new FrameOutputStream(OUT), true);
+                PrintStream err = new PrintStream(new FrameOutputStream(ERR), true)) {
+            int exitCode = embeddedMaven.run(args, workingDirectory, out, err);
+            out.flush();
+            err.flush();
+            synchronized (frames) {
+                frames.writeByte(EXIT);
+                frames.writeInt(exitCode);
+            }
+        } catch (InvocationTargetException e) {
+            writeMessage(ERROR, stackTrace(e.getCause()));
+        } catch (IllegalAccessException | RuntimeException | LinkageError e) {
+            writeMessage(ERROR, stackTrace(e));
+        }
+
+        synchronized (frames) {
+            frames.writeByte(STATS);
+            frames.writeLong(retainedHeap());
+            frames.flush();
+        }
+    }
+
+    private void writeFrame(int type) throws IOException {
+        synchronized (frames) {
+            frames.writeByte(type);
+            frames.flush();
+        }
+    }
+
+    private void writeMessage(int type, String message) throws IOException {
+        synchronized (frames) {
+            frames.writeByte(type);
+            writeString(frames, message);
+            frames.flush();
+        }
+    }
+
+    /**
+     * Gets the heap retained after the last garbage collection, which unlike the current heap usage does not
+     * fluctuate with the garbage of the last request.
+     */
+    private static long retainedHeap() {
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null) {
+                    retained += usage.getUsed();
+                }
+            }
+        }
+        return retained;
+    }
+
+    private static String stackTrace(Throwable t) {
+        StringWriter writer = new StringWriter();
+        t.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the bytes written to it as frames of the given type.
+     */
+    private final class FrameOutputStream extends OutputStream {
+
+        private final int type;
+
+        FrameOutputStream(int type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                synchronized (frames) {
+                    frames.writeByte(type);
+                    frames.writeInt(len);
+                    frames.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (frames) {
+                frames.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the cached invocations as compressed files in a directory, one file per fingerprint. Loading an invocation
+ * marks its file as recently used; after each save, the least recently used files are deleted until the store holds
+ * at most the configured number of entries and bytes.
+ * <p>
+ * The directory may be shared by several stores, e.g. of different JVMs, in which case the limits are applied by each
+ * of them.
+ *
+ * @since 3.4.0
+ */
+public class FileInvocationResultStore implements InvocationResultStore {
+
+    private static final String EXTENSION = ".result";
+
+    private static final int VERSION = 1;
+
+    private final File directory;
+
+    private int maxEntries = 1000;
+
+    private long maxSize = 256L * 1024 * 1024;
+
+    /**
+     * Creates a store in the given directory, which is created on first save.
+     *
+     * @param directory The directory storing the invocations, must not be <code>null</code>.
+     */
+    public FileInvocationResultStore(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("missing directory");
+        }
+        this.directory = directory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CachedInvocation load(String fingerprint) throws IOException {
+        File file = getFile(fingerprint);
+
+        CachedInvocation invocation;
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            byte[] output = new byte[in.readInt()];
+            in.readFully(output);
+            byte[] error = new byte[in.readInt()];
+            in.readFully(error);
+            invocation = new CachedInvocation(output, error);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        return invocation;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void save(String fingerprint, CachedInvocation invocation) throws IOException {
+        File file = getFile(fingerprint);
+        File temporary = new File(directory, file.getName() + '.' + UUID.randomUUID() + ".tmp");
+
+        Files.createDirectories(directory.toPath());
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temporary))))) {
+                out.writeInt(VERSION);
+                out.writeInt(invocation.getOutput().length);
+                out.write(invocation.getOutput());
+                out.writeInt(invocation.getError().length);
+                out.write(invocation.getError());
+            }
+
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used files exceeding the limits of this store.
+     */
+    private synchronized void evict() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+
+        long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(
+                order, Comparator.comparingLong((Integer i) -> lastModified[i]).reversed());
+
+        int entries = 0;
+        long size = 0;
+        for (int i : order) {
+            entries++;
+            size += files[i].length();
+            if (entries > maxEntries || size > maxSize) {
+                files[i].delete();
+            }
+        }
+    }
+
+    private File getFile(String fingerprint) {
+        return new File(directory, fingerprint + EXTENSION);
+    }
+
+    /**
+     * Gets the directory storing the invocations.
+     *
+     * @return The directory storing the invocations, never <code>null</code>.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the maximum number of stored invocations.
+     *
+     * @return The maximum number of stored invocations.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of stored invocations. Defaults to 1000.
+     *
+     * @param maxEntries The maximum number of stored invocations, must be positive.
+     * @return This store.
+     */
+    public FileInvocationResultStore setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of bytes of the stored files.
+     *
+     * @return The maximum size of the store in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of bytes of the stored files. Defaults to 256 MiB.
+     *
+     * @param maxSize The maximum size of the store in bytes, must be positive.
+     * @return This store.
+     */
+    public FileInvocationResultStore setMaxSize(long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+}
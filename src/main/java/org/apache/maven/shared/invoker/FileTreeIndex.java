@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Computes the hash of the contents of a directory tree incrementally. The index records the size, modification time,
+ * file key (e.g. the inode) and content hash of every regular file below its root, and only hashes the contents of the
+ * files whose size, modification time or file key changed since the last computation. Symbolic links are followed,
+ * skipping links to a directory containing them; for a link which cannot be followed, the path it points to is hashed.
+ * Files modified shortly before they were hashed are hashed again next time, since a later change might not alter their
+ * modification time.
+ * <p>
+ * The index may be persisted in a file, so that another JVM can reuse the hashes of the unchanged files. In addition,
+ * the index can {@link #watch() watch} the tree for changes, in which case computing the hash of an unchanged tree
+ * does not even list its directories. A change is only noticed once reported by the watch service of the file system,
+ * which some platforms delay by seconds.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @since 3.4.0
+ */
+public class FileTreeIndex implements Closeable {
+
+    private static final int VERSION = 2;
+
+    /**
+     * The time in milliseconds within which a modification of a hashed file might not have changed its modification
+     * time.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
+    private final Path root;
+
+    private final Set<String> excludes;
+
+    private final File indexFile;
+
+    /**
+     * The entries of the files by their paths relative to the root, <code>null</code> until the index is loaded.
+     */
+    private Map<String, Entry> entries;
+
+    private String hash;
+
+    /**
+     * Whether the index file needs to be written even if no file changed, e.g. because it could not be read.
+     */
+    private boolean indexFileStale;
+
+    private WatchService watchService;
+
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+
+    /**
+     * Creates an index of the given directory tree.
+     *
+     * @param root The root directory of the tree, must not be <code>null</code>.
+     * @param excludes The names of the directories and files not hashed, e.g. <code>target</code>, may be
+     *            <code>null</code> to hash all files. They are only excluded in the root and in the directories of
+     *            Maven modules, i.e. containing a <code>pom.xml</code>, so that e.g.
+     *            <code>src/test/resources/target</code> is still hashed.
+     * @param indexFile The file persisting the index, may be <code>null</code> to keep the index in memory only.
+     */
+    public FileTreeIndex(File root, Collection<String> excludes, File indexFile) {
+        if (root == null) {
+            throw new NullPointerException("missing root");
+        }
+        this.root = root.getAbsoluteFile().toPath();
+        this.excludes =
+                excludes != null ? Collections.unmodifiableSet(new TreeSet<>(excludes)) : Collections.emptySet();
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Gets the root directory of the tree.
+     *
+     * @return The root directory, never <code>null</code>.
+     */
+    public File getRoot() {
+        return root.toFile();
+    }
+
+    /**
+     * Gets the names of the directories and files not hashed in the root and in the directories of Maven modules.
+     *
+     * @return The unmodifiable names of the excluded directories and files, never <code>null</code>.
+     */
+    public Set<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Computes the hash of the relative paths and contents of the regular files in the tree, updating the index and
+     * its file.
+     *
+     * @return The SHA-256 hash of the tree as hexadecimal string, never <code>null</code>.
+     * @throws IOException if the tree cannot be read.
+     */
+    public synchronized String getHash() throws IOException {
+        if (watchService != null && hash != null && !pollChanges()) {
+            return hash;
+        }
+
+        if (entries == null) {
+            entries = load();
+        }
+
+        Map<String, Entry> previous = entries;
+        Map<String, Entry> current = new TreeMap<>();
+        boolean[] modified = {false};
+
+        Files.walkFileTree(
+                root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        if (!dir.equals(root) && isExcluded(dir)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        // registered before listing the directory, so that no later change is missed
+                        if (watchService != null && !watchKeys.containsKey(dir)) {
+                            watchKeys.put(
+                                    dir,
+                                    dir.register(
+                                            watchService,
+                                            StandardWatchEventKinds.ENTRY_CREATE,
+                                            StandardWatchEventKinds.ENTRY_DELETE,
+                                            StandardWatchEventKinds.ENTRY_MODIFY));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (!(attrs.isRegularFile() || attrs.isSymbolicLink()) || isExcluded(file)) {
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+                        long size = attrs.size();
+                        long lastModified = attrs.lastModifiedTime().toMillis();
+                        String fileKey =
+                                attrs.fileKey() != null ? attrs.fileKey().toString() : "";
+
+                        Entry entry = previous.get(path);
+                        if (entry == null || !entry.matches(size, lastModified, fileKey)) {
+                            long hashed = System.currentTimeMillis();
+                            try {
+                                // a symbolic link which cannot be followed, e.g. a dangling one
+                                byte[] contentHash = attrs.isSymbolicLink() ? hashLink(file) : hash(file);
+                                entry = new Entry(size, lastModified, fileKey, contentHash, hashed);
+                            } catch (NoSuchFileException e) {
+                                // deleted meanwhile
+                                return FileVisitResult.CONTINUE;
+                            }
+                            modified[0] = true;
+                        }
+                        current.put(path, entry);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (exc instanceof NoSuchFileException || exc instanceof FileSystemLoopException) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        throw exc;
+                    }
+                });
+
+        if (modified[0] || indexFileStale || !current.keySet().equals(previous.keySet())) {
+            entries = current;
+            save();
+        }
+
+        MessageDigest digest = newDigest();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(entry.getValue().hash);
+        }
+        hash = toHex(digest.digest());
+        return hash;
+    }
+
+    /**
+     * Tells whether the given directory or file below the root is excluded, i.e. has an excluded name and is located
+     * in the root or in the directory of a Maven module.
+     */
+    private boolean isExcluded(Path path) {
+        if (!excludes.contains(path.getFileName().toString())) {
+            return false;
+        }
+        Path parent = path.getParent();
+        return parent.equals(root) || Files.isRegularFile(parent.resolve("pom.xml"));
+    }
+
+    /**
+     * Gets the number of files in the index, as of the last computation of the hash.
+     *
+     * @return The number of indexed files.
+     */
+    public synchronized int size() {
+        return entries != null ? entries.size() : 0;
+    }
+
+    /**
+     * Watches the tree for changes from now on, so that the hash of an unchanged tree is computed without listing its
+     * directories. Watching ends when this index is closed.
+     *
+     * @throws IOException if the tree cannot be watched.
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService == null) {
+            watchService = root.getFileSystem().newWatchService();
+            // the directories are registered by the next walk
+            hash = null;
+        }
+    }
+
+    /**
+     * Tells whether the tree is watched for changes.
+     *
+     * @return <code>true</code> if the tree is watched, <code>false</code> otherwise.
+     */
+    public synchronized boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * Stops watching the tree. The index remains usable.
+     *
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } finally {
+                watchService = null;
+                watchKeys.clear();
+            }
+        }
+    }
+
+    /**
+     * Drains the events of the watch service.
+     *
+     * @return <code>true</code> if anything changed in the tree, <code>false</code> otherwise.
+     */
+    private boolean pollChanges() {
+        boolean changed = false;
+        for (WatchKey key; (key = watchService.poll()) != null; ) {
+            changed = true;
+            key.pollEvents();
+            if (!key.reset()) {
+                watchKeys.values().remove(key);
+            }
+        }
+        return changed;
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static byte[] hashLink(Path link) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(Files.readSymbolicLink(link).toString().getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Reads the entries from the index file, if it was written for the same root and excludes. An index file which
+     * cannot be read, e.g. because it is corrupt, is treated as empty and rewritten.
+     */
+    private Map<String, Entry> load() {
+        Map<String, Entry> loaded = new TreeMap<>();
+        if (indexFile == null) {
+            return loaded;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != VERSION
+                    || !in.readUTF().equals(root.toString())
+                    || !in.readUTF().equals(String.join("/", excludes))) {
+                return loaded;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String fileKey = in.readUTF();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                loaded.put(path, new Entry(size, lastModified, fileKey, hash, in.readLong()));
+            }
+        } catch (FileNotFoundException e) {
+            // not yet written
+        } catch (IOException e) {
+            loaded.clear();
+            indexFileStale = true;
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes the entries to the index file, if any, omitting the entries which need to be hashed again anyway.
+     */
+    private void save() throws IOException {
+        if (indexFile == null) {
+            return;
+        }
+
+        File temporary = new File(indexFile.getPath() + '.' + UUID.randomUUID() + ".tmp");
+        Files.createDirectories(indexFile.getAbsoluteFile().getParentFile().toPath());
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                out.writeInt(VERSION);
+                out.writeUTF(root.toString());
+                out.writeUTF(String.join("/", excludes));
+                int count = 0;
+                for (Entry entry : entries.values()) {
+                    count += entry.isRacy() ? 0 : 1;
+                }
+                out.writeInt(count);
+                for (Map.Entry<String, Entry> file : entries.entrySet()) {
+                    Entry entry = file.getValue();
+                    if (!entry.isRacy()) {
+                        out.writeUTF(file.getKey());
+                        out.writeLong(entry.size);
+                        out.writeLong(entry.lastModified);
+                        out.writeUTF(entry.fileKey);
+                        out.writeByte(entry.hash.length);
+                        out.write(entry.hash);
+                        out.writeLong(entry.hashed);
+                    }
+                }
+            }
+
+            try {
+                Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            indexFileStale = false;
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * The state of a file when its content was hashed.
+     */
+    private static final class Entry {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String fileKey;
+
+        private final byte[] hash;
+
+        /**
+         * The time when the content was hashed.
+         */
+        private final long hashed;
+
+        Entry(long size, long lastModified, String fileKey, byte[] hash, long hashed) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+            this.hashed = hashed;
+        }
+
+        boolean matches(long size, long lastModified, String fileKey) {
+            return this.size == size && this.lastModified == lastModified && this.fileKey.equals(fileKey) && !isRacy();
+        }
+
+        /**
+         * Tells whether the file was modified so shortly before it was hashed that a later modification might have
+         * kept the modification time.
+         */
+        boolean isRacy() {
+            return lastModified > hashed - RACY_INTERVAL;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Computes the fingerprint of a Maven invocation for {@link CachingInvoker}: a SHA-256 hash of the rendered command
+ * line, its working directory, the environment variables set by the command line builder, the inherited variables
+ * that select and configure Maven and Java, e.g. <code>PATH</code> and <code>JAVA_TOOL_OPTIONS</code>, the Maven
+ * executable and the hash of the project directory.
+ */
+class InvocationFingerprint {
+
+    /**
+     * The inherited environment variables which are relevant for the result of a build.
+     */
+    private static final List<String> INHERITED_VARIABLES =
+            Arrays.asList("JAVA_HOME", "PATH", "JAVA_TOOL_OPTIONS", "MAVEN_OPTS", "MAVEN_ARGS");
+
+    private final MessageDigest digest;
+
+    private InvocationFingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the given command line.
+     *
+     * @param cli The command line rendered for the invocation, must not be <code>null</code>.
+     * @param treeHash The hash of the files of the project directory, as computed by {@link FileTreeIndex}, must not be
+     *            <code>null</code>.
+     * @return The fingerprint as hexadecimal string, never <code>null</code>.
+     */
+    static String compute(Commandline cli, String treeHash) {
+        InvocationFingerprint fingerprint = new InvocationFingerprint();
+
+        File executable = new File(cli.getExecutable().replace("\"", "").replace("'", ""));
+        fingerprint.add("executable", executable.getPath(), executable.lastModified(), executable.length());
+        fingerprint.add("arguments", (Object[]) cli.getArguments());
+        fingerprint.add("directory", cli.getWorkingDirectory());
+
+        // without the inherited variables, only the ones added by the builder are returned
+        boolean shellEnvironmentInherited = cli.isShellEnvironmentInherited();
+        cli.setShellEnvironmentInherited(false);
+        String[] environment = cli.getEnvironmentVariables();
+        cli.setShellEnvironmentInherited(shellEnvironmentInherited);
+
+        Arrays.sort(environment);
+        fingerprint.add("environment", (Object[]) environment);
+        if (shellEnvironmentInherited) {
+            for (String name : INHERITED_VARIABLES) {
+                fingerprint.add("inherited", name, System.getenv(name));
+            }
+        }
+
+        fingerprint.add("tree", treeHash);
+
+        return fingerprint.toHex();
+    }
+
+    /**
+     * Hashes the given values, e.g. to derive the name of a file from a path.
+     *
+     * @param values The values to hash, must not be <code>null</code>.
+     * @return The SHA-256 hash as hexadecimal string, never <code>null</code>.
+     */
+    static String hash(String... values) {
+        InvocationFingerprint fingerprint = new InvocationFingerprint();
+        fingerprint.add("values", (Object[]) values);
+        return fingerprint.toHex();
+    }
+
+    private void add(String name, Object... values) {
+        update(name);
+        for (Object value : values) {
+            update(String.valueOf(value));
+        }
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private String toHex() {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
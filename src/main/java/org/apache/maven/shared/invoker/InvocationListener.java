@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+/**
+ * Receives the completion of the single requests of a batch executed by {@link BatchInvoker}.
+ *
+ * @since 3.4.0
+ */
+@FunctionalInterface
+public interface InvocationListener {
+
+    /**
+     * Notifies the completion of a request. This method is called by the thread completing the request and should
+     * return quickly. An exception thrown by this method does not affect the batch.
+     *
+     * @param request The completed request, never <code>null</code>.
+     * @param result The result of the request, <code>null</code> if the request failed.
+     * @param failure The reason why the request failed, e.g. a {@link MavenInvocationException} or a
+     *            {@link java.util.concurrent.CancellationException}, <code>null</code> if it has a result.
+     */
+    void invocationCompleted(InvocationRequest request, InvocationResult result, Throwable failure);
+}
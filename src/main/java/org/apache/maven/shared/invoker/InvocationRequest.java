@@ -190,6 +190,88 @@ public interface InvocationRequest {
      */
     InvocationOutputHandler getErrorHandler(InvocationOutputHandler defaultHandler);
 
+    /**
+     * Gets the handler used to capture the standard output from the Maven build as raw bytes. If set, it is used
+     * instead of the line oriented {@link #getOutputHandler(InvocationOutputHandler) output handler}.
+     *
+     * @return The byte output handler or <code>null</code> if not set.
+     * @since 3.4.0
+     */
+    ByteOutputHandler getByteOutputHandler();
+
+    /**
+     * Gets the handler used to capture the error output from the Maven build as raw bytes. If set, it is used instead
+     * of the line oriented {@link #getErrorHandler(InvocationOutputHandler) error handler}.
+     *
+     * @return The byte error handler or <code>null</code> if not set.
+     * @since 3.4.0
+     */
+    ByteOutputHandler getByteErrorHandler();
+
+    /**
+     * Gets the destination the standard output of the Maven process is redirected to, bypassing the output handlers.
+     *
+     * @return The redirection of the standard output or <code>null</code> if the output is passed to the handlers.
+     * @since 3.4.0
+     */
+    ProcessBuilder.Redirect getOutputRedirect();
+
+    /**
+     * Gets the destination the error output of the Maven process is redirected to, bypassing the error handlers.
+     *
+     * @return The redirection of the error output or <code>null</code> if the output is passed to the handlers.
+     * @since 3.4.0
+     */
+    ProcessBuilder.Redirect getErrorRedirect();
+
+    /**
+     * Gets the number of bytes kept from the end of each output stream of the Maven process.
+     *
+     * @return The size of the output tails in bytes, zero if no tails are kept.
+     * @since 3.4.0
+     */
+    int getOutputTailSize();
+
+    /**
+     * Indicates whether the standard output of the Maven process is parsed into a {@link BuildSummary}.
+     *
+     * @return <code>true</code> if the build summary is parsed, <code>false</code> otherwise.
+     * @since 3.4.0
+     */
+    boolean isBuildSummaryParsed();
+
+    /**
+     * Indicates whether the progress of the build is recorded by a build event spy loaded into Maven.
+     *
+     * @return <code>true</code> if the build events are recorded, <code>false</code> otherwise.
+     * @since 3.4.0
+     */
+    boolean isBuildEventsRecorded();
+
+    /**
+     * Indicates whether the resources used by the forked Maven process tree are measured.
+     *
+     * @return <code>true</code> if the resource usage is measured, <code>false</code> otherwise.
+     * @since 3.4.0
+     */
+    boolean isResourceUsageMeasured();
+
+    /**
+     * Gets the time the forked Maven process tree is given to terminate on timeout before it is killed.
+     *
+     * @return The grace period in seconds.
+     * @since 3.4.0
+     */
+    int getTimeoutGracePeriodInSeconds();
+
+    /**
+     * Indicates whether the threads of the Java processes of the forked Maven process tree are dumped on timeout.
+     *
+     * @return <code>true</code> if the threads are dumped on timeout, <code>false</code> otherwise.
+     * @since 3.4.0
+     */
+    boolean isThreadDumpedOnTimeout();
+
     /**
      * Gets the path to the POM for the Maven invocation. If no base directory is set, the parent directory of this POM
      * will be used as the working directory for the Maven invocation.
@@ -532,6 +614,128 @@ public interface InvocationRequest {
      */
     InvocationRequest setErrorHandler(InvocationOutputHandler errorHandler);
 
+    /**
+     * Sets the handler used to capture the standard output from the Maven build as raw bytes, which avoids decoding
+     * every line into a string. If set, the {@link #setOutputHandler(InvocationOutputHandler) output handler} is
+     * ignored.
+     *
+     * @param outputHandler The byte output handler, may be <code>null</code> to use the line oriented output handler.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setByteOutputHandler(ByteOutputHandler outputHandler);
+
+    /**
+     * Sets the handler used to capture the error output from the Maven build as raw bytes, which avoids decoding
+     * every line into a string. If set, the {@link #setErrorHandler(InvocationOutputHandler) error handler} is
+     * ignored.
+     *
+     * @param errorHandler The byte error handler, may be <code>null</code> to use the line oriented error handler.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setByteErrorHandler(ByteOutputHandler errorHandler);
+
+    /**
+     * Redirects the standard output of the Maven process, e.g. to a file with
+     * {@link ProcessBuilder.Redirect#to(File)} or {@link ProcessBuilder.Redirect#appendTo(File)}. The output is then
+     * written by the process itself instead of being read and forwarded by the invoker, and the
+     * {@link #setOutputHandler(InvocationOutputHandler) output handlers} are not used. Requests redirecting their
+     * output are always executed in a forked process.
+     *
+     * @param outputRedirect The redirection of the standard output, may be <code>null</code> to pass the output to the
+     *            handlers.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setOutputRedirect(ProcessBuilder.Redirect outputRedirect);
+
+    /**
+     * Redirects the error output of the Maven process, e.g. to a file with {@link ProcessBuilder.Redirect#to(File)}
+     * or {@link ProcessBuilder.Redirect#appendTo(File)}. The output is then written by the process itself instead of
+     * being read and forwarded by the invoker, and the {@link #setErrorHandler(InvocationOutputHandler) error
+     * handlers} are not used. Requests redirecting their output are always executed in a forked process.
+     *
+     * @param errorRedirect The redirection of the error output, may be <code>null</code> to pass the output to the
+     *            handlers.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setErrorRedirect(ProcessBuilder.Redirect errorRedirect);
+
+    /**
+     * Keeps the given number of bytes from the end of the standard and the error output of the Maven process, in
+     * addition to passing the output to the handlers. The tails are reported by
+     * {@link InvocationResult#getOutputTail()} and {@link InvocationResult#getErrorTail()}, e.g. to diagnose a failed
+     * build, while the memory used is bounded. Redirected output is not kept.
+     *
+     * @param outputTailSize The size of each output tail in bytes, zero to not keep the tails.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setOutputTailSize(int outputTailSize);
+
+    /**
+     * Parses the standard output of the Maven process while it is passed to the handlers, recognizing the start of
+     * the modules, the test summaries, the reactor summary and the build outcome. The parsed summary is reported by
+     * {@link InvocationResult#getBuildSummary()} without keeping the output. The summary is incomplete if the
+     * output is redirected or Maven runs in quiet mode.
+     *
+     * @param buildSummaryParsed <code>true</code> to parse the build summary, <code>false</code> otherwise.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setBuildSummaryParsed(boolean buildSummaryParsed);
+
+    /**
+     * Loads an event spy into Maven, using the <code>maven.ext.class.path</code> property, that records the start
+     * and end of the modules and mojo executions in a compact binary form. The recorded events are reported by
+     * {@link InvocationResult#getBuildSummary()} in place of a parsed summary, including failures and mojo timings but
+     * no test summaries. Unlike parsing, recording neither depends on the format nor on the verbosity of the output.
+     *
+     * @param buildEventsRecorded <code>true</code> to record the build events, <code>false</code> otherwise.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setBuildEventsRecorded(boolean buildEventsRecorded);
+
+    /**
+     * Measures the wall time of the forked Maven process and, on Linux, samples the CPU times, the resident memory and
+     * the storage I/O of the process and its descendants from <code>/proc</code> while it runs. The measurement is
+     * reported by {@link InvocationResult#getResourceUsage()}, e.g. to size the parallelism of the invocations or the
+     * Maven options from data. Invocations running Maven inside the current or a pooled JVM are not measured.
+     *
+     * @param resourceUsageMeasured <code>true</code> to measure the resource usage, <code>false</code> otherwise.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setResourceUsageMeasured(boolean resourceUsageMeasured);
+
+    /**
+     * Sets the time the forked Maven process tree is given to terminate on timeout. When the timeout set by
+     * {@link #setTimeoutInSeconds(int)} elapses, the Maven process and its descendants, e.g. the JVM started by the
+     * <code>mvn</code> script and the JVMs forked by Surefire, are requested to terminate, e.g. with
+     * <code>SIGTERM</code>, and those still alive after the grace period are killed. Defaults to 5 seconds. The
+     * descendants are only found on Linux, or on every platform with Java 21+.
+     *
+     * @param timeoutGracePeriodInSeconds The grace period in seconds, a value less than or equal to zero to kill the
+     *            process tree immediately.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setTimeoutGracePeriodInSeconds(int timeoutGracePeriodInSeconds);
+
+    /**
+     * Dumps the threads of the Java processes of the forked Maven process tree with the <code>jcmd</code> tool of the
+     * current JDK when the timeout set by {@link #setTimeoutInSeconds(int)} elapses, before the process tree is
+     * terminated. The thread dumps are reported by {@link InvocationResult#getThreadDump()}.
+     *
+     * @param threadDumpedOnTimeout <code>true</code> to dump the threads on timeout, <code>false</code> otherwise.
+     * @return This invocation request.
+     * @since 3.4.0
+     */
+    InvocationRequest setThreadDumpedOnTimeout(boolean threadDumpedOnTimeout);
+
     /**
      * Sets the path to the POM for the Maven invocation. If no base directory is set, the parent directory of this POM
      * will be used as the working directory for the Maven invocation.
@@ -42,4 +42,61 @@ public interface InvocationResult {
      * @return The exit code from the Maven invocation.
      */
     int getExitCode();
+
+    /**
+     * Gets the end of the standard output of the Maven invocation, as kept according to
+     * {@link InvocationRequest#setOutputTailSize(int)}.
+     *
+     * @return The last lines of the standard output or <code>null</code> if no tail was requested.
+     * @since 3.4.0
+     */
+    String getOutputTail();
+
+    /**
+     * Gets the end of the error output of the Maven invocation, as kept according to
+     * {@link InvocationRequest#setOutputTailSize(int)}.
+     *
+     * @return The last lines of the error output or <code>null</code> if no tail was requested.
+     * @since 3.4.0
+     */
+    String getErrorTail();
+
+    /**
+     * Gets the summary of the build recorded by a build event spy, as requested by
+     * {@link InvocationRequest#setBuildEventsRecorded(boolean)}, or else parsed from the standard output of the Maven
+     * invocation, as requested by {@link InvocationRequest#setBuildSummaryParsed(boolean)}.
+     *
+     * @return The build summary or <code>null</code> if no summary was requested or the recorded events could not be
+     *         read.
+     * @since 3.4.0
+     */
+    BuildSummary getBuildSummary();
+
+    /**
+     * Gets the resources used by the forked Maven process tree, as measured if requested by
+     * {@link InvocationRequest#setResourceUsageMeasured(boolean)}.
+     *
+     * @return The resource usage or <code>null</code> if no measurement was requested or no process was forked.
+     * @since 3.4.0
+     */
+    ResourceUsage getResourceUsage();
+
+    /**
+     * Indicates whether the Maven invocation timed out, as set by {@link InvocationRequest#setTimeoutInSeconds(int)},
+     * in which case the forked process tree was terminated and the execution exception reports the timeout.
+     *
+     * @return <code>true</code> if the invocation timed out, <code>false</code> otherwise.
+     * @since 3.4.0
+     */
+    boolean isTimedOut();
+
+    /**
+     * Gets the thread dumps of the Java processes that timed out, as requested by
+     * {@link InvocationRequest#setThreadDumpedOnTimeout(boolean)}.
+     *
+     * @return The thread dumps or <code>null</code> if the invocation did not time out, no thread dump was requested or
+     *         no thread could be dumped.
+     * @since 3.4.0
+     */
+    String getThreadDump();
 }
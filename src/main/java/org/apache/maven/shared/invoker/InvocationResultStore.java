@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.IOException;
+
+/**
+ * Stores the outputs of successful Maven invocations by the fingerprints computed by {@link CachingInvoker}.
+ * Implementations must be thread-safe and may evict entries at any time.
+ *
+ * @since 3.4.0
+ * @see FileInvocationResultStore
+ */
+public interface InvocationResultStore {
+
+    /**
+     * Loads the invocation stored for the given fingerprint.
+     *
+     * @param fingerprint The fingerprint of the invocation, never <code>null</code>.
+     * @return The stored invocation or <code>null</code> if none is stored.
+     * @throws IOException if the store cannot be read.
+     */
+    CachedInvocation load(String fingerprint) throws IOException;
+
+    /**
+     * Stores the given invocation for the given fingerprint, replacing any invocation stored for it.
+     *
+     * @param fingerprint The fingerprint of the invocation, never <code>null</code>.
+     * @param invocation The invocation to store, never <code>null</code>.
+     * @throws IOException if the store cannot be written.
+     */
+    void save(String fingerprint, CachedInvocation invocation) throws IOException;
+}
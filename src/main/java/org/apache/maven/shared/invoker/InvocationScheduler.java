@@ -0,0 +1,386 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Queues invocation requests and admits them to an {@link AsyncInvoker} only while the host has enough cores and
+ * memory left, so that many concurrent Maven builds do not oversubscribe the machine.
+ * <p>
+ * Each request is charged a number of cores derived from {@link InvocationRequest#getThreads()}, i.e. <code>4</code>
+ * costs four cores and <code>1C</code> one core per available processor, and the maximum heap size declared by the
+ * <code>-Xmx</code> option of its <code>MAVEN_OPTS</code>. Requests are admitted in submission order; a request whose
+ * cost exceeds a budget is admitted once no other request is running.
+ *
+ * @since 3.4.0
+ */
+public class InvocationScheduler {
+
+    private static final Pattern XMX_PATTERN = Pattern.compile("-Xmx(\\d+)([kKmMgGtT]?)");
+
+    private final AsyncInvoker invoker;
+
+    private final int coreBudget;
+
+    private final long memoryBudget;
+
+    private long defaultMemory;
+
+    private final Deque<ScheduledInvocation> queue = new ArrayDeque<>();
+
+    private int running;
+
+    private int usedCores;
+
+    private long usedMemory;
+
+    private boolean dispatching;
+
+    private boolean redispatch;
+
+    /**
+     * Creates a new scheduler that uses all available processors and does not limit memory.
+     *
+     * @param invoker The invoker to execute the admitted requests, must not be <code>null</code>.
+     */
+    public InvocationScheduler(AsyncInvoker invoker) {
+        this(invoker, Runtime.getRuntime().availableProcessors(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new scheduler with the given budgets.
+     *
+     * @param invoker The invoker to execute the admitted requests, must not be <code>null</code>.
+     * @param coreBudget The number of cores the running builds may use in total, must be positive.
+     * @param memoryBudget The number of bytes the heaps of the running builds may use in total, must be positive.
+     */
+    public InvocationScheduler(AsyncInvoker invoker, int coreBudget, long memoryBudget) {
+        if (invoker == null) {
+            throw new NullPointerException("missing invoker");
+        }
+        if (coreBudget <= 0) {
+            throw new IllegalArgumentException("Core budget must be positive: " + coreBudget);
+        }
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+        }
+        this.invoker = invoker;
+        this.coreBudget = coreBudget;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Sets the number of bytes charged for a request whose <code>MAVEN_OPTS</code> do not declare <code>-Xmx</code>.
+     * By default, such requests are not charged any memory.
+     *
+     * @param defaultMemory The number of bytes to charge, must not be negative.
+     * @return This scheduler.
+     */
+    public InvocationScheduler setDefaultMemory(long defaultMemory) {
+        if (defaultMemory < 0) {
+            throw new IllegalArgumentException("Default memory must not be negative: " + defaultMemory);
+        }
+        this.defaultMemory = defaultMemory;
+        return this;
+    }
+
+    /**
+     * Queues the given request for execution. Cancelling the returned future removes a queued request from the
+     * queue and kills the Maven process of a running one.
+     *
+     * @param request The invocation request to execute, must not be <code>null</code>.
+     * @return A future completed with the result of the Maven invocation, never <code>null</code>.
+     */
+    public CompletableFuture<InvocationResult> schedule(InvocationRequest request) {
+        int cores = Math.min(coreCost(request.getThreads(), Runtime.getRuntime().availableProcessors()), coreBudget);
+        long memory = Math.min(memoryCost(getMavenOpts(request), defaultMemory), memoryBudget);
+
+        ScheduledInvocation invocation = new ScheduledInvocation(request, cores, memory);
+
+        invocation.future.whenComplete((result, error) -> {
+            if (invocation.future.isCancelled()) {
+                cancel(invocation);
+            }
+        });
+
+        synchronized (this) {
+            queue.add(invocation);
+        }
+
+        dispatch();
+
+        return invocation.future;
+    }
+
+    /**
+     * Gets the number of requests waiting for admission.
+     *
+     * @return The number of queued requests.
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of admitted requests which have not completed yet.
+     *
+     * @return The number of running requests.
+     */
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * Gets the number of cores charged to the running requests.
+     *
+     * @return The number of used cores.
+     */
+    public synchronized int getUsedCores() {
+        return usedCores;
+    }
+
+    /**
+     * Gets the number of bytes charged to the running requests.
+     *
+     * @return The number of used bytes.
+     */
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * Starts the admissible requests. Executions completing synchronously re-enter this method, which then only flags
+     * the active dispatch to continue, so long queues do not grow the stack.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            if (dispatching) {
+                redispatch = true;
+                return;
+            }
+            dispatching = true;
+        }
+
+        while (true) {
+            ScheduledInvocation next;
+            synchronized (this) {
+                next = admit();
+                if (next == null) {
+                    if (redispatch) {
+                        redispatch = false;
+                        continue;
+                    }
+                    dispatching = false;
+                    break;
+                }
+            }
+
+            start(next);
+        }
+    }
+
+    /**
+     * Removes the next request from the queue and charges its cost if it fits into the budgets. Guarded by this
+     * scheduler.
+     *
+     * @return The admitted request or <code>null</code> if none is admissible.
+     */
+    private ScheduledInvocation admit() {
+        ScheduledInvocation next = queue.peek();
+        if (next == null
+                || running > 0 && (usedCores + next.cores > coreBudget || usedMemory + next.memory > memoryBudget)) {
+            return null;
+        }
+
+        queue.poll();
+        running++;
+        usedCores += next.cores;
+        usedMemory += next.memory;
+        return next;
+    }
+
+    private void start(ScheduledInvocation invocation) {
+        if (invocation.future.isDone()) {
+            release(invocation);
+            return;
+        }
+
+        CompletableFuture<InvocationResult> execution;
+        try {
+            execution = invoker.executeAsync(invocation.request);
+        } catch (RuntimeException e) {
+            execution = new CompletableFuture<>();
+            execution.completeExceptionally(e);
+        }
+        invocation.execution = execution;
+
+        execution.whenComplete((result, error) -> {
+            release(invocation);
+
+            if (error != null) {
+                invocation.future.completeExceptionally(error);
+            } else {
+                invocation.future.complete(result);
+            }
+        });
+
+        if (invocation.future.isCancelled()) {
+            execution.cancel(true);
+        }
+    }
+
+    private void release(ScheduledInvocation invocation) {
+        synchronized (this) {
+            if (invocation.released) {
+                return;
+            }
+            invocation.released = true;
+
+            running--;
+            usedCores -= invocation.cores;
+            usedMemory -= invocation.memory;
+        }
+
+        dispatch();
+    }
+
+    private void cancel(ScheduledInvocation invocation) {
+        synchronized (this) {
+            if (queue.remove(invocation)) {
+                return;
+            }
+        }
+
+        CompletableFuture<InvocationResult> execution = invocation.execution;
+        if (execution != null) {
+            execution.cancel(true);
+        }
+    }
+
+    private static String getMavenOpts(InvocationRequest request) {
+        Map<String, String> shellEnvironments = request.getShellEnvironments();
+        if (shellEnvironments != null && shellEnvironments.containsKey("MAVEN_OPTS")) {
+            // shell environments override the request's MAVEN_OPTS, see MavenCommandLineBuilder
+            return shellEnvironments.get("MAVEN_OPTS");
+        }
+        return request.getMavenOpts();
+    }
+
+    /**
+     * Computes the number of cores used by a build with the given <code>-T</code> value.
+     *
+     * @param threads The value of the <code>-T</code> option, may be <code>null</code>.
+     * @param availableProcessors The number of processors multiplied with a value like <code>1C</code>.
+     * @return The number of cores, at least one.
+     */
+    static int coreCost(String threads, int availableProcessors) {
+        if (threads == null || threads.trim().isEmpty()) {
+            return 1;
+        }
+
+        String value = threads.trim();
+        try {
+            if (value.endsWith("C") || value.endsWith("c")) {
+                float perCore = Float.parseFloat(value.substring(0, value.length() - 1));
+                return Math.max(1, (int) Math.ceil(perCore * availableProcessors));
+            }
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            // let Maven report the invalid value
+            return 1;
+        }
+    }
+
+    /**
+     * Computes the maximum heap size declared by the given JVM options. As for the JVM, the last <code>-Xmx</code>
+     * option wins.
+     *
+     * @param mavenOpts The JVM options, may be <code>null</code>.
+     * @param defaultMemory The number of bytes to return if no <code>-Xmx</code> option is declared.
+     * @return The maximum heap size in bytes.
+     */
+    static long memoryCost(String mavenOpts, long defaultMemory) {
+        long memory = defaultMemory;
+
+        if (mavenOpts != null) {
+            Matcher matcher = XMX_PATTERN.matcher(mavenOpts);
+            while (matcher.find()) {
+                long size;
+                try {
+                    size = Long.parseLong(matcher.group(1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+
+                switch (matcher.group(2).toLowerCase()) {
+                    case "t":
+                        size <<= 40;
+                        break;
+                    case "g":
+                        size <<= 30;
+                        break;
+                    case "m":
+                        size <<= 20;
+                        break;
+                    case "k":
+                        size <<= 10;
+                        break;
+                    default:
+                        break;
+                }
+                memory = size;
+            }
+        }
+
+        return memory;
+    }
+
+    /**
+     * A request waiting for admission or running.
+     */
+    private static final class ScheduledInvocation {
+
+        final InvocationRequest request;
+
+        final int cores;
+
+        final long memory;
+
+        final CompletableFuture<InvocationResult> future = new CompletableFuture<>();
+
+        volatile CompletableFuture<InvocationResult> execution;
+
+        /**
+         * Guarded by the scheduler, prevents releasing the budget of a request twice.
+         */
+        boolean released;
+
+        ScheduledInvocation(InvocationRequest request, int cores, long memory) {
+            this.request = request;
+            this.cores = cores;
+            this.memory = memory;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * An immutable, pre-rendered command line for invocations that differ only in their goals and projects. The template
+ * is created by {@link DefaultInvoker#newTemplate(InvocationRequest)}, which renders all other settings of the request
+ * once, and is executed by {@link DefaultInvoker#execute(InvocationTemplate, List, List)}, which only appends the
+ * goals and the <code>-pl</code> option.
+ * <p>
+ * Later changes to the request the template was created from do not affect the template.
+ *
+ * @since 3.4.0
+ */
+public final class InvocationTemplate {
+
+    private final InvocationRequest request;
+
+    private final String executable;
+
+    private final File workingDirectory;
+
+    private final boolean shellEnvironmentInherited;
+
+    private final String[] environment;
+
+    private final String[] arguments;
+
+    private final boolean alsoMake;
+
+    private final boolean alsoMakeDependents;
+
+    /**
+     * Creates a new template from the command line rendered for {@link #withoutGoalsAndProjects(InvocationRequest)}.
+     *
+     * @param request The request the template is created from, must not be <code>null</code>.
+     * @param executable The Maven executable, must not be <code>null</code>.
+     * @param cli The rendered command line without goals and projects, must not be <code>null</code>.
+     */
+    InvocationTemplate(InvocationRequest request, File executable, Commandline cli) {
+        this.request = snapshot(request);
+        this.executable = executable.getAbsolutePath();
+        this.workingDirectory = cli.getWorkingDirectory();
+        this.shellEnvironmentInherited = cli.isShellEnvironmentInherited();
+        this.arguments = cli.getArguments();
+        this.alsoMake = request.isAlsoMake();
+        this.alsoMakeDependents = request.isAlsoMakeDependents();
+
+        // without the inherited variables, only the ones added by the builder are returned
+        cli.setShellEnvironmentInherited(false);
+        this.environment = cli.getEnvironmentVariables();
+        cli.setShellEnvironmentInherited(shellEnvironmentInherited);
+    }
+
+    /**
+     * Gets the settings applying to the execution of the derived command lines, e.g. the output handlers and the
+     * timeout.
+     */
+    InvocationRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Derives the command line for the given goals and projects.
+     *
+     * @param goals The goals to execute, may be <code>null</code>.
+     * @param projects The projects to build, may be <code>null</code> to build all projects.
+     * @return The command line, never <code>null</code>.
+     * @throws CommandLineConfigurationException if the goals cannot be parsed.
+     */
+    Commandline newCommandLine(List<String> goals, List<String> projects) throws CommandLineConfigurationException {
+        Commandline cli = new Commandline();
+        cli.setExecutable(executable);
+        cli.setWorkingDirectory(workingDirectory);
+        cli.setShellEnvironmentInherited(shellEnvironmentInherited);
+
+        for (String variable : environment) {
+            int separator = variable.indexOf('=');
+            cli.addEnvironment(variable.substring(0, separator), variable.substring(separator + 1));
+        }
+
+        cli.addArguments(arguments);
+
+        if (projects != null) {
+            cli.createArg().setValue("-pl");
+            cli.createArg().setValue(String.join(",", projects));
+
+            if (alsoMake) {
+                cli.createArg().setValue("-am");
+            }
+
+            if (alsoMakeDependents) {
+                cli.createArg().setValue("-amd");
+            }
+        }
+
+        if (goals != null && !goals.isEmpty()) {
+            try {
+                cli.createArg().setLine(String.join(" ", goals));
+            } catch (CommandLineException e) {
+                throw new CommandLineConfigurationException("Problem setting goals", e);
+            }
+        }
+
+        return cli;
+    }
+
+    /**
+     * Copies the given request without goals and projects, to render the constant part of the command line.
+     */
+    static InvocationRequest withoutGoalsAndProjects(InvocationRequest request) {
+        return snapshot(request, true, false).setProjects(null);
+    }
+
+    /**
+     * Copies the settings of the given request, so that later changes to either request do not affect the other one.
+     * The handlers and streams are shared.
+     */
+    static InvocationRequest snapshot(InvocationRequest request) {
+        return snapshot(request, true, true);
+    }
+
+    /**
+     * Copies the settings of the given request like {@link #snapshot(InvocationRequest)}, except for the arguments and
+     * the goals, which both end up as arguments of the command line.
+     */
+    static InvocationRequest snapshotWithoutArgs(InvocationRequest request) {
+        return snapshot(request, false, false);
+    }
+
+    private static InvocationRequest snapshot(InvocationRequest request, boolean withArgs, boolean withGoals) {
+        DefaultInvocationRequest snapshot = new DefaultInvocationRequest();
+        snapshot.setBatchMode(request.isBatchMode());
+        snapshot.setIgnoreTransitiveRepositories(request.isIgnoreTransitiveRepositories());
+        snapshot.setOffline(request.isOffline());
+        snapshot.setUpdateSnapshotsPolicy(request.getUpdateSnapshotsPolicy());
+        snapshot.setRecursive(request.isRecursive());
+        snapshot.setProjects(copy(request.getProjects()));
+        snapshot.setAlsoMake(request.isAlsoMake());
+        snapshot.setAlsoMakeDependents(request.isAlsoMakeDependents());
+        snapshot.setResumeFrom(request.getResumeFrom());
+        snapshot.setDebug(request.isDebug());
+        snapshot.setShowErrors(request.isShowErrors());
+        snapshot.setNonPluginUpdates(request.isNonPluginUpdates());
+        snapshot.setReactorFailureBehavior(request.getReactorFailureBehavior());
+        snapshot.setLocalRepositoryDirectory(request.getLocalRepositoryDirectory(null));
+        snapshot.setTimeoutInSeconds(request.getTimeoutInSeconds());
+        snapshot.setTimeoutGracePeriodInSeconds(request.getTimeoutGracePeriodInSeconds());
+        snapshot.setThreadDumpedOnTimeout(request.isThreadDumpedOnTimeout());
+        snapshot.setInputStream(request.getInputStream(null));
+        snapshot.setOutputHandler(request.getOutputHandler(null));
+        snapshot.setErrorHandler(request.getErrorHandler(null));
+        snapshot.setByteOutputHandler(request.getByteOutputHandler());
+        snapshot.setByteErrorHandler(request.getByteErrorHandler());
+        snapshot.setOutputRedirect(request.getOutputRedirect());
+        snapshot.setErrorRedirect(request.getErrorRedirect());
+        snapshot.setOutputTailSize(request.getOutputTailSize());
+        snapshot.setBuildSummaryParsed(request.isBuildSummaryParsed());
+        snapshot.setBuildEventsRecorded(request.isBuildEventsRecorded());
+        snapshot.setResourceUsageMeasured(request.isResourceUsageMeasured());
+        snapshot.setPomFile(request.getPomFile());
+        snapshot.setPomFileName(request.getPomFileName());
+        if (withArgs && request.getArgs() != null) {
+            snapshot.addArgs(request.getArgs());
+        }
+        snapshot.setBaseDirectory(request.getBaseDirectory());
+        snapshot.setJavaHome(request.getJavaHome());
+        if (request.getProperties() != null) {
+            Properties properties = new Properties();
+            properties.putAll(request.getProperties());
+            snapshot.setProperties(properties);
+        }
+        if (withGoals) {
+            snapshot.setGoals(copy(request.getGoals()));
+        }
+        snapshot.setUserSettingsFile(request.getUserSettingsFile());
+        snapshot.setGlobalSettingsFile(request.getGlobalSettingsFile());
+        snapshot.setToolchainsFile(request.getToolchainsFile());
+        snapshot.setGlobalToolchainsFile(request.getGlobalToolchainsFile());
+        snapshot.setGlobalChecksumPolicy(request.getGlobalChecksumPolicy());
+        snapshot.setProfiles(copy(request.getProfiles()));
+        snapshot.setShellEnvironmentInherited(request.isShellEnvironmentInherited());
+        for (Map.Entry<String, String> variable : request.getShellEnvironments().entrySet()) {
+            snapshot.addShellEnvironment(variable.getKey(), variable.getValue());
+        }
+        snapshot.setMavenOpts(request.getMavenOpts());
+        snapshot.setShowVersion(request.isShowVersion());
+        snapshot.setThreads(request.getThreads());
+        snapshot.setBuilder(request.getBuilder());
+        snapshot.setQuiet(request.isQuiet());
+        snapshot.setNoTransferProgress(request.isNoTransferProgress());
+        snapshot.setMavenHome(request.getMavenHome());
+        snapshot.setMavenExecutable(request.getMavenExecutable());
+        return snapshot;
+    }
+
+    private static List<String> copy(List<String> list) {
+        return list != null ? new ArrayList<>(list) : null;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads used to await forked Maven processes and to pump their streams. This implementation uses
+ * daemon platform threads, the Java 21+ variant of this class in <code>META-INF/versions/21</code> uses virtual
+ * threads instead.
+ */
+final class InvokerThreads {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private InvokerThreads() {
+        // utility class
+    }
+
+    /**
+     * Creates a new, unstarted thread.
+     *
+     * @param name The name of the thread, must not be <code>null</code>.
+     * @param task The task to run, must not be <code>null</code>.
+     * @return The unstarted thread, never <code>null</code>.
+     */
+    static Thread newThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Creates an executor that runs each task in a thread of its own, reusing idle threads where possible.
+     *
+     * @param namePrefix The prefix for the names of the created threads, must not be <code>null</code>.
+     * @return The executor, never <code>null</code>.
+     */
+    static ExecutorService newExecutor(String namePrefix) {
+        return Executors.newCachedThreadPool(task -> newThread(namePrefix + THREAD_COUNTER.incrementAndGet(), task));
+    }
+
+    /**
+     * Waits for the termination of the given process.
+     *
+     * @param process The process to wait for, must not be <code>null</code>.
+     * @param timeoutInSeconds The maximum time to wait, a value less than or equal to zero to wait without limit.
+     * @return <code>true</code> if the process has terminated, <code>false</code> if the timeout elapsed before.
+     * @throws InterruptedException if the current thread is interrupted while waiting.
+     */
+    static boolean waitFor(Process process, int timeoutInSeconds) throws InterruptedException {
+        if (timeoutInSeconds > 0) {
+            return process.waitFor(timeoutInSeconds, TimeUnit.SECONDS);
+        }
+        process.waitFor();
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.maven.shared.utils.cli.StreamConsumer;
+
+/**
+ * Adapts a line oriented handler like an {@link InvocationOutputHandler} to a {@link ByteOutputHandler}. Lines are
+ * terminated by a line feed, a carriage return or a carriage return followed by a line feed, like
+ * {@link java.io.BufferedReader#readLine()} does. The line terminator is not passed on, a trailing partial line is
+ * passed on when the output is complete.
+ *
+ * @since 3.4.0
+ */
+public class LineByteOutputHandler implements ByteOutputHandler {
+
+    private final StreamConsumer handler;
+
+    private final Charset charset;
+
+    private byte[] line = new byte[256];
+
+    private int length;
+
+    /**
+     * A flag whether the last byte was a carriage return, so a following line feed does not end another line.
+     */
+    private boolean skipLineFeed;
+
+    /**
+     * Creates a new adapter decoding the lines with the platform charset.
+     *
+     * @param handler The handler of the lines, must not be <code>null</code>.
+     */
+    public LineByteOutputHandler(StreamConsumer handler) {
+        this(handler, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a new adapter.
+     *
+     * @param handler The handler of the lines, must not be <code>null</code>.
+     * @param charset The charset to decode the lines with, must not be <code>null</code>.
+     */
+    public LineByteOutputHandler(StreamConsumer handler, Charset charset) {
+        if (handler == null) {
+            throw new NullPointerException("missing handler");
+        }
+        if (charset == null) {
+            throw new NullPointerException("missing charset");
+        }
+        this.handler = handler;
+        this.charset = charset;
+    }
+
+    @Override
+    public synchronized void consume(byte[] buffer, int offset, int length) throws IOException {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '\n' || b == '\r') {
+                if (b == '\n' && skipLineFeed && i == start && this.length == 0) {
+                    start = i + 1;
+                } else {
+                    append(buffer, start, i - start);
+                    emit();
+                    start = i + 1;
+                }
+                skipLineFeed = b == '\r';
+            } else {
+                skipLineFeed = false;
+            }
+        }
+        append(buffer, start, end - start);
+    }
+
+    @Override
+    public synchronized void complete() throws IOException {
+        if (length > 0) {
+            emit();
+        }
+        skipLineFeed = false;
+    }
+
+    private void append(byte[] buffer, int offset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        }
+        System.arraycopy(buffer, offset, line, length, count);
+        length += count;
+    }
+
+    private void emit() throws IOException {
+        String text = new String(line, 0, length, charset);
+        length = 0;
+        handler.consumeLine(text);
+    }
+}
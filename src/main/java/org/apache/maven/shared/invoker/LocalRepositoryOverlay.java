@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A private local repository sharing the files of a base repository, as created by
+ * {@link LocalRepositoryOverlays#newOverlay()}. Closing the overlay deletes its directory.
+ *
+ * @since 3.4.0
+ */
+public final class LocalRepositoryOverlay implements Closeable {
+
+    private final LocalRepositoryOverlays overlays;
+
+    private final File directory;
+
+    LocalRepositoryOverlay(LocalRepositoryOverlays overlays, File directory) {
+        this.overlays = overlays;
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory of the overlay, to be passed to {@link InvocationRequest#setLocalRepositoryDirectory(File)}.
+     *
+     * @return The directory of the overlay, never <code>null</code>.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Adds the files resolved or installed into this overlay to the base repository, so that later overlays share
+     * them. Files already present in the base repository are kept, files recording failed resolutions are not added.
+     * Concurrent merges of several overlays are safe.
+     *
+     * @return The number of files added to the base repository.
+     * @throws IOException if the files cannot be added.
+     */
+    public int merge() throws IOException {
+        return LocalRepositoryOverlays.mirror(
+                directory.toPath(), overlays.getBaseDirectory().toPath(), true, overlays.isLinkable());
+    }
+
+    /**
+     * Deletes the directory of the overlay. The files of the base repository are not affected.
+     *
+     * @throws IOException if the directory cannot be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        Directories.delete(directory.toPath());
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gives parallel invocations private local repositories which share the files of a base repository, so that they
+ * neither corrupt each other nor wait for each other's locks, while creating a repository costs little more than
+ * creating its directories. The files of an overlay are hard links to the files of the base repository, except for the
+ * files Maven may update in place, like metadata and resolution tracking files and the files of snapshot versions,
+ * which are copied. Maven replaces the other files by renaming new files over them, which leaves the base repository
+ * untouched.
+ * <p>
+ * Only Maven 3.9 and later, whose resolver never writes these files in place, are known to keep the base repository
+ * intact, so hard links are only used if the {@link #setMavenHome(File) Maven home} holds Maven 3.9 or later. With
+ * older or unknown versions, all files are copied.
+ * <p>
+ * The base repository and the overlays should reside on the same file system, otherwise all files are copied. The base
+ * repository must not be modified while overlays are created from it, except by {@link LocalRepositoryOverlay#merge()}.
+ * Java offers no API for reflinks, so file systems supporting them still use hard links.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+ *     request.setLocalRepositoryDirectory(overlay.getDirectory());
+ *     if (invoker.execute(request).getExitCode() == 0) {
+ *         overlay.merge();
+ *     }
+ * }
+ * </pre>
+ *
+ * Instances are thread-safe.
+ *
+ * @since 3.4.0
+ */
+public class LocalRepositoryOverlays {
+
+    private static final Pattern CORE_VERSION = Pattern.compile("maven-core-(\\d+)\\.(\\d+)[.-].*\\.jar");
+
+    private final File baseDirectory;
+
+    private final File overlaysDirectory;
+
+    private File mavenHome;
+
+    /**
+     * Creates a new manager of overlays.
+     *
+     * @param baseDirectory The base directory of the shared local repository, must not be <code>null</code>.
+     * @param overlaysDirectory The directory receiving the overlays, must not be <code>null</code>. It should not be
+     *            inside the base repository.
+     */
+    public LocalRepositoryOverlays(File baseDirectory, File overlaysDirectory) {
+        if (baseDirectory == null) {
+            throw new NullPointerException("missing base directory");
+        }
+        if (overlaysDirectory == null) {
+            throw new NullPointerException("missing overlays directory");
+        }
+        this.baseDirectory = baseDirectory.getAbsoluteFile();
+        this.overlaysDirectory = overlaysDirectory.getAbsoluteFile();
+    }
+
+    /**
+     * Gets the base directory of the shared local repository.
+     *
+     * @return The base directory of the shared local repository, never <code>null</code>.
+     */
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    /**
+     * Gets the directory receiving the overlays.
+     *
+     * @return The directory receiving the overlays, never <code>null</code>.
+     */
+    public File getOverlaysDirectory() {
+        return overlaysDirectory;
+    }
+
+    /**
+     * Gets the Maven installation running the invocations using the overlays.
+     *
+     * @return The Maven installation, or <code>null</code> to use the system property <code>maven.home</code>.
+     */
+    public File getMavenHome() {
+        return mavenHome;
+    }
+
+    /**
+     * Sets the Maven installation running the invocations using the overlays, which decides whether files may be
+     * shared by hard links. Defaults to the system property <code>maven.home</code>, like the invokers do.
+     *
+     * @param mavenHome The Maven installation, may be <code>null</code> to use the system property
+     *            <code>maven.home</code>.
+     * @return This instance.
+     */
+    public LocalRepositoryOverlays setMavenHome(File mavenHome) {
+        this.mavenHome = mavenHome;
+        return this;
+    }
+
+    /**
+     * Tells whether the files of the repositories may be shared by hard links.
+     */
+    boolean isLinkable() {
+        File home = mavenHome;
+        if (home == null) {
+            String property = System.getProperty("maven.home");
+            home = property != null ? new File(property) : null;
+        }
+        return home != null && isMaven39OrLater(home);
+    }
+
+    /**
+     * Tells whether the given Maven installation holds Maven 3.9 or later, according to the version in the name of its
+     * <code>lib/maven-core-*.jar</code>.
+     */
+    static boolean isMaven39OrLater(File mavenHome) {
+        File[] cores = new File(mavenHome, "lib").listFiles((dir, name) -> name.startsWith("maven-core-"));
+        if (cores == null || cores.length != 1) {
+            return false;
+        }
+        Matcher version = CORE_VERSION.matcher(cores[0].getName());
+        if (!version.matches()) {
+            return false;
+        }
+        int major = Integer.parseInt(version.group(1));
+        int minor = Integer.parseInt(version.group(2));
+        return major > 3 || major == 3 && minor >= 9;
+    }
+
+    /**
+     * Creates a new overlay of the base repository in a new directory.
+     *
+     * @return The overlay, never <code>null</code>. It must be closed to delete its directory.
+     * @throws IOException if the overlay cannot be created.
+     */
+    public LocalRepositoryOverlay newOverlay() throws IOException {
+        Files.createDirectories(overlaysDirectory.toPath());
+        Path directory = Files.createTempDirectory(overlaysDirectory.toPath(), "repository-");
+
+        LocalRepositoryOverlay overlay = new LocalRepositoryOverlay(this, directory.toFile());
+        try {
+            if (baseDirectory.isDirectory()) {
+                mirror(baseDirectory.toPath(), directory, false, isLinkable());
+            }
+        } catch (IOException | RuntimeException e) {
+            overlay.close();
+            throw e;
+        }
+        return overlay;
+    }
+
+    /**
+     * Links or copies the files of the source tree into the target tree.
+     *
+     * @param source The root of the source tree.
+     * @param target The root of the target tree.
+     * @param merging <code>true</code> to only add the files missing in the target tree, except files recording failed
+     *            resolutions, <code>false</code> to populate a new target tree.
+     * @param linking <code>true</code> to link the files which Maven does not write in place, <code>false</code> to
+     *            copy all files.
+     * @return The number of added files.
+     */
+    static int mirror(Path source, Path target, boolean merging, boolean linking) throws IOException {
+        int[] added = {0};
+        boolean[] linkable = {linking};
+
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (!attrs.isRegularFile() || isTransient(name) || merging && name.endsWith(".lastUpdated")) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                Path copy = target.resolve(source.relativize(file).toString());
+                if (merging && Files.exists(copy)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                if (linkable[0] && !isMutable(file)) {
+                    try {
+                        Files.createLink(copy, file);
+                        added[0]++;
+                        return FileVisitResult.CONTINUE;
+                    } catch (FileAlreadyExistsException e) {
+                        // merged by another overlay meanwhile
+                        return FileVisitResult.CONTINUE;
+                    } catch (UnsupportedOperationException | FileSystemException e) {
+                        linkable[0] = false;
+                    }
+                }
+
+                copy(file, copy);
+                added[0]++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return added[0];
+    }
+
+    /**
+     * Copies a file through a temporary file, so that the target never holds a partial copy.
+     */
+    private static void copy(Path file, Path target) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.copy(file, temporary, StandardCopyOption.COPY_ATTRIBUTES);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Tells whether Maven may write the given file of the repository in place, which must not reach the base
+     * repository through a hard link.
+     */
+    private static boolean isMutable(Path file) {
+        String name = file.getFileName().toString();
+        Path version = file.getParent();
+        return name.startsWith("maven-metadata")
+                || name.startsWith("_") && name.endsWith(".repositories")
+                || name.endsWith(".properties")
+                || name.endsWith(".lastUpdated")
+                || version != null && version.getFileName().toString().endsWith("-SNAPSHOT");
+    }
+
+    /**
+     * Tells whether the given file is only meaningful to the running process that created it, like a lock file or a
+     * partial download.
+     */
+    private static boolean isTransient(String name) {
+        return name.endsWith(".lock") || name.endsWith(".part") || name.endsWith(".tmp");
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the dependencies and plugins of many invocation requests into their local repositories once, before the
+ * requests are executed, and then switches the requests to offline mode, so that they run without checking the remote
+ * repositories.
+ * <p>
+ * The requests are grouped by the settings which affect resolution, like the settings files, the local repository,
+ * the profiles, the properties and the Maven installation. The projects of a group are resolved by a single
+ * invocation of the warm-up goals, by default <code>dependency:go-offline</code>, on a generated aggregator POM listing
+ * the projects as modules, so that artifacts shared by the projects are resolved once. If the aggregated invocation
+ * fails, e.g. because two projects have the same coordinates, each project of the group is resolved on its own. Only
+ * the requests whose projects were resolved successfully are switched to offline mode.
+ * <p>
+ * The goals, projects and arguments of the requests are not used for the warm-up, and neither are the
+ * <code>.mvn</code> directories of the projects of an aggregated invocation. Requests already in offline mode are
+ * ignored.
+ *
+ * @since 3.4.0
+ */
+public class LocalRepositoryWarmer {
+
+    private final Invoker invoker;
+
+    private List<String> goals = Collections.singletonList("dependency:go-offline");
+
+    /**
+     * Creates a new warmer.
+     *
+     * @param invoker The invoker executing the warm-up invocations, must not be <code>null</code>.
+     */
+    public LocalRepositoryWarmer(Invoker invoker) {
+        if (invoker == null) {
+            throw new NullPointerException("missing invoker");
+        }
+        this.invoker = invoker;
+    }
+
+    /**
+     * Gets the goals resolving the dependencies and plugins of the projects.
+     *
+     * @return The goals of the warm-up invocations, never <code>null</code>.
+     */
+    public List<String> getGoals() {
+        return goals;
+    }
+
+    /**
+     * Sets the goals resolving the dependencies and plugins of the projects. Defaults to
+     * <code>dependency:go-offline</code>.
+     *
+     * @param goals The goals of the warm-up invocations, must not be empty.
+     * @return This warmer.
+     */
+    public LocalRepositoryWarmer setGoals(List<String> goals) {
+        if (goals == null || goals.isEmpty()) {
+            throw new IllegalArgumentException("missing goals");
+        }
+        this.goals = Collections.unmodifiableList(new ArrayList<>(goals));
+        return this;
+    }
+
+    /**
+     * Resolves the dependencies and plugins of the projects of the given requests and switches the requests resolved
+     * successfully to offline mode.
+     *
+     * @param requests The requests to prepare, must not be <code>null</code>.
+     * @return The requests switched to offline mode, never <code>null</code>.
+     * @throws MavenInvocationException if the command line of a warm-up invocation cannot be configured.
+     */
+    public List<InvocationRequest> warmUp(Collection<InvocationRequest> requests) throws MavenInvocationException {
+        Map<List<Object>, Map<File, List<InvocationRequest>>> groups = new LinkedHashMap<>();
+        for (InvocationRequest request : requests) {
+            if (!request.isOffline()) {
+                groups.computeIfAbsent(getResolutionKey(request), key -> new LinkedHashMap<>())
+                        .computeIfAbsent(getPomFile(request), pom -> new ArrayList<>())
+                        .add(request);
+            }
+        }
+
+        List<InvocationRequest> offline = new ArrayList<>();
+        for (Map<File, List<InvocationRequest>> projects : groups.values()) {
+            InvocationRequest first = projects.values().iterator().next().get(0);
+
+            if (projects.size() > 1 && warmUpAggregated(first, projects.keySet())) {
+                for (List<InvocationRequest> projectRequests : projects.values()) {
+                    offline.addAll(projectRequests);
+                }
+                continue;
+            }
+
+            for (Map.Entry<File, List<InvocationRequest>> project : projects.entrySet()) {
+                if (warmUp(
+                        project.getValue().get(0),
+                        project.getKey(),
+                        project.getKey().getPath())) {
+                    offline.addAll(project.getValue());
+                }
+            }
+        }
+
+        for (InvocationRequest request : offline) {
+            request.setOffline(true);
+        }
+        return offline;
+    }
+
+    /**
+     * Resolves the given projects by a single invocation on an aggregator POM.
+     */
+    private boolean warmUpAggregated(InvocationRequest request, Collection<File> poms) throws MavenInvocationException {
+        File directory;
+        try {
+            directory = Files.createTempDirectory("maven-invoker-warm-up").toFile();
+        } catch (IOException e) {
+            invoker.getLogger().warn("Failed to create aggregator POM, resolving projects one by one.", e);
+            return false;
+        }
+
+        try {
+            File aggregator = new File(directory, "pom.xml");
+            StringBuilder pom = new StringBuilder();
+            pom.append("<project><modelVersion>4.0.0</modelVersion>")
+                    .append("<groupId>org.apache.maven.shared.invoker</groupId>")
+                    .append("<artifactId>local-repository-warm-up</artifactId><version>1</version>")
+                    .append("<packaging>pom</packaging><modules>");
+            for (File project : poms) {
+                Path module = directory.toPath().relativize(project.toPath());
+                pom.append("<module>")
+                        .append(escape(module.toString().replace(File.separatorChar, '/')))
+                        .append("</module>");
+            }
+            pom.append("</modules></project>");
+            Files.write(aggregator.toPath(), pom.toString().getBytes(StandardCharsets.UTF_8));
+
+            return warmUp(request, aggregator, poms.toString());
+        } catch (IOException | IllegalArgumentException e) {
+            // no relative path between different roots
+            invoker.getLogger().warn("Failed to create aggregator POM, resolving projects one by one.", e);
+            return false;
+        } finally {
+            try {
+                Directories.delete(directory.toPath());
+            } catch (IOException e) {
+                invoker.getLogger().debug("Failed to delete aggregator POM: '" + directory + "'.", e);
+            }
+        }
+    }
+
+    /**
+     * Executes the warm-up goals on the given POM with the resolution settings of the given request.
+     */
+    private boolean warmUp(InvocationRequest request, File pom, String projects) throws MavenInvocationException {
+        InvocationResult result = invoker.execute(newWarmUpRequest(request, pom));
+
+        if (result.getExecutionException() != null || result.getExitCode() != 0) {
+            invoker.getLogger()
+                    .warn(
+                            "Failed to resolve the dependencies of: " + projects + ", exit code: "
+                                    + result.getExitCode(),
+                            result.getExecutionException());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the given request to execute the warm-up goals on the given POM.
+     */
+    private InvocationRequest newWarmUpRequest(InvocationRequest request, File pom) {
+        return InvocationTemplate.snapshotWithoutArgs(request)
+                .addArgs(goals)
+                .setProjects(null)
+                .setResumeFrom(null)
+                .setPomFileName(null)
+                .setPomFile(pom)
+                .setBaseDirectory(getBaseDirectory(request))
+                .setReactorFailureBehavior(InvocationRequest.ReactorFailureBehavior.FailAtEnd)
+                .setBatchMode(true)
+                .setRecursive(true)
+                .setOffline(false)
+                .setAlsoMake(false)
+                .setAlsoMakeDependents(false);
+    }
+
+    /**
+     * Gets the settings of the given request which affect the resolution of its dependencies and plugins.
+     */
+    private List<Object> getResolutionKey(InvocationRequest request) {
+        File mavenExecutable = request.getMavenExecutable();
+        if (mavenExecutable != null && !mavenExecutable.isAbsolute()) {
+            // a Maven wrapper of the project
+            mavenExecutable = new File(getBaseDirectory(request), mavenExecutable.getPath());
+        }
+
+        return Arrays.asList(
+                request.getUserSettingsFile(),
+                request.getGlobalSettingsFile(),
+                request.getToolchainsFile(),
+                request.getGlobalToolchainsFile(),
+                request.getLocalRepositoryDirectory(invoker.getLocalRepositoryDirectory()),
+                request.getProfiles(),
+                request.getProperties(),
+                request.getJavaHome(),
+                request.getMavenHome(),
+                mavenExecutable,
+                request.getMavenOpts(),
+                request.getShellEnvironments(),
+                request.isShellEnvironmentInherited(),
+                request.getUpdateSnapshotsPolicy(),
+                request.getGlobalChecksumPolicy(),
+                request.isIgnoreTransitiveRepositories());
+    }
+
+    /**
+     * Gets the base directory of the given request like the command line builder does.
+     */
+    private File getBaseDirectory(InvocationRequest request) {
+        File baseDirectory = request.getBaseDirectory();
+        if (baseDirectory == null && request.getPomFile() != null) {
+            baseDirectory = request.getPomFile().getAbsoluteFile().getParentFile();
+        }
+        if (baseDirectory == null) {
+            baseDirectory = invoker.getWorkingDirectory();
+        }
+        return (baseDirectory != null ? baseDirectory : new File(System.getProperty("user.dir"))).getAbsoluteFile();
+    }
+
+    private File getPomFile(InvocationRequest request) {
+        File pom = request.getPomFile();
+        if (pom == null) {
+            String pomFileName = request.getPomFileName();
+            pom = new File(getBaseDirectory(request), pomFileName != null ? pomFileName : "pom.xml");
+        } else if (!pom.isAbsolute()) {
+            pom = new File(getBaseDirectory(request), pom.getPath());
+        }
+
+        try {
+            return pom.getCanonicalFile();
+        } catch (IOException e) {
+            return pom.getAbsoluteFile();
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
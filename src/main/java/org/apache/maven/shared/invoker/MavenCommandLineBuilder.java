@@ -39,6 +39,8 @@ public class MavenCommandLineBuilder {
 
     private static final InvokerLogger DEFAULT_LOGGER = new SystemOutLogger();
 
+    private static final String EXT_CLASS_PATH = "maven.ext.class.path";
+
     private InvokerLogger logger = DEFAULT_LOGGER;
 
     private File baseDirectory;
@@ -49,6 +51,12 @@ public class MavenCommandLineBuilder {
 
     private File mavenExecutable;
 
+    private MavenExecutableCache executableCache;
+
+    private CanonicalFileCache canonicalFileCache;
+
+    private ClassDataArchives classDataArchives;
+
     /**
      * <p>build.</p>
      *
@@ -94,6 +102,8 @@ public class MavenCommandLineBuilder {
 
         setProperties(request, cli);
 
+        setBuildEventSpy(request, cli);
+
         setProfiles(request, cli);
 
         setGoals(request, cli);
@@ -125,7 +135,7 @@ public class MavenCommandLineBuilder {
 
         if (userSettingsFile != null) {
             try {
-                userSettingsFile = userSettingsFile.getCanonicalFile();
+                userSettingsFile = getCanonicalFile(userSettingsFile);
             } catch (IOException e) {
                 logger.debug(
                         "Failed to canonicalize user settings path: " + userSettingsFile.getAbsolutePath()
@@ -141,7 +151,7 @@ public class MavenCommandLineBuilder {
 
         if (globalSettingsFile != null) {
             try {
-                globalSettingsFile = globalSettingsFile.getCanonicalFile();
+                globalSettingsFile = getCanonicalFile(globalSettingsFile);
             } catch (IOException e) {
                 logger.debug(
                         "Failed to canonicalize global settings path: " + globalSettingsFile.getAbsolutePath()
@@ -165,7 +175,7 @@ public class MavenCommandLineBuilder {
 
         if (toolchainsFile != null) {
             try {
-                toolchainsFile = toolchainsFile.getCanonicalFile();
+                toolchainsFile = getCanonicalFile(toolchainsFile);
             } catch (IOException e) {
                 logger.debug(
                         "Failed to canonicalize toolchains path: " + toolchainsFile.getAbsolutePath()
@@ -198,6 +208,104 @@ public class MavenCommandLineBuilder {
         for (Map.Entry<String, String> entry : request.getShellEnvironments().entrySet()) {
             cli.addEnvironment(entry.getKey(), entry.getValue());
         }
+
+        String classDataOption = null;
+        if (classDataArchives != null) {
+            classDataOption = getClassDataOption(getScriptMavenHome(), findJavaExecutable(request));
+        }
+        if (classDataOption != null && classDataOption.matches(".*\\s.*")) {
+            // the script splits MAVEN_OPTS at whitespace
+            logger.debug("Ignoring class data sharing option with whitespace: '" + classDataOption + "'.");
+        } else if (classDataOption != null) {
+            String mavenOpts = getEnvironment(request, "MAVEN_OPTS", request.getMavenOpts());
+            if (mavenOpts != null && !mavenOpts.trim().isEmpty()) {
+                classDataOption += ' ' + mavenOpts;
+            }
+            cli.addEnvironment("MAVEN_OPTS", classDataOption);
+        }
+    }
+
+    /**
+     * Gets the Maven home whose <code>bin</code> directory contains the Maven executable, which is not the case for a
+     * Maven wrapper.
+     *
+     * @return The Maven home or <code>null</code> if the executable is not the script of a Maven home.
+     */
+    private File getScriptMavenHome() {
+        File binDirectory = mavenExecutable != null ? mavenExecutable.getParentFile() : null;
+        if (binDirectory == null
+                || !"bin".equals(binDirectory.getName())
+                || !new File(binDirectory, "m2.conf").isFile()) {
+            return null;
+        }
+        return binDirectory.getParentFile();
+    }
+
+    /**
+     * Gets the option making Java use the class data archive of the given Maven home and Java executable, if class data
+     * sharing is enabled. The archive is created by a training build on first use.
+     *
+     * @param mavenHome The Maven home, may be <code>null</code>.
+     * @param javaExecutable The Java executable, may be <code>null</code>.
+     * @return The option or <code>null</code> if no archive is available.
+     */
+    String getClassDataOption(File mavenHome, File javaExecutable) {
+        if (classDataArchives == null || mavenHome == null || javaExecutable == null) {
+            return null;
+        }
+
+        File archive = classDataArchives.getArchive(mavenHome, javaExecutable, logger);
+        return archive != null ? "-XX:SharedArchiveFile=" + archive.getPath() : null;
+    }
+
+    /**
+     * Finds the Java executable like the <code>mvn</code> script does, in <code>JAVA_HOME</code> or else on the
+     * <code>PATH</code>.
+     *
+     * @param request The invocation request, must not be <code>null</code>.
+     * @return The Java executable or <code>null</code> if not found.
+     */
+    File findJavaExecutable(InvocationRequest request) {
+        String executable = Os.isFamily(Os.FAMILY_WINDOWS) ? "java.exe" : "java";
+
+        File javaHome = request.getJavaHome();
+        String javaHomePath =
+                getEnvironment(request, "JAVA_HOME", javaHome != null ? javaHome.getAbsolutePath() : null);
+        if (javaHomePath != null && !javaHomePath.isEmpty()) {
+            File java = new File(javaHomePath, "bin/" + executable);
+            return java.isFile() ? java.getAbsoluteFile() : null;
+        }
+
+        String path = getEnvironment(request, "PATH", null);
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                File java = new File(directory, executable);
+                if (!directory.isEmpty() && java.isFile()) {
+                    return java.getAbsoluteFile();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets an environment variable of the Maven process, which is set by the request or else inherited.
+     *
+     * @param request The invocation request, must not be <code>null</code>.
+     * @param name The name of the variable, must not be <code>null</code>.
+     * @param requested The value requested by a dedicated setting, overridden by the shell environment of the request.
+     * @return The value of the variable or <code>null</code> if not set.
+     */
+    static String getEnvironment(InvocationRequest request, String name, String requested) {
+        String value = request.getShellEnvironments().get(name);
+        if (value == null) {
+            value = requested;
+        }
+        if (value == null && request.isShellEnvironmentInherited()) {
+            value = System.getenv(name);
+        }
+        return value;
     }
 
     /**
@@ -248,12 +356,49 @@ public class MavenCommandLineBuilder {
                 String key = (String) entry.getKey();
                 String value = (String) entry.getValue();
 
+                if (request.isBuildEventsRecorded() && EXT_CLASS_PATH.equals(key)) {
+                    // merged with the build event spy
+                    continue;
+                }
+
                 cli.createArg().setValue("-D");
                 cli.createArg().setValue(key + '=' + value);
             }
         }
     }
 
+    /**
+     * Loads the build event spy into Maven if the request records the build events, keeping the extensions of the
+     * <code>maven.ext.class.path</code> property of the request.
+     *
+     * @param request The invocation request, must not be <code>null</code>.
+     * @param cli The command line to configure, must not be <code>null</code>.
+     * @throws CommandLineConfigurationException if the jar of the spy cannot be written.
+     * @since 3.4.0
+     */
+    protected void setBuildEventSpy(InvocationRequest request, Commandline cli)
+            throws CommandLineConfigurationException {
+        if (!request.isBuildEventsRecorded()) {
+            return;
+        }
+
+        String extClassPath;
+        try {
+            extClassPath = BuildEventSpyJar.get().getAbsolutePath();
+        } catch (IOException e) {
+            throw new CommandLineConfigurationException("Problem writing build event spy", e);
+        }
+
+        Properties properties = request.getProperties();
+        String extensions = properties != null ? properties.getProperty(EXT_CLASS_PATH) : null;
+        if (extensions != null && !extensions.isEmpty()) {
+            extClassPath = extensions + File.pathSeparator + extClassPath;
+        }
+
+        cli.createArg().setValue("-D");
+        cli.createArg().setValue(EXT_CLASS_PATH + '=' + extClassPath);
+    }
+
     /**
      * <p>setPomLocation.</p>
      *
@@ -273,7 +418,7 @@ public class MavenCommandLineBuilder {
         }
 
         try {
-            pom = pom.getCanonicalFile();
+            pom = getCanonicalFile(pom);
         } catch (IOException e) {
             logger.debug("Failed to canonicalize the POM path: " + pom + ". Using as-is.", e);
         }
@@ -318,7 +463,7 @@ public class MavenCommandLineBuilder {
         }
 
         try {
-            baseDirectory = baseDirectory.getCanonicalFile();
+            baseDirectory = getCanonicalFile(baseDirectory);
         } catch (IOException e) {
             logger.debug("Failed to canonicalize base directory: " + baseDirectory + ". Using as-is.", e);
         }
@@ -335,7 +480,7 @@ public class MavenCommandLineBuilder {
 
         if (localRepositoryDirectory != null) {
             try {
-                localRepositoryDirectory = localRepositoryDirectory.getCanonicalFile();
+                localRepositoryDirectory = getCanonicalFile(localRepositoryDirectory);
             } catch (IOException e) {
                 logger.debug(
                         "Failed to canonicalize local repository directory: " + localRepositoryDirectory
@@ -486,7 +631,20 @@ public class MavenCommandLineBuilder {
             mavenHome = new File(System.getProperty("maven.home"));
         }
 
-        if (mavenHome != null && !mavenHome.isDirectory()) {
+        if (mavenHome != null) {
+            File configuredHome = mavenHome;
+            if (executableCache != null) {
+                mavenHome = executableCache.getMavenHome(configuredHome, () -> resolveMavenHome(configuredHome));
+            } else {
+                mavenHome = resolveMavenHome(configuredHome);
+            }
+        }
+
+        logger.debug("Using maven.home of: '" + mavenHome + "'.");
+    }
+
+    private static File resolveMavenHome(File mavenHome) {
+        if (!mavenHome.isDirectory()) {
             File binDir = mavenHome.getParentFile();
             if (binDir != null && "bin".equals(binDir.getName())) {
                 // ah, they specified the mvn
@@ -495,11 +653,11 @@ public class MavenCommandLineBuilder {
             }
         }
 
-        if (mavenHome != null && !mavenHome.isDirectory()) {
+        if (mavenHome == null || !mavenHome.isDirectory()) {
             throw new IllegalStateException("Maven home is set to: '" + mavenHome + "' which is not a directory");
         }
 
-        logger.debug("Using maven.home of: '" + mavenHome + "'.");
+        return mavenHome;
     }
 
     /**
@@ -521,26 +679,46 @@ public class MavenCommandLineBuilder {
                 executable = "mvn";
             }
 
-            // firs look in project directory
-            mavenExecutable = detectMavenExecutablePerOs(baseDirectory, executable);
-            if (mavenExecutable == null) {
-                // next maven home
-                mavenExecutable = detectMavenExecutablePerOs(mavenHome, "/bin/" + executable);
+            if (executableCache != null) {
+                mavenExecutable = executableCache.get(
+                        baseDirectory, mavenHome, executable, () -> detectMavenExecutable(executable));
+            } else {
+                mavenExecutable = detectMavenExecutable(executable);
             }
 
-            if (mavenExecutable != null) {
-                try {
-                    mavenExecutable = mavenExecutable.getCanonicalFile();
-                } catch (IOException e) {
-                    logger.debug("Failed to canonicalize maven executable: '" + mavenExecutable + "'. Using as-is.", e);
-                }
-            } else {
+            if (mavenExecutable == null) {
                 throw new CommandLineConfigurationException("Maven executable: '" + executable + "'"
                         + " not found at project dir: '" + baseDirectory + "' nor maven home: '" + mavenHome + "'");
             }
         }
     }
 
+    private File detectMavenExecutable(String executable) {
+        // firs look in project directory
+        File executableFile = detectMavenExecutablePerOs(baseDirectory, executable);
+        if (executableFile == null) {
+            // next maven home
+            executableFile = detectMavenExecutablePerOs(mavenHome, "/bin/" + executable);
+        }
+
+        if (executableFile != null) {
+            try {
+                executableFile = executableFile.getCanonicalFile();
+            } catch (IOException e) {
+                logger.debug("Failed to canonicalize maven executable: '" + executableFile + "'. Using as-is.", e);
+            }
+        }
+
+        return executableFile;
+    }
+
+    private File getCanonicalFile(File file) throws IOException {
+        if (canonicalFileCache != null) {
+            return canonicalFileCache.getCanonicalFile(file);
+        }
+        return file.getCanonicalFile();
+    }
+
     private File detectMavenExecutablePerOs(File baseDirectory, String executable) {
         if (Os.isFamily(Os.FAMILY_WINDOWS)) {
             File executableFile = new File(baseDirectory, executable + ".ps1");
@@ -655,4 +833,32 @@ public class MavenCommandLineBuilder {
     public File getMavenExecutable() {
         return mavenExecutable;
     }
+
+    /**
+     * Sets the cache of detected Maven homes and executables shared by the builds of an invoker.
+     *
+     * @param executableCache The cache to use, may be <code>null</code> to detect the Maven home and executable on
+     *            every build.
+     */
+    void setExecutableCache(MavenExecutableCache executableCache) {
+        this.executableCache = executableCache;
+    }
+
+    /**
+     * Sets the cache of canonical files shared by the builds of an invoker.
+     *
+     * @param canonicalFileCache The cache to use, may be <code>null</code> to canonicalize the files on every build.
+     */
+    void setCanonicalFileCache(CanonicalFileCache canonicalFileCache) {
+        this.canonicalFileCache = canonicalFileCache;
+    }
+
+    /**
+     * Sets the class data archives shared by the builds of an invoker.
+     *
+     * @param classDataArchives The class data archives to use, may be <code>null</code> to disable class data sharing.
+     */
+    void setClassDataArchives(ClassDataArchives classDataArchives) {
+        this.classDataArchives = classDataArchives;
+    }
 }
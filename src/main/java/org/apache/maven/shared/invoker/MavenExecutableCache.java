@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the Maven homes and executables detected by {@link MavenCommandLineBuilder}, so that repeated builds do not
+ * probe the file system for the Maven home and every candidate script. An entry is keyed by the base directory, the
+ * Maven home and the name of the executable, and is valid as long as the modification times of the directories searched
+ * for the executable are unchanged, i.e. no file was added to, removed from or renamed in them. The entry of a resolved
+ * Maven home has no base directory and an empty executable name, and is valid as long as the directory containing the
+ * configured Maven home is unchanged.
+ * <p>
+ * Instances are thread-safe and shared by all builds of an invoker.
+ */
+class MavenExecutableCache {
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the executable for the given key from the cache or detects it.
+     *
+     * @param baseDirectory The base directory searched first, may be <code>null</code>.
+     * @param mavenHome The Maven home whose <code>bin</code> directory is searched next, may be <code>null</code>.
+     * @param executable The name of the executable, must not be <code>null</code>.
+     * @param detector Detects the executable if it is not cached, returns <code>null</code> if it is not found.
+     * @return The executable or <code>null</code> if it was not found.
+     */
+    File get(File baseDirectory, File mavenHome, String executable, Supplier<File> detector) {
+        Key key = new Key(baseDirectory, mavenHome, executable);
+
+        // taken before detecting so that concurrent changes invalidate the entry
+        long baseDirectoryStamp = stamp(baseDirectory, executable);
+        long mavenHomeStamp = stamp(mavenHome, "/bin/" + executable);
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.baseDirectoryStamp == baseDirectoryStamp && entry.mavenHomeStamp == mavenHomeStamp) {
+            return entry.file;
+        }
+
+        File detected = detector.get();
+        if (detected != null) {
+            entries.put(key, new Entry(detected, baseDirectoryStamp, mavenHomeStamp));
+        } else {
+            entries.remove(key);
+        }
+
+        return detected;
+    }
+
+    /**
+     * Gets the Maven home resolved from the given configured Maven home from the cache or resolves it.
+     *
+     * @param mavenHome The configured Maven home, e.g. the Maven home itself or its <code>bin/mvn</code> script, must
+     *            not be <code>null</code>.
+     * @param resolver Resolves the Maven home if it is not cached, throws if it is invalid.
+     * @return The resolved Maven home, never <code>null</code>.
+     */
+    File getMavenHome(File mavenHome, Supplier<File> resolver) {
+        Key key = new Key(null, mavenHome, "");
+
+        // a configured bin/mvn script implies its Maven home, so only the configured file itself is probed
+        long mavenHomeStamp = stamp(mavenHome, "");
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.mavenHomeStamp == mavenHomeStamp) {
+            return entry.file;
+        }
+
+        File resolved = resolver.get();
+        entries.put(key, new Entry(resolved, 0, mavenHomeStamp));
+
+        return resolved;
+    }
+
+    /**
+     * Gets the modification time of the directory that contains the candidates for the given executable.
+     */
+    private static long stamp(File directory, String executable) {
+        File parent = new File(directory, executable).getParentFile();
+        return parent != null ? parent.lastModified() : 0;
+    }
+
+    private static final class Key {
+
+        private final File baseDirectory;
+
+        private final File mavenHome;
+
+        private final String executable;
+
+        Key(File baseDirectory, File mavenHome, String executable) {
+            this.baseDirectory = baseDirectory;
+            this.mavenHome = mavenHome;
+            this.executable = executable;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(baseDirectory, other.baseDirectory)
+                    && Objects.equals(mavenHome, other.mavenHome)
+                    && executable.equals(other.executable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseDirectory, mavenHome, executable);
+        }
+    }
+
+    private static final class Entry {
+
+        private final File file;
+
+        private final long baseDirectoryStamp;
+
+        private final long mavenHomeStamp;
+
+        Entry(File file, long baseDirectoryStamp, long mavenHomeStamp) {
+            this.file = file;
+            this.baseDirectoryStamp = baseDirectoryStamp;
+            this.mavenHomeStamp = mavenHomeStamp;
+        }
+    }
+}
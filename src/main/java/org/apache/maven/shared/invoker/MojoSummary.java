@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+
+/**
+ * The summary of a mojo execution of a module, as recorded by the build event spy, see
+ * {@link InvocationRequest#setBuildEventsRecorded(boolean)}.
+ *
+ * @since 3.4.0
+ */
+public final class MojoSummary {
+
+    private final String pluginId;
+
+    private final String goal;
+
+    private final String executionId;
+
+    private final BuildStatus status;
+
+    private final Duration duration;
+
+    private final String failure;
+
+    MojoSummary(
+            String pluginId, String goal, String executionId, BuildStatus status, Duration duration, String failure) {
+        this.pluginId = pluginId;
+        this.goal = goal;
+        this.executionId = executionId;
+        this.status = status;
+        this.duration = duration;
+        this.failure = failure;
+    }
+
+    /**
+     * Gets the identifier of the plugin.
+     *
+     * @return The identifier in the form <code>groupId:artifactId:version</code>, never <code>null</code>.
+     */
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    /**
+     * Gets the goal of the mojo.
+     *
+     * @return The goal, never <code>null</code>.
+     */
+    public String getGoal() {
+        return goal;
+    }
+
+    /**
+     * Gets the identifier of the execution.
+     *
+     * @return The execution identifier, <code>null</code> if Maven does not report it.
+     */
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * Gets the outcome of the mojo execution.
+     *
+     * @return The outcome or <code>null</code> if the mojo did not finish.
+     */
+    public BuildStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the time spent executing the mojo.
+     *
+     * @return The duration or <code>null</code> if the mojo did not finish.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the message of the failure of the mojo.
+     *
+     * @return The message or <code>null</code> if the mojo did not fail.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return pluginId + ':' + goal + (executionId != null ? " (" + executionId + ")" : "") + " " + status;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Builds the command line for the Maven daemon client. The daemon client understands the same options as Maven,
+ * except for <code>MAVEN_OPTS</code> which configure the daemon JVM via <code>mvnd.jvmArgs</code> instead.
+ */
+class MvndCommandLineBuilder extends MavenCommandLineBuilder {
+
+    private final File mvndExecutable;
+
+    MvndCommandLineBuilder(File mvndExecutable) {
+        this.mvndExecutable = mvndExecutable;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void setupMavenExecutable(InvocationRequest request) {
+        setMavenExecutable(mvndExecutable);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void setShellEnvironment(InvocationRequest request, Commandline cli) {
+        cli.setShellEnvironmentInherited(request.isShellEnvironmentInherited());
+
+        if (request.getJavaHome() != null) {
+            cli.addEnvironment("JAVA_HOME", request.getJavaHome().getAbsolutePath());
+        }
+
+        String mavenOpts = request.getMavenOpts();
+
+        for (Map.Entry<String, String> entry : request.getShellEnvironments().entrySet()) {
+            if ("MAVEN_OPTS".equals(entry.getKey())) {
+                mavenOpts = entry.getValue();
+            } else {
+                cli.addEnvironment(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (mavenOpts != null && !mavenOpts.trim().isEmpty()) {
+            cli.createArg().setValue("-D");
+            cli.createArg().setValue("mvnd.jvmArgs=" + mavenOpts.trim());
+        }
+    }
+}
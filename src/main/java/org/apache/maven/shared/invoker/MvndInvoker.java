@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.io.File;
+
+import org.apache.maven.shared.utils.Os;
+
+/**
+ * Invokes Maven through the client of the <a href="https://github.com/apache/maven-mvnd">Maven daemon</a>, so that
+ * repeated invocations are served by warm daemon JVMs instead of forking a cold Maven process each time.
+ * <p>
+ * The daemon client is looked up in the <code>bin</code> directory of the configured daemon home, the system
+ * property <code>mvnd.home</code> or the environment variable <code>MVND_HOME</code>. Invocations fall back to a
+ * classic forked Maven process if no daemon client is found or if a Maven executable was explicitly configured.
+ * <p>
+ * The daemon client reuses a running daemon as long as it is compatible with the requested Java home and JVM options,
+ * which are passed as <code>mvnd.jvmArgs</code> instead of <code>MAVEN_OPTS</code>. Without a requested number of
+ * threads, the daemon builds in parallel using its own default.
+ *
+ * @since 3.4.0
+ */
+@Named(MvndInvoker.ROLE_HINT)
+@Singleton
+public class MvndInvoker extends DefaultInvoker {
+    /** Constant <code>ROLE_HINT="mvnd"</code> */
+    public static final String ROLE_HINT = "mvnd";
+
+    private File mvndHome;
+
+    /** {@inheritDoc} */
+    @Override
+    protected MavenCommandLineBuilder newCommandLineBuilder(InvocationRequest request) {
+        if (request.getMavenExecutable() == null && getMavenExecutable() == null) {
+            File mvndExecutable = findMvndExecutable();
+
+            if (mvndExecutable != null) {
+                getLogger().debug("Using Maven daemon client: '" + mvndExecutable + "'.");
+
+                return new MvndCommandLineBuilder(mvndExecutable);
+            }
+
+            getLogger().debug("Maven daemon client not found, falling back to forking Maven.");
+        }
+
+        return super.newCommandLineBuilder(request);
+    }
+
+    /**
+     * Finds the daemon client in the daemon home.
+     *
+     * @return The daemon client or <code>null</code> if not found.
+     */
+    File findMvndExecutable() {
+        File home = mvndHome;
+
+        if (home == null && System.getProperty("mvnd.home") != null) {
+            home = new File(System.getProperty("mvnd.home"));
+        }
+
+        if (home == null && System.getenv("MVND_HOME") != null) {
+            home = new File(System.getenv("MVND_HOME"));
+        }
+
+        if (home == null) {
+            return null;
+        }
+
+        String[] executables = Os.isFamily(Os.FAMILY_WINDOWS)
+                ? new String[] {"mvnd.exe", "mvnd.cmd"}
+                : new String[] {"mvnd", "mvnd.sh"};
+
+        for (String executable : executables) {
+            File executableFile = new File(home, "bin/" + executable);
+            if (executableFile.isFile()) {
+                return executableFile.getAbsoluteFile();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the path to the base directory of the Maven daemon installation.
+     *
+     * @return The path to the base directory of the Maven daemon installation or <code>null</code> if using the
+     *         default Maven daemon installation.
+     */
+    public File getMvndHome() {
+        return mvndHome;
+    }
+
+    /**
+     * Sets the path to the base directory of the Maven daemon installation. This parameter may be left unspecified to
+     * use the installation given by the system property <code>mvnd.home</code> or the environment variable
+     * <code>MVND_HOME</code>.
+     *
+     * @param mvndHome The path to the base directory of the Maven daemon installation, may be <code>null</code>.
+     * @return This invoker instance.
+     */
+    public MvndInvoker setMvndHome(File mvndHome) {
+        this.mvndHome = mvndHome;
+        return this;
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.maven.shared.utils.Os;
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.CommandLineUtils;
+import org.apache.maven.shared.utils.cli.Commandline;
+
+/**
+ * Invokes Maven in a pool of warm JVMs, which boot Maven once and then execute one request after the other, so that
+ * repeated invocations skip the startup of the JVM and of Maven. The JVMs are pooled per Maven home, Java home and
+ * Maven options of the requests; the Maven options are passed to the JVM as its options.
+ * <p>
+ * A JVM is recycled after a number of builds or once the heap it retains after garbage collection has grown by a
+ * limit. To hide the startup of new JVMs, a number of idle JVMs is started ahead of time for each key in use.
+ * <p>
+ * Like with {@link EmbeddedInvoker}, a request is forked as usual if it sets shell environment variables, if it is
+ * interactive with an input stream, if the project configures JVM options in <code>.mvn/jvm.config</code> or if the
+ * Maven executable is not the <code>mvn</code> script of a Maven installation.
+ *
+ * @since 3.4.0
+ */
+@Named(PooledInvoker.ROLE_HINT)
+@Singleton
+public class PooledInvoker extends DefaultInvoker {
+    /** Constant <code>ROLE_HINT="pooled"</code> */
+    public static final String ROLE_HINT = "pooled";
+
+    private final Map<Key, Pool> pools = new HashMap<>();
+
+    private int maxBuildsPerJvm = 50;
+
+    private long maxHeapGrowth = 256L * 1024 * 1024;
+
+    private int minIdleJvms = 1;
+
+    private int maxIdleJvms = Runtime.getRuntime().availableProcessors();
+
+    private int bootTimeoutInSeconds = 120;
+
+    /** {@inheritDoc} */
+    @Override
+    InvocationResult executeCommandLine(Commandline cli, InvocationRequest request) {
+        File mavenHome = canPool(cli, request) ? EmbeddedInvoker.findEmbeddableMavenHome(cli) : null;
+
+        if (mavenHome == null) {
+            return super.executeCommandLine(cli, request);
+        }
+
+        Key key;
+        WarmMavenJvm jvm;
+        try {
+            key = new Key(mavenHome.getCanonicalFile(), request.getJavaHome(), request.getMavenOpts());
+            jvm = acquire(key);
+        } catch (IOException e) {
+            getLogger().warn("Failed to start warm JVM for Maven home: '" + mavenHome + "', forking Maven.", e);
+            return super.executeCommandLine(cli, request);
+        }
+
+        try {
+            jvm.awaitReady(bootTimeoutInSeconds);
+        } catch (IOException e) {
+            getLogger().warn("Failed to boot Maven in warm JVM, forking Maven.", e);
+            return super.executeCommandLine(cli, request);
+        }
+
+        if (getLogger().isDebugEnabled()) {
+            getLogger().debug("Executing in warm JVM: " + cli);
+        }
+
+        File workingDirectory = cli.getWorkingDirectory();
+        if (workingDirectory == null) {
+            workingDirectory = new File(System.getProperty("user.dir"));
+        }
+
+        DefaultInvocationResult result = new DefaultInvocationResult();
+        ProcessTerminator terminator = newProcessTerminator(request);
+        File buildEvents = null;
+        try {
+            buildEvents = addBuildEventsFile(cli, request);
+            result.setExitCode(jvm.execute(
+                    cli.getArguments(),
+                    workingDirectory.getAbsoluteFile(),
+                    getByteOutputHandler(request, result),
+                    getByteErrorHandler(request, result),
+                    request.getTimeoutInSeconds(),
+                    terminator));
+        } catch (CommandLineException e) {
+            result.setExecutionException(e);
+        } finally {
+            readTermination(terminator, result);
+            release(key, jvm);
+            readBuildEvents(buildEvents, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Tells whether the request can run in a pooled JVM.
+     */
+    boolean canPool(Commandline cli, InvocationRequest request) {
+        if (!request.getShellEnvironments().isEmpty()
+                || !request.isShellEnvironmentInherited()
+                || request.getOutputRedirect() != null
+                || request.getErrorRedirect() != null
+                || (!request.isBatchMode() && getInputStream(request) != null)) {
+            return false;
+        }
+
+        File workingDirectory = cli.getWorkingDirectory();
+        return workingDirectory == null
+                || !new File(EmbeddedMaven.findMultiModuleProjectDirectory(workingDirectory), ".mvn/jvm.config")
+                        .isFile();
+    }
+
+    private WarmMavenJvm acquire(Key key) throws IOException {
+        WarmMavenJvm jvm = null;
+        int spares;
+
+        synchronized (pools) {
+            Pool pool = pools.computeIfAbsent(key, k -> new Pool());
+            while (jvm == null && !pool.idle.isEmpty()) {
+                jvm = pool.idle.poll();
+                if (!jvm.isAlive()) {
+                    jvm = null;
+                }
+            }
+            // reserve the slots of the spare JVMs, so that concurrent requests do not start them too
+            spares = Math.max(0, Math.min(minIdleJvms, maxIdleJvms) - pool.idle.size() - pool.starting);
+            pool.starting += spares;
+        }
+
+        try {
+            if (jvm == null) {
+                jvm = start(key);
+            }
+
+            // prepare the JVMs for the next requests while this one is running
+            for (; spares > 0; spares--) {
+                WarmMavenJvm spare = start(key);
+                synchronized (pools) {
+                    Pool pool = pools.get(key);
+                    pool.starting--;
+                    if (pool.idle.size() < maxIdleJvms) {
+                        pool.idle.add(spare);
+                        spare = null;
+                    }
+                }
+                if (spare != null) {
+                    spare.destroy();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (jvm != null) {
+                jvm.destroy();
+            }
+            throw e;
+        } finally {
+            synchronized (pools) {
+                pools.get(key).starting -= spares;
+            }
+        }
+
+        return jvm;
+    }
+
+    private void release(Key key, WarmMavenJvm jvm) {
+        if (jvm.isAlive() && jvm.getBuilds() < maxBuildsPerJvm && jvm.getHeapGrowth() <= maxHeapGrowth) {
+            synchronized (pools) {
+                Deque<WarmMavenJvm> idle = pools.computeIfAbsent(key, k -> new Pool()).idle;
+                if (idle.size() < maxIdleJvms) {
+                    idle.push(jvm);
+                    return;
+                }
+            }
+        }
+
+        getLogger().debug("Recycling warm JVM after " + jvm.getBuilds() + " builds.");
+        jvm.release();
+    }
+
+    private WarmMavenJvm start(Key key) throws IOException {
+        File javaHome = key.javaHome != null ? key.javaHome : new File(System.getProperty("java.home"));
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(javaHome, Os.isFamily(Os.FAMILY_WINDOWS) ? "bin/java.exe" : "bin/java").getPath());
+        if (key.mavenOpts != null) {
+            try {
+                command.addAll(Arrays.asList(CommandLineUtils.translateCommandline(key.mavenOpts)));
+            } catch (Exception e) {
+                throw new IOException("Invalid Maven options: " + key.mavenOpts, e);
+            }
+        }
+        command.add("-cp");
+        command.add(getClassPath());
+        command.add(EmbeddedMavenServer.class.getName());
+        command.add(key.mavenHome.getPath());
+
+        getLogger().debug("Starting warm JVM: " + command);
+
+        return WarmMavenJvm.start(command, key.javaHome);
+    }
+
+    private static String getClassPath() throws IOException {
+        try {
+            return new File(EmbeddedMavenServer.class
+                            .getProtectionDomain()
+                            .getCodeSource()
+                            .getLocation()
+                            .toURI())
+                    .getPath();
+        } catch (URISyntaxException | RuntimeException e) {
+            throw new IOException("Cannot locate the classes of the invoker", e);
+        }
+    }
+
+    /**
+     * Terminates all idle JVMs. JVMs running a request terminate once it has finished.
+     */
+    public void dispose() {
+        List<WarmMavenJvm> disposed = new ArrayList<>();
+
+        synchronized (pools) {
+            for (Pool pool : pools.values()) {
+                disposed.addAll(pool.idle);
+                pool.idle.clear();
+            }
+        }
+
+        for (WarmMavenJvm jvm : disposed) {
+            jvm.release();
+        }
+    }
+
+    /**
+     * Gets the number of builds after which a JVM is recycled.
+     *
+     * @return The number of builds after which a JVM is recycled.
+     */
+    public int getMaxBuildsPerJvm() {
+        return maxBuildsPerJvm;
+    }
+
+    /**
+     * Sets the number of builds after which a JVM is recycled, defaults to 50.
+     *
+     * @param maxBuildsPerJvm The number of builds after which a JVM is recycled, must be positive.
+     * @return This invoker instance.
+     */
+    public PooledInvoker setMaxBuildsPerJvm(int maxBuildsPerJvm) {
+        if (maxBuildsPerJvm < 1) {
+            throw new IllegalArgumentException("maxBuildsPerJvm must be positive: " + maxBuildsPerJvm);
+        }
+        this.maxBuildsPerJvm = maxBuildsPerJvm;
+        return this;
+    }
+
+    /**
+     * Gets the growth of the retained heap after which a JVM is recycled.
+     *
+     * @return The growth of the retained heap in bytes.
+     */
+    public long getMaxHeapGrowth() {
+        return maxHeapGrowth;
+    }
+
+    /**
+     * Sets the growth of the heap retained after garbage collection, compared to the first build of a JVM, after which
+     * the JVM is recycled. Defaults to 256 MiB.
+     *
+     * @param maxHeapGrowth The growth of the retained heap in bytes, must not be negative.
+     * @return This invoker instance.
+     */
+    public PooledInvoker setMaxHeapGrowth(long maxHeapGrowth) {
+        if (maxHeapGrowth < 0) {
+            throw new IllegalArgumentException("maxHeapGrowth must not be negative: " + maxHeapGrowth);
+        }
+        this.maxHeapGrowth = maxHeapGrowth;
+        return this;
+    }
+
+    /**
+     * Gets the number of idle JVMs started ahead of time per key.
+     *
+     * @return The number of idle JVMs started ahead of time.
+     */
+    public int getMinIdleJvms() {
+        return minIdleJvms;
+    }
+
+    /**
+     * Sets the number of idle JVMs started ahead of time per Maven home, Java home and Maven options in use, defaults
+     * to 1.
+     *
+     * @param minIdleJvms The number of idle JVMs started ahead of time, must not be negative.
+     * @return This invoker instance.
+     */
+    public PooledInvoker setMinIdleJvms(int minIdleJvms) {
+        if (minIdleJvms < 0) {
+            throw new IllegalArgumentException("minIdleJvms must not be negative: " + minIdleJvms);
+        }
+        this.minIdleJvms = minIdleJvms;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of idle JVMs kept per key.
+     *
+     * @return The maximum number of idle JVMs.
+     */
+    public int getMaxIdleJvms() {
+        return maxIdleJvms;
+    }
+
+    /**
+     * Sets the maximum number of idle JVMs kept per Maven home, Java home and Maven options, defaults to the number
+     * of available processors. JVMs released beyond this number are terminated.
+     *
+     * @param maxIdleJvms The maximum number of idle JVMs, must not be negative.
+     * @return This invoker instance.
+     */
+    public PooledInvoker setMaxIdleJvms(int maxIdleJvms) {
+        if (maxIdleJvms < 0) {
+            throw new IllegalArgumentException("maxIdleJvms must not be negative: " + maxIdleJvms);
+        }
+        this.maxIdleJvms = maxIdleJvms;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time to wait for a new JVM to boot Maven.
+     *
+     * @return The maximum time to wait in seconds.
+     */
+    public int getBootTimeoutInSeconds() {
+        return bootTimeoutInSeconds;
+    }
+
+    /**
+     * Sets the maximum time to wait for a new JVM to boot Maven, defaults to 120 seconds. A JVM which does not boot in
+     * time is terminated and the request is forked instead.
+     *
+     * @param bootTimeoutInSeconds The maximum time to wait in seconds, must be positive.
+     * @return This invoker instance.
+     */
+    public PooledInvoker setBootTimeoutInSeconds(int bootTimeoutInSeconds) {
+        if (bootTimeoutInSeconds < 1) {
+            throw new IllegalArgumentException("bootTimeoutInSeconds must be positive: " + bootTimeoutInSeconds);
+        }
+        this.bootTimeoutInSeconds = bootTimeoutInSeconds;
+        return this;
+    }
+
+    /**
+     * The idle JVMs of a key. Guarded by the map of the pools.
+     */
+    private static final class Pool {
+
+        final Deque<WarmMavenJvm> idle = new ArrayDeque<>();
+
+        /**
+         * The number of spare JVMs being started.
+         */
+        int starting;
+    }
+
+    /**
+     * The configuration shared by the JVMs of a pool.
+     */
+    private static final class Key {
+
+        private final File mavenHome;
+
+        private final File javaHome;
+
+        private final String mavenOpts;
+
+        Key(File mavenHome, File javaHome, String mavenOpts) {
+            this.mavenHome = mavenHome;
+            this.javaHome = javaHome;
+            this.mavenOpts = mavenOpts;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return mavenHome.equals(other.mavenHome)
+                    && Objects.equals(javaHome, other.javaHome)
+                    && Objects.equals(mavenOpts, other.mavenOpts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mavenHome, javaHome, mavenOpts);
+        }
+    }
+}
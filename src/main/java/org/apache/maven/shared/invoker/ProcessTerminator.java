@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.utils.Os;
+
+/**
+ * Terminates a forked Maven process together with its descendants, e.g. the JVM started by the <code>mvn</code>
+ * script and the JVMs forked by Surefire, which survive the destruction of the direct child alone. The processes of the
+ * tree are requested to terminate, given a grace period to run their shutdown hooks and then killed. The descendants
+ * are tracked together with their start time, so a process reusing the pid of a descendant which terminated during
+ * the grace period is not killed. On timeout, the threads of the Java processes of the tree can be dumped with
+ * <code>jcmd</code> before they are terminated.
+ */
+final class ProcessTerminator {
+
+    static final long POLLING_INTERVAL = 100;
+
+    private static final int THREAD_DUMP_TIMEOUT = 10;
+
+    private final int gracePeriodInSeconds;
+
+    private final boolean threadDumped;
+
+    private volatile boolean timedOut;
+
+    private volatile String threadDump;
+
+    /**
+     * Creates a new terminator.
+     *
+     * @param gracePeriodInSeconds The time the processes are given to terminate before they are killed, a value less
+     *            than or equal to zero to kill them immediately.
+     * @param threadDumped <code>true</code> to dump the threads of the Java processes on timeout, <code>false</code>
+     *            otherwise.
+     */
+    ProcessTerminator(int gracePeriodInSeconds, boolean threadDumped) {
+        this.gracePeriodInSeconds = gracePeriodInSeconds;
+        this.threadDumped = threadDumped;
+    }
+
+    /**
+     * Records that the given process timed out and dumps the threads of its Java processes if requested. The process
+     * is not terminated, which is left to {@link #terminate(Process)}.
+     *
+     * @param process The process that timed out, must not be <code>null</code>.
+     */
+    void timeOut(Process process) {
+        timedOut = true;
+        if (threadDumped) {
+            threadDump = dumpThreads(process);
+        }
+    }
+
+    /**
+     * Tells whether {@link #timeOut(Process)} has been called.
+     */
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Gets the thread dumps of the Java processes that timed out.
+     *
+     * @return The thread dumps or <code>null</code> if no thread was dumped.
+     */
+    String getThreadDump() {
+        return threadDump;
+    }
+
+    /**
+     * Requests the given process and its descendants to terminate, waits for the grace period and kills those still
+     * alive. An interrupted thread does not wait for the grace period.
+     *
+     * @param process The root of the process tree, must not be <code>null</code>.
+     */
+    void terminate(Process process) {
+        long pid = ProcessTree.pid(process);
+
+        // the tree is collected first, since the descendants of a terminated process are reparented
+        List<DescendantProcess> descendants = new ArrayList<>();
+        if (pid >= 0) {
+            descendants.addAll(ProcessTree.descendantProcesses(pid));
+        }
+
+        process.destroy();
+        for (DescendantProcess descendant : descendants) {
+            descendant.destroy(false);
+        }
+
+        boolean interrupted = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(gracePeriodInSeconds, 0));
+        while (isAlive(process, descendants) && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLLING_INTERVAL);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                break;
+            }
+        }
+
+        if (pid >= 0 && process.isAlive()) {
+            // the processes started during the grace period
+            descendants.addAll(ProcessTree.descendantProcesses(pid));
+        }
+
+        process.destroyForcibly();
+        for (DescendantProcess descendant : descendants) {
+            descendant.destroy(true);
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isAlive(Process process, List<DescendantProcess> descendants) {
+        if (process.isAlive()) {
+            return true;
+        }
+        for (DescendantProcess descendant : descendants) {
+            if (descendant.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dumps the threads of the Java processes of the given process tree with the <code>jcmd</code> tool of the current
+     * JDK.
+     *
+     * @return The concatenated thread dumps or <code>null</code> if no thread could be dumped.
+     */
+    static String dumpThreads(Process process) {
+        File jcmd = findJcmd();
+        long pid = ProcessTree.pid(process);
+        if (jcmd == null || pid < 0) {
+            return null;
+        }
+
+        List<Long> tree = new ArrayList<>();
+        tree.add(pid);
+        tree.addAll(ProcessTree.descendants(pid));
+
+        StringBuilder dumps = new StringBuilder();
+        for (long member : tree) {
+            if (isJava(ProcessTree.command(member))) {
+                String dump = dumpThreads(jcmd, member);
+                if (dump != null) {
+                    dumps.append(dump);
+                }
+            }
+        }
+        return dumps.length() > 0 ? dumps.toString() : null;
+    }
+
+    private static String dumpThreads(File jcmd, long pid) {
+        File output = null;
+        try {
+            output = File.createTempFile("maven-invoker-threads", ".txt");
+            Process process = new ProcessBuilder(jcmd.getPath(), Long.toString(pid), "Thread.print")
+                    .redirectErrorStream(true)
+                    .redirectOutput(output)
+                    .start();
+            if (!process.waitFor(THREAD_DUMP_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return null;
+            }
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            return new String(Files.readAllBytes(output.toPath()), Charset.defaultCharset());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (output != null && !output.delete()) {
+                output.deleteOnExit();
+            }
+        }
+    }
+
+    private static boolean isJava(String command) {
+        if (command == null) {
+            return false;
+        }
+        String name = new File(command).getName();
+        return name.equals("java") || name.equals("java.exe");
+    }
+
+    /**
+     * Finds <code>jcmd</code> in the current JDK, whose <code>java.home</code> is the <code>jre</code> directory up to
+     * Java 8.
+     */
+    private static File findJcmd() {
+        String executable = Os.isFamily(Os.FAMILY_WINDOWS) ? "bin/jcmd.exe" : "bin/jcmd";
+        File javaHome = new File(System.getProperty("java.home"));
+        for (File home : new File[] {javaHome, javaHome.getParentFile()}) {
+            File jcmd = home == null ? null : new File(home, executable);
+            if (jcmd != null && jcmd.isFile()) {
+                return jcmd;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds and signals the processes of a forked Maven process tree. This implementation obtains the pid reflectively,
+ * finds the descendants by scanning the parent pids in <code>/proc</code> and signals them with <code>kill</code> after
+ * checking their start time, so it only handles descendants on Linux. The Java 9+ variant of this class in
+ * <code>META-INF/versions/9</code> uses {@link Process#pid()} and <code>ProcessHandle</code> instead.
+ */
+final class ProcessTree {
+
+    /**
+     * The indices of the fields of <code>/proc/&lt;pid&gt;/stat</code> as returned by {@link #stat(long)}.
+     */
+    private static final int STATE = 0;
+
+    private static final int START_TIME = 19;
+
+    private ProcessTree() {
+        // utility class
+    }
+
+    /**
+     * Gets the pid of the given process.
+     *
+     * @param process The process, must not be <code>null</code>.
+     * @return The pid or <code>-1</code> if it cannot be determined.
+     */
+    static long pid(Process process) {
+        try {
+            // Java 9+
+            Method pid = Process.class.getMethod("pid");
+            return (Long) pid.invoke(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8 on Unix
+        }
+
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the pids of the live descendants of the given process.
+     *
+     * @param pid The pid of the root of the tree.
+     * @return The pids of the descendants, never <code>null</code>.
+     */
+    static List<Long> descendants(long pid) {
+        List<Long> descendants = new ArrayList<>();
+
+        File[] entries = new File("/proc").listFiles();
+        if (entries == null) {
+            return descendants;
+        }
+
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (File entry : entries) {
+            long child = toPid(entry.getName());
+            if (child < 0) {
+                continue;
+            }
+            long parent;
+            try {
+                parent = parentPid(
+                        new String(Files.readAllBytes(new File(entry, "stat").toPath()), StandardCharsets.US_ASCII));
+            } catch (IOException | RuntimeException e) {
+                // terminated meanwhile
+                continue;
+            }
+            children.computeIfAbsent(parent, key -> new ArrayList<>()).add(child);
+        }
+
+        for (int i = -1; i < descendants.size(); i++) {
+            List<Long> next = children.get(i < 0 ? pid : descendants.get(i));
+            if (next != null) {
+                descendants.addAll(next);
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * Gets the live descendants of the given process, bound to their start time.
+     *
+     * @param pid The pid of the root of the tree.
+     * @return The descendants, never <code>null</code>.
+     */
+    static List<DescendantProcess> descendantProcesses(long pid) {
+        List<DescendantProcess> processes = new ArrayList<>();
+        for (long descendant : descendants(pid)) {
+            String[] fields = stat(descendant);
+            if (fields != null) {
+                processes.add(new Descendant(descendant, fields[START_TIME]));
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Tells whether the given process is alive, i.e. it exists and is not a zombie.
+     *
+     * @param pid The pid of the process.
+     * @return <code>true</code> if the process is alive, <code>false</code> otherwise.
+     */
+    static boolean isAlive(long pid) {
+        String[] fields = stat(pid);
+        return fields != null && !fields[STATE].equals("Z");
+    }
+
+    /**
+     * Gets the executable of the given process.
+     *
+     * @param pid The pid of the process.
+     * @return The path to the executable or <code>null</code> if it cannot be determined.
+     */
+    static String command(long pid) {
+        try {
+            byte[] cmdline = Files.readAllBytes(new File("/proc/" + pid + "/cmdline").toPath());
+            int end = 0;
+            while (end < cmdline.length && cmdline[end] != 0) {
+                end++;
+            }
+            return end > 0 ? new String(cmdline, 0, end, StandardCharsets.UTF_8) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the fields of <code>/proc/&lt;pid&gt;/stat</code> following the command name in parentheses, which may
+     * contain any character.
+     *
+     * @return The fields starting with the state or <code>null</code> if the process does not exist or its fields
+     *         cannot be read.
+     */
+    private static String[] stat(long pid) {
+        try {
+            String stat = new String(
+                    Files.readAllBytes(new File("/proc/" + pid + "/stat").toPath()), StandardCharsets.US_ASCII);
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return fields.length > START_TIME ? fields : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void kill(long pid, boolean forcibly) {
+        try {
+            new ProcessBuilder("kill", forcibly ? "-KILL" : "-TERM", Long.toString(pid))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("/dev/null")))
+                    .start()
+                    .waitFor();
+        } catch (IOException e) {
+            // no kill command, the process is not in /proc either
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long toPid(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        return name.isEmpty() ? -1 : Long.parseLong(name);
+    }
+
+    /**
+     * Gets the parent pid from the content of <code>/proc/&lt;pid&gt;/stat</code>, whose fields follow the command
+     * name in parentheses, which may contain any character.
+     */
+    private static long parentPid(String stat) {
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        return Long.parseLong(fields[1]);
+    }
+
+    /**
+     * A descendant found in <code>/proc</code>, which is only signaled while its pid still belongs to a process with
+     * the same start time.
+     */
+    static final class Descendant implements DescendantProcess {
+
+        private final long pid;
+
+        private final String startTime;
+
+        Descendant(long pid, String startTime) {
+            this.pid = pid;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public long pid() {
+            return pid;
+        }
+
+        @Override
+        public boolean isAlive() {
+            String[] fields = stat(pid);
+            return fields != null && !fields[STATE].equals("Z") && fields[START_TIME].equals(startTime);
+        }
+
+        @Override
+        public void destroy(boolean forcibly) {
+            if (isAlive()) {
+                kill(pid, forcibly);
+            }
+        }
+    }
+}
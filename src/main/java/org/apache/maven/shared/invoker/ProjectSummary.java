@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The summary of a single module of a build, see {@link BuildSummary}.
+ *
+ * @since 3.4.0
+ */
+public final class ProjectSummary {
+
+    private final String id;
+
+    private final String name;
+
+    private final BuildStatus status;
+
+    private final Duration duration;
+
+    private final int testsRun;
+
+    private final int testFailures;
+
+    private final int testErrors;
+
+    private final int testsSkipped;
+
+    private final String failure;
+
+    private final List<MojoSummary> mojos;
+
+    private final List<String> upstreamProjects;
+
+    private ProjectSummary(Builder builder) {
+        this.id = builder.id;
+        this.name = builder.name;
+        this.status = builder.status;
+        this.duration = builder.duration;
+        this.testsRun = builder.testsRun;
+        this.testFailures = builder.testFailures;
+        this.testErrors = builder.testErrors;
+        this.testsSkipped = builder.testsSkipped;
+        this.failure = builder.failure;
+        this.mojos = Collections.unmodifiableList(builder.mojos);
+        this.upstreamProjects = Collections.unmodifiableList(builder.upstreamProjects);
+    }
+
+    /**
+     * Gets the identifier of the module.
+     *
+     * @return The identifier in the form <code>groupId:artifactId</code> or <code>null</code> if the module was not
+     *         started or Maven does not report it.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the module as displayed by Maven.
+     *
+     * @return The name of the module, never <code>null</code>.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the outcome of the module.
+     *
+     * @return The outcome of the module or <code>null</code> if the module did not finish.
+     */
+    public BuildStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the time spent building the module.
+     *
+     * @return The duration of the module or <code>null</code> if the module did not finish.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the number of tests run in the module, summed over all test summaries reported for it.
+     *
+     * @return The number of tests run.
+     */
+    public int getTestsRun() {
+        return testsRun;
+    }
+
+    /**
+     * Gets the number of failed tests of the module.
+     *
+     * @return The number of failed tests.
+     */
+    public int getTestFailures() {
+        return testFailures;
+    }
+
+    /**
+     * Gets the number of tests of the module that ended with an error.
+     *
+     * @return The number of tests in error.
+     */
+    public int getTestErrors() {
+        return testErrors;
+    }
+
+    /**
+     * Gets the number of skipped tests of the module.
+     *
+     * @return The number of skipped tests.
+     */
+    public int getTestsSkipped() {
+        return testsSkipped;
+    }
+
+    /**
+     * Gets the message of the failure of the module. Only recorded build events report the failure.
+     *
+     * @return The message or <code>null</code> if the module did not fail or the failure is unknown.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the mojo executions of the module in the order they were started. Only recorded build events report the
+     * mojo executions.
+     *
+     * @return The unmodifiable list of mojo executions, never <code>null</code>.
+     */
+    public List<MojoSummary> getMojos() {
+        return mojos;
+    }
+
+    /**
+     * Gets the modules of the build which this module directly depends on, e.g. as dependency, plugin, extension or
+     * parent. Only recorded build events report the dependencies between the modules.
+     *
+     * @return The unmodifiable list of the identifiers of the upstream modules in the form
+     *         <code>groupId:artifactId</code>, never <code>null</code>.
+     */
+    public List<String> getUpstreamProjects() {
+        return upstreamProjects;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + status + (duration != null ? " [" + duration + "]" : "");
+    }
+
+    /**
+     * Collects the state of a module reported by the build output or events.
+     */
+    static final class Builder {
+
+        private final String id;
+
+        private final String name;
+
+        private BuildStatus status;
+
+        private Duration duration;
+
+        private int testsRun;
+
+        private int testFailures;
+
+        private int testErrors;
+
+        private int testsSkipped;
+
+        private String failure;
+
+        private List<MojoSummary> mojos = Collections.emptyList();
+
+        private List<String> upstreamProjects = Collections.emptyList();
+
+        /**
+         * Creates a builder of the given module.
+         *
+         * @param id The identifier of the module, may be <code>null</code>.
+         * @param name The name of the module, must not be <code>null</code>.
+         */
+        Builder(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        Builder setStatus(BuildStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        Builder setDuration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        Builder setTests(int testsRun, int testFailures, int testErrors, int testsSkipped) {
+            this.testsRun = testsRun;
+            this.testFailures = testFailures;
+            this.testErrors = testErrors;
+            this.testsSkipped = testsSkipped;
+            return this;
+        }
+
+        Builder setFailure(String failure) {
+            this.failure = failure;
+            return this;
+        }
+
+        Builder setMojos(List<MojoSummary> mojos) {
+            this.mojos = mojos;
+            return this;
+        }
+
+        Builder setUpstreamProjects(List<String> upstreamProjects) {
+            this.upstreamProjects = upstreamProjects;
+            return this;
+        }
+
+        ProjectSummary build() {
+            return new ProjectSummary(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A part of the modules of a reactor, built by its own invocation of Maven, see {@link ReactorShardPlanner}.
+ *
+ * @since 3.4.0
+ */
+public final class ReactorShard {
+
+    private final int index;
+
+    private final List<String> projects;
+
+    private final List<Integer> upstreamShards;
+
+    ReactorShard(int index, List<String> projects, List<Integer> upstreamShards) {
+        this.index = index;
+        this.projects = Collections.unmodifiableList(projects);
+        this.upstreamShards = Collections.unmodifiableList(upstreamShards);
+    }
+
+    /**
+     * Gets the index of the shard in its plan.
+     *
+     * @return The index of the shard.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the modules of the shard in reactor order.
+     *
+     * @return The unmodifiable list of the identifiers of the modules in the form <code>groupId:artifactId</code>,
+     *         never <code>null</code>.
+     */
+    public List<String> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Gets the shards containing modules which the modules of this shard depend on. Upstream shards always have a lower
+     * index than this shard.
+     *
+     * @return The unmodifiable list of the indices of the upstream shards in ascending order, never <code>null</code>.
+     */
+    public List<Integer> getUpstreamShards() {
+        return upstreamShards;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " " + projects;
+    }
+}
@@ -0,0 +1,485 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Splits the modules of a reactor into shards and builds each shard by its own invocation of Maven, so that the
+ * independent parts of a large reactor are built in parallel processes.
+ * <p>
+ * The modules and the dependencies between them are read from the build events of a quick invocation of the
+ * <code>validate</code> phase. The modules are then assigned in reactor order to the shard containing most of their
+ * upstream modules, as long as the shard does not exceed its share of the reactor, or else to a new shard. Shards
+ * which only follow each other are merged, since they cannot run in parallel anyway.
+ * <p>
+ * Each shard is executed as a copy of the original request selecting the modules of the shard with
+ * {@link InvocationRequest#getProjects()}. A shard starts once its upstream shards succeeded, and its modules consume
+ * the artifacts of the upstream modules from the local repository shared by all shards, so the goals of the request
+ * must install the artifacts, e.g. <code>install</code>. The shards of an upstream shard which failed are not
+ * started. Since the shards share the project directories and the local repository, no shard builds the modules of
+ * another shard, e.g. with {@link InvocationRequest#setAlsoMake(boolean)}.
+ * <p>
+ * All shards share the output handlers of the request, so their output is interleaved. Shards resolving the same
+ * artifacts from remote repositories at the same time may contend for the local repository, which can be avoided by
+ * warming it beforehand with {@link LocalRepositoryWarmer}.
+ *
+ * @since 3.4.0
+ */
+public class ReactorShardPlanner {
+
+    private static final List<String> GRAPH_GOALS = Collections.singletonList("validate");
+
+    private final AsyncInvoker invoker;
+
+    private int shardCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a new planner.
+     *
+     * @param invoker The invoker executing the invocations, must not be <code>null</code>.
+     */
+    public ReactorShardPlanner(AsyncInvoker invoker) {
+        if (invoker == null) {
+            throw new NullPointerException("missing invoker");
+        }
+        this.invoker = invoker;
+    }
+
+    /**
+     * Sets the number of shards the reactor is split into. Fewer shards are planned if the dependencies between the
+     * modules do not allow more to run in parallel. Defaults to the number of available processors.
+     *
+     * @param shardCount The number of shards, must be positive.
+     * @return This planner.
+     */
+    public ReactorShardPlanner setShardCount(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Reads the modules of the reactor of the given request by executing the <code>validate</code> phase and splits
+     * them into shards.
+     *
+     * @param request The request building the reactor, must not be <code>null</code>. Its goals and arguments are not
+     *            used.
+     * @return The shards in the order they can be started, never <code>null</code>.
+     * @throws MavenInvocationException if the modules of the reactor cannot be read.
+     */
+    public List<ReactorShard> plan(InvocationRequest request) throws MavenInvocationException {
+        InvocationResult result = invoker.execute(newGraphRequest(request));
+
+        if (result.getExecutionException() != null) {
+            throw new MavenInvocationException(
+                    "Failed to read the modules of the reactor", result.getExecutionException());
+        }
+        BuildSummary summary = result.getBuildSummary();
+        if (result.getExitCode() != 0
+                || summary == null
+                || summary.getProjects().isEmpty()) {
+            throw new MavenInvocationException(
+                    "Failed to read the modules of the reactor, exit code: " + result.getExitCode());
+        }
+        return plan(summary);
+    }
+
+    /**
+     * Splits the modules of the given build into shards.
+     *
+     * @param summary The summary of the recorded build events listing the modules in reactor order with their
+     *            upstream modules, must not be <code>null</code>.
+     * @return The shards in the order they can be started, never <code>null</code>.
+     */
+    public List<ReactorShard> plan(BuildSummary summary) {
+        List<ProjectSummary> projects = summary.getProjects();
+        int maxSize = Math.max(1, (projects.size() + shardCount - 1) / shardCount);
+
+        List<Shard> shards = new ArrayList<>();
+        Map<String, Shard> shardsByProject = new HashMap<>();
+        for (int i = 0; i < projects.size(); i++) {
+            ProjectSummary project = projects.get(i);
+
+            // the reactor order is sorted, so the upstream modules are already assigned
+            Map<Shard, Integer> upstream = new LinkedHashMap<>();
+            for (String id : project.getUpstreamProjects()) {
+                Shard shard = shardsByProject.get(id);
+                if (shard != null) {
+                    upstream.merge(shard, 1, Integer::sum);
+                }
+            }
+
+            Shard shard = selectShard(shards, upstream, maxSize);
+            if (shard == null) {
+                shard = new Shard();
+                shards.add(shard);
+            }
+            shard.projects.add(i);
+            for (Shard upstreamShard : upstream.keySet()) {
+                if (upstreamShard != shard) {
+                    shard.upstream.add(upstreamShard);
+                }
+            }
+            shardsByProject.put(project.getId(), shard);
+        }
+
+        mergeSuccessiveShards(shards);
+
+        return toPlan(shards, projects);
+    }
+
+    /**
+     * Selects the existing shard receiving a module: the shard with most of its upstream modules which is not full, or
+     * else the smallest shard once all shards are used. A shard is only selected if no upstream shard of the module
+     * depends on it.
+     *
+     * @return The shard or <code>null</code> to create a new shard.
+     */
+    private Shard selectShard(List<Shard> shards, Map<Shard, Integer> upstream, int maxSize) {
+        Shard selected = null;
+        int selectedCount = 0;
+        for (Map.Entry<Shard, Integer> entry : upstream.entrySet()) {
+            Shard shard = entry.getKey();
+            int count = entry.getValue();
+            if (shard.projects.size() < maxSize
+                    && isAcyclic(shard, upstream.keySet())
+                    && (selected == null
+                            || count > selectedCount
+                            || (count == selectedCount && shard.projects.size() < selected.projects.size()))) {
+                selected = shard;
+                selectedCount = count;
+            }
+        }
+        if (selected != null || shards.size() < shardCount) {
+            return selected;
+        }
+
+        for (Shard shard : shards) {
+            if (isAcyclic(shard, upstream.keySet())
+                    && (selected == null || shard.projects.size() < selected.projects.size())) {
+                selected = shard;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Tells whether the given shard can depend on the given upstream shards, i.e. none of them depends on it.
+     */
+    private static boolean isAcyclic(Shard shard, Set<Shard> upstream) {
+        for (Shard upstreamShard : upstream) {
+            if (upstreamShard != shard && dependsOn(upstreamShard, shard)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean dependsOn(Shard shard, Shard upstream) {
+        List<Shard> pending = new ArrayList<>(shard.upstream);
+        Set<Shard> visited = new HashSet<>();
+        while (!pending.isEmpty()) {
+            Shard next = pending.remove(pending.size() - 1);
+            if (next == upstream) {
+                return true;
+            }
+            if (visited.add(next)) {
+                pending.addAll(next.upstream);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges each shard into its only upstream shard if it is the only shard depending on that shard, since it cannot
+     * start before that shard ends anyway.
+     */
+    private static void mergeSuccessiveShards(List<Shard> shards) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (Shard shard : shards) {
+                if (shard.upstream.size() != 1) {
+                    continue;
+                }
+                Shard upstream = shard.upstream.iterator().next();
+                if (getDownstreamCount(shards, upstream) != 1) {
+                    continue;
+                }
+
+                upstream.projects.addAll(shard.projects);
+                Collections.sort(upstream.projects);
+                for (Shard downstream : shards) {
+                    if (downstream.upstream.remove(shard)) {
+                        downstream.upstream.add(upstream);
+                    }
+                }
+                shards.remove(shard);
+                merged = true;
+                break;
+            }
+        }
+    }
+
+    private static int getDownstreamCount(List<Shard> shards, Shard upstream) {
+        int count = 0;
+        for (Shard shard : shards) {
+            if (shard.upstream.contains(upstream)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Numbers the shards in topological order, preferring the shards with the earliest modules in reactor order.
+     */
+    private static List<ReactorShard> toPlan(List<Shard> shards, List<ProjectSummary> projects) {
+        List<Shard> pending = new ArrayList<>(shards);
+        pending.sort((a, b) -> Integer.compare(a.projects.get(0), b.projects.get(0)));
+
+        Map<Shard, Integer> indices = new HashMap<>();
+        List<ReactorShard> plan = new ArrayList<>(shards.size());
+        while (!pending.isEmpty()) {
+            Shard next = null;
+            for (Shard shard : pending) {
+                if (indices.keySet().containsAll(shard.upstream)) {
+                    next = shard;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new IllegalStateException("Cyclic shards: " + pending);
+            }
+            pending.remove(next);
+
+            List<String> ids = new ArrayList<>(next.projects.size());
+            for (int project : next.projects) {
+                ids.add(projects.get(project).getId());
+            }
+            List<Integer> upstream = new ArrayList<>(next.upstream.size());
+            for (Shard shard : next.upstream) {
+                upstream.add(indices.get(shard));
+            }
+            Collections.sort(upstream);
+
+            indices.put(next, plan.size());
+            plan.add(new ReactorShard(plan.size(), ids, upstream));
+        }
+        return plan;
+    }
+
+    /**
+     * Plans the shards of the reactor of the given request and executes them.
+     *
+     * @param request The request building the reactor, must not be <code>null</code>.
+     * @return The outcome of the shards, indexed like the shards of the plan, never <code>null</code>.
+     * @throws MavenInvocationException if the modules of the reactor cannot be read.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     * @see #plan(InvocationRequest)
+     */
+    public BatchResult execute(InvocationRequest request) throws MavenInvocationException, InterruptedException {
+        return execute(request, plan(request));
+    }
+
+    /**
+     * Executes the given shards of the reactor of the given request and waits for all of them to complete. The shards
+     * whose upstream shards did not succeed are reported with a {@link CancellationException}. Interrupting the
+     * calling thread cancels the running shards.
+     *
+     * @param request The request building the reactor, must not be <code>null</code>.
+     * @param shards The shards as planned for the request, must not be <code>null</code>.
+     * @return The outcome of the shards, indexed like the shards, never <code>null</code>.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     */
+    public BatchResult execute(InvocationRequest request, List<ReactorShard> shards) throws InterruptedException {
+        List<InvocationRequest> requests = new ArrayList<>(shards.size());
+        for (ReactorShard shard : shards) {
+            requests.add(newShardRequest(request, shard));
+        }
+        BatchResult result = new BatchResult(requests);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<CompletableFuture<InvocationResult>> executions = new ArrayList<>();
+        List<CompletableFuture<Boolean>> completions = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int index = i;
+            List<CompletableFuture<Boolean>> upstream = new ArrayList<>();
+            for (int upstreamIndex : shards.get(i).getUpstreamShards()) {
+                upstream.add(completions.get(upstreamIndex));
+            }
+
+            completions.add(CompletableFuture.allOf(upstream.toArray(new CompletableFuture<?>[0]))
+                    .thenCompose(ignored -> {
+                        for (int j = 0; j < upstream.size(); j++) {
+                            if (!upstream.get(j).join()) {
+                                int failed =
+                                        shards.get(index).getUpstreamShards().get(j);
+                                result.set(index, null, new CancellationException("Upstream shard failed: " + failed));
+                                return CompletableFuture.completedFuture(false);
+                            }
+                        }
+
+                        CompletableFuture<InvocationResult> execution;
+                        synchronized (executions) {
+                            if (cancelled.get()) {
+                                result.set(index, null, new CancellationException("Shards cancelled"));
+                                return CompletableFuture.completedFuture(false);
+                            }
+                            execution = start(requests.get(index));
+                            executions.add(execution);
+                        }
+
+                        return execution.handle((invocationResult, error) -> {
+                            result.set(index, invocationResult, unwrap(error));
+                            return result.isSuccessful(index);
+                        });
+                    }));
+        }
+
+        try {
+            CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0]))
+                    .get();
+        } catch (InterruptedException e) {
+            synchronized (executions) {
+                cancelled.set(true);
+                for (CompletableFuture<InvocationResult> execution : executions) {
+                    execution.cancel(true);
+                }
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // the completions handle all failures
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    private CompletableFuture<InvocationResult> start(InvocationRequest request) {
+        try {
+            return invoker.executeAsync(request);
+        } catch (RuntimeException e) {
+            CompletableFuture<InvocationResult> execution = new CompletableFuture<>();
+            execution.completeExceptionally(e);
+            return execution;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Creates the request building the given shard of the reactor of the given request, which records the build events
+     * so that a failed shard can be resumed.
+     *
+     * @param request The request building the reactor, must not be <code>null</code>.
+     * @param shard The shard to build, must not be <code>null</code>.
+     * @return A copy of the request building the shard, never <code>null</code>.
+     */
+    public InvocationRequest newShardRequest(InvocationRequest request, ReactorShard shard) {
+        return newShardRequest(request, shard, null);
+    }
+
+    /**
+     * Creates the request resuming the given shard from its first module which was not built successfully, see
+     * {@link InvocationRequest#getResumeFrom()}.
+     *
+     * @param request The request building the reactor, must not be <code>null</code>.
+     * @param shard The shard to resume, must not be <code>null</code>.
+     * @param result The result of the shard, may be <code>null</code> if the shard was not started.
+     * @return A copy of the request resuming the shard or <code>null</code> if all modules of the shard were built
+     *         successfully.
+     */
+    public InvocationRequest newResumeRequest(InvocationRequest request, ReactorShard shard, InvocationResult result) {
+        BuildSummary summary = result != null ? result.getBuildSummary() : null;
+        if (summary == null) {
+            return newShardRequest(request, shard);
+        }
+
+        Map<String, BuildStatus> statuses = new HashMap<>();
+        for (ProjectSummary project : summary.getProjects()) {
+            statuses.put(project.getId(), project.getStatus());
+        }
+        for (String project : shard.getProjects()) {
+            if (statuses.get(project) != BuildStatus.SUCCESS) {
+                return newShardRequest(request, shard, project);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies the given request to build the modules of the given shard.
+     */
+    private static InvocationRequest newShardRequest(InvocationRequest request, ReactorShard shard, String resumeFrom) {
+        return InvocationTemplate.snapshot(request)
+                .setProjects(shard.getProjects())
+                .setResumeFrom(resumeFrom)
+                .setAlsoMake(false)
+                .setAlsoMakeDependents(false)
+                .setRecursive(true)
+                .setBuildEventsRecorded(true);
+    }
+
+    /**
+     * Copies the given request to record the build events of the <code>validate</code> phase.
+     */
+    private static InvocationRequest newGraphRequest(InvocationRequest request) {
+        return InvocationTemplate.snapshotWithoutArgs(request)
+                .addArgs(GRAPH_GOALS)
+                .setBatchMode(true)
+                .setRecursive(true)
+                .setBuildEventsRecorded(true);
+    }
+
+    /**
+     * A shard while the modules are assigned, holding the reactor indices of its modules.
+     */
+    private static final class Shard {
+
+        final List<Integer> projects = new ArrayList<>();
+
+        final Set<Shard> upstream = new LinkedHashSet<>();
+
+        @Override
+        public String toString() {
+            return projects.toString();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the resources used by a forked Maven process tree. While the process runs, a thread samples the CPU times,
+ * resident memory and storage I/O of the process and its descendants from <code>/proc/&lt;pid&gt;</code> every
+ * {@link #SAMPLING_INTERVAL} milliseconds.
+ * <p>
+ * The CPU times of a process include the CPU times of its children it has waited for, so the CPU times of the tree
+ * are those of the root and its live descendants, and short-lived children are counted even if no sample caught
+ * them. For the memory and I/O, the last sample of every process seen is kept, so the values of processes that
+ * terminated early still count, but the activity after the last sample of a process is missed.
+ * <p>
+ * The CPU times in <code>/proc</code> are counted in clock ticks, which are assumed to be the 100 ticks per second of
+ * the Linux user space ABI.
+ */
+final class ResourceMonitor implements Runnable {
+
+    static final long SAMPLING_INTERVAL = 250;
+
+    private static final long NANOS_PER_TICK = 10_000_000L;
+
+    private static final File PROC = new File("/proc");
+
+    /**
+     * The last sample of each process seen, by pid.
+     */
+    private final Map<Long, Sample> samples = new HashMap<>();
+
+    private long peakResidentSetSize = -1;
+
+    private long userTicks = -1;
+
+    private long systemTicks = -1;
+
+    private boolean started;
+
+    private long startTime;
+
+    private boolean stopped;
+
+    private long endTime;
+
+    private long pid = -1;
+
+    private Thread sampler;
+
+    /**
+     * Starts to measure the given process.
+     *
+     * @param process The process to measure, must not be <code>null</code>.
+     */
+    synchronized void start(Process process) {
+        started = true;
+        startTime = System.nanoTime();
+        pid = ProcessTree.pid(process);
+
+        if (pid >= 0 && new File(PROC, Long.toString(pid)).isDirectory()) {
+            sampler = InvokerThreads.newThread("maven-invoker-resources", this);
+            sampler.start();
+        }
+    }
+
+    /**
+     * Tells whether the measurement has been started, i.e. the process could be started.
+     */
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Stops the measurement, which must be called before the process is destroyed.
+     */
+    void stop() {
+        Thread thread;
+        synchronized (this) {
+            if (!stopped) {
+                stopped = true;
+                endTime = System.nanoTime();
+            }
+            thread = sampler;
+            sampler = null;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                sample();
+                Thread.sleep(SAMPLING_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void sample() {
+        List<Long> descendants = ProcessTree.descendants(pid);
+
+        synchronized (this) {
+            Sample root = sample(pid);
+            if (root == null) {
+                // terminated, its last sample includes the descendants it has waited for
+                return;
+            }
+
+            // parents are sampled before their children, so a child reaped meanwhile is not counted twice
+            long residentSetSize = Math.max(0, root.residentSetSize);
+            long user = root.userTicks;
+            long system = root.systemTicks;
+            for (long descendant : descendants) {
+                Sample sample = sample(descendant);
+                if (sample != null) {
+                    residentSetSize += Math.max(0, sample.residentSetSize);
+                    user += sample.userTicks;
+                    system += sample.systemTicks;
+                }
+            }
+            peakResidentSetSize = Math.max(peakResidentSetSize, residentSetSize);
+            userTicks = Math.max(userTicks, user);
+            systemTicks = Math.max(systemTicks, system);
+        }
+    }
+
+    /**
+     * Samples a single process.
+     *
+     * @return The sample or <code>null</code> if the process could not be sampled.
+     */
+    private Sample sample(long processId) {
+        File directory = new File(PROC, Long.toString(processId));
+        Sample sample = new Sample();
+        try {
+            long[] ticks = parseTicks(read(new File(directory, "stat")));
+            sample.userTicks = ticks[0];
+            sample.systemTicks = ticks[1];
+
+            String status = read(new File(directory, "status"));
+            sample.residentSetSize = parseKiloBytes(status, "VmRSS:");
+            sample.peakResidentSetSize = parseKiloBytes(status, "VmHWM:");
+        } catch (IOException | RuntimeException e) {
+            // terminated meanwhile
+            return null;
+        }
+
+        try {
+            String io = read(new File(directory, "io"));
+            sample.readBytes = parseValue(io, "read_bytes:");
+            sample.writtenBytes = parseValue(io, "write_bytes:");
+        } catch (IOException | RuntimeException e) {
+            // not permitted or not supported by the kernel
+        }
+
+        samples.put(processId, sample);
+        return sample;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses the CPU times of a process and of its children it has waited for from its <code>stat</code> file.
+     *
+     * @return The user and the system CPU time in clock ticks.
+     */
+    static long[] parseTicks(String stat) {
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        // utime, stime, cutime and cstime are the fields 14 to 17 of the whole line
+        return new long[] {
+            Long.parseLong(fields[11]) + Long.parseLong(fields[13]),
+            Long.parseLong(fields[12]) + Long.parseLong(fields[14])
+        };
+    }
+
+    /**
+     * Parses the value of a line like <code>VmRSS:	  1024 kB</code>.
+     */
+    static long parseKiloBytes(String content, String key) {
+        long value = parseValue(content, key);
+        return value < 0 ? -1 : value * 1024;
+    }
+
+    /**
+     * Parses the number following the given key at the start of a line.
+     *
+     * @return The number or <code>-1</code> if the key is not found.
+     */
+    static long parseValue(String content, String key) {
+        int start;
+        if (content.startsWith(key)) {
+            start = key.length();
+        } else {
+            int line = content.indexOf('\n' + key);
+            if (line < 0) {
+                return -1;
+            }
+            start = line + 1 + key.length();
+        }
+        while (start < content.length() && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < content.length() && Character.isDigit(content.charAt(end))) {
+            end++;
+        }
+        return end > start ? Long.parseLong(content.substring(start, end)) : -1;
+    }
+
+    /**
+     * Gets the resources used by the process tree, which is complete once {@link #stop()} has returned.
+     *
+     * @return The resource usage, never <code>null</code>.
+     */
+    synchronized ResourceUsage getUsage() {
+        Duration wallTime = Duration.ofNanos((stopped ? endTime : System.nanoTime()) - startTime);
+        if (samples.isEmpty()) {
+            return new ResourceUsage(wallTime, null, null, -1, -1, -1);
+        }
+
+        long peak = peakResidentSetSize;
+        long readBytes = -1;
+        long writtenBytes = -1;
+        for (Sample sample : samples.values()) {
+            peak = Math.max(peak, sample.peakResidentSetSize);
+            if (sample.readBytes >= 0) {
+                readBytes = Math.max(readBytes, 0) + sample.readBytes;
+            }
+            if (sample.writtenBytes >= 0) {
+                writtenBytes = Math.max(writtenBytes, 0) + sample.writtenBytes;
+            }
+        }
+
+        return new ResourceUsage(
+                wallTime,
+                Duration.ofNanos(userTicks * NANOS_PER_TICK),
+                Duration.ofNanos(systemTicks * NANOS_PER_TICK),
+                peak,
+                readBytes,
+                writtenBytes);
+    }
+
+    /**
+     * A sample of a single process.
+     */
+    private static final class Sample {
+
+        /**
+         * The user CPU time of the process and of its children it has waited for.
+         */
+        long userTicks;
+
+        /**
+         * The system CPU time of the process and of its children it has waited for.
+         */
+        long systemTicks;
+
+        long residentSetSize = -1;
+
+        long peakResidentSetSize = -1;
+
+        long readBytes = -1;
+
+        long writtenBytes = -1;
+    }
+}
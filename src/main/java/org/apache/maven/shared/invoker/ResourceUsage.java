@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+
+/**
+ * The resources used by a forked Maven process tree, as measured if requested by
+ * {@link InvocationRequest#setResourceUsageMeasured(boolean)}. Except for the wall time, the values are sampled from
+ * <code>/proc</code> and thus only available on Linux.
+ *
+ * @since 3.4.0
+ */
+public final class ResourceUsage {
+
+    private final Duration wallTime;
+
+    private final Duration userCpuTime;
+
+    private final Duration systemCpuTime;
+
+    private final long peakResidentSetSize;
+
+    private final long readBytes;
+
+    private final long writtenBytes;
+
+    ResourceUsage(
+            Duration wallTime,
+            Duration userCpuTime,
+            Duration systemCpuTime,
+            long peakResidentSetSize,
+            long readBytes,
+            long writtenBytes) {
+        this.wallTime = wallTime;
+        this.userCpuTime = userCpuTime;
+        this.systemCpuTime = systemCpuTime;
+        this.peakResidentSetSize = peakResidentSetSize;
+        this.readBytes = readBytes;
+        this.writtenBytes = writtenBytes;
+    }
+
+    /**
+     * Gets the time from the start of the Maven process until its end.
+     *
+     * @return The wall time, never <code>null</code>.
+     */
+    public Duration getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Gets the CPU time the processes of the tree spent in user mode, as of their last sample.
+     *
+     * @return The user CPU time or <code>null</code> if it could not be sampled.
+     */
+    public Duration getUserCpuTime() {
+        return userCpuTime;
+    }
+
+    /**
+     * Gets the CPU time the processes of the tree spent in kernel mode, as of their last sample.
+     *
+     * @return The system CPU time or <code>null</code> if it could not be sampled.
+     */
+    public Duration getSystemCpuTime() {
+        return systemCpuTime;
+    }
+
+    /**
+     * Gets the peak of the resident memory of the process tree. This is the larger of the highest sum of the resident
+     * memory of the processes sampled at the same time and the peak resident memory of the biggest single process.
+     *
+     * @return The peak resident set size in bytes or <code>-1</code> if it could not be sampled.
+     */
+    public long getPeakResidentSetSize() {
+        return peakResidentSetSize;
+    }
+
+    /**
+     * Gets the number of bytes the processes of the tree caused to be read from storage, as of their last sample.
+     *
+     * @return The number of bytes read or <code>-1</code> if it could not be sampled.
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Gets the number of bytes the processes of the tree caused to be written to storage, as of their last sample.
+     *
+     * @return The number of bytes written or <code>-1</code> if it could not be sampled.
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "wall " + wallTime + ", user " + userCpuTime + ", sys " + systemCpuTime + ", peak RSS "
+                + peakResidentSetSize + ", read " + readBytes + ", written " + writtenBytes;
+    }
+}
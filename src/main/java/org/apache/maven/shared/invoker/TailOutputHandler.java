@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.nio.charset.Charset;
+
+/**
+ * Offers an output handler that keeps only the last bytes of the output in a circular buffer of fixed size, e.g. to
+ * report the end of the output of a failed build without retaining all of it.
+ *
+ * @since 3.4.0
+ */
+public class TailOutputHandler implements ByteOutputHandler {
+
+    private final byte[] buffer;
+
+    /**
+     * The index of the next byte to write into the buffer.
+     */
+    private int position;
+
+    /**
+     * The total number of bytes consumed, which exceeds the size of the buffer once it has wrapped around.
+     */
+    private long consumed;
+
+    /**
+     * Creates a new tail handler.
+     *
+     * @param size The number of bytes to keep, must be positive.
+     */
+    public TailOutputHandler(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.buffer = new byte[size];
+    }
+
+    @Override
+    public synchronized void consume(byte[] bytes, int offset, int length) {
+        consumed += length;
+
+        if (length >= buffer.length) {
+            System.arraycopy(bytes, offset + length - buffer.length, buffer, 0, buffer.length);
+            position = 0;
+            return;
+        }
+
+        int first = Math.min(length, buffer.length - position);
+        System.arraycopy(bytes, offset, buffer, position, first);
+        System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+        position = (position + length) % buffer.length;
+    }
+
+    /**
+     * Tells whether the beginning of the output has been discarded.
+     *
+     * @return <code>true</code> if more bytes have been consumed than the buffer holds.
+     */
+    public synchronized boolean isTruncated() {
+        return consumed > buffer.length;
+    }
+
+    /**
+     * Gets the kept bytes of the output, in the order they were consumed.
+     *
+     * @return The last bytes of the output, never <code>null</code>.
+     */
+    public synchronized byte[] toByteArray() {
+        if (consumed < buffer.length) {
+            byte[] bytes = new byte[(int) consumed];
+            System.arraycopy(buffer, 0, bytes, 0, bytes.length);
+            return bytes;
+        }
+
+        byte[] bytes = new byte[buffer.length];
+        System.arraycopy(buffer, position, bytes, 0, buffer.length - position);
+        System.arraycopy(buffer, 0, bytes, buffer.length - position, position);
+        return bytes;
+    }
+
+    /**
+     * Decodes the kept output. If the beginning of the output has been discarded, the first partial line is skipped,
+     * so the result starts with a complete line.
+     *
+     * @param charset The charset to decode the output with, must not be <code>null</code>.
+     * @return The last lines of the output, never <code>null</code>.
+     */
+    public String toString(Charset charset) {
+        byte[] bytes;
+        boolean truncated;
+        synchronized (this) {
+            bytes = toByteArray();
+            truncated = isTruncated();
+        }
+
+        int start = 0;
+        if (truncated) {
+            while (start < bytes.length && bytes[start] != '\n') {
+                start++;
+            }
+            // keep the bytes if they are a single partial line
+            start = start < bytes.length ? start + 1 : 0;
+        }
+
+        return new String(bytes, start, bytes.length - start, charset);
+    }
+
+    /**
+     * Decodes the kept output with the platform charset, see {@link #toString(Charset)}.
+     *
+     * @return The last lines of the output, never <code>null</code>.
+     */
+    @Override
+    public String toString() {
+        return toString(Charset.defaultCharset());
+    }
+}
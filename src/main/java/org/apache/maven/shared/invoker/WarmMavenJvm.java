@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.utils.cli.CommandLineException;
+import org.apache.maven.shared.utils.cli.CommandLineTimeOutException;
+
+/**
+ * A JVM running {@link EmbeddedMavenServer}, which executes one Maven request after the other. An instance is used by
+ * one thread at a time.
+ * <p>
+ * The frames are exchanged over a loopback socket, which the JVM connects to once started. It authenticates with a
+ * random token passed over its standard input. The standard and error output of the JVM only carry the output of the
+ * JVM itself, e.g. its warnings, and are passed to the error handler of the current request.
+ */
+final class WarmMavenJvm {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Process process;
+
+    private final ServerSocket serverSocket;
+
+    private final String token;
+
+    private Socket socket;
+
+    private DataOutputStream requests;
+
+    private DataInputStream frames;
+
+    /**
+     * The consumer of the output of the JVM itself, e.g. warnings of the JVM, <code>null</code> to discard it.
+     */
+    private volatile ByteOutputHandler jvmErrorHandler;
+
+    private boolean ready;
+
+    private int builds;
+
+    private long initialHeap = -1;
+
+    private long retainedHeap;
+
+    private WarmMavenJvm(Process process, ServerSocket serverSocket, String token) {
+        this.process = process;
+        this.serverSocket = serverSocket;
+        this.token = token;
+    }
+
+    /**
+     * Starts a new JVM, which boots Maven in the background.
+     *
+     * @param command The command starting the JVM, must not be <code>null</code>. The port the JVM must connect to is
+     *            appended to it.
+     * @param javaHome The Java home to pass as <code>JAVA_HOME</code>, may be <code>null</code>.
+     * @return The started JVM, never <code>null</code>.
+     * @throws IOException if the JVM cannot be started.
+     */
+    static WarmMavenJvm start(List<String> command, File javaHome) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        String token = UUID.randomUUID().toString();
+
+        Process process;
+        try {
+            List<String> arguments = new ArrayList<>(command);
+            arguments.add(String.valueOf(serverSocket.getLocalPort()));
+
+            ProcessBuilder builder = new ProcessBuilder(arguments).redirectErrorStream(true);
+            if (javaHome != null) {
+                builder.environment().put("JAVA_HOME", javaHome.getAbsolutePath());
+            }
+            process = builder.start();
+        } catch (IOException | RuntimeException e) {
+            serverSocket.close();
+            throw e;
+        }
+
+        WarmMavenJvm jvm = new WarmMavenJvm(process, serverSocket, token);
+
+        InvokerThreads.newThread("maven-invoker-warm-jvm-output", jvm::pumpJvmOutput)
+                .start();
+
+        try (DataOutputStream in = new DataOutputStream(process.getOutputStream())) {
+            in.writeUTF(token);
+        } catch (IOException e) {
+            jvm.destroy();
+            throw e;
+        }
+
+        return jvm;
+    }
+
+    /**
+     * Waits until Maven has been booted. Destroys the JVM if it fails to boot in time.
+     *
+     * @param timeoutInSeconds The maximum time to wait, must be positive.
+     * @throws IOException if Maven failed to boot in time or the JVM terminated.
+     */
+    void awaitReady(int timeoutInSeconds) throws IOException {
+        if (ready) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+        try {
+            serverSocket.setSoTimeout(remainingMillis(deadline));
+            socket = serverSocket.accept();
+            serverSocket.close();
+
+            socket.setSoTimeout(remainingMillis(deadline));
+            frames = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            requests = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            if (!token.equals(frames.readUTF())) {
+                throw new IOException("Unexpected connection from " + socket.getRemoteSocketAddress());
+            }
+
+            int type = frames.readUnsignedByte();
+            if (type == EmbeddedMavenServer.FAILED) {
+                throw new IOException("Failed to boot Maven: " + EmbeddedMavenServer.readString(frames));
+            } else if (type != EmbeddedMavenServer.READY) {
+                throw new IOException("Unexpected frame: " + type);
+            }
+            socket.setSoTimeout(0);
+        } catch (SocketTimeoutException e) {
+            destroy();
+            throw new IOException("Maven did not boot within " + timeoutInSeconds + " seconds", e);
+        } catch (IOException e) {
+            destroy();
+            throw e;
+        }
+
+        ready = true;
+    }
+
+    private static int remainingMillis(long deadline) throws SocketTimeoutException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new SocketTimeoutException();
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Executes Maven in this JVM and waits for its exit code. Timing out or interrupting the calling thread terminates
+     * the JVM.
+     *
+     * @param args The command line arguments, must not be <code>null</code>.
+     * @param workingDirectory The directory to run Maven in, must not be <code>null</code>.
+     * @param outputHandler The consumer of the standard output of Maven, may be <code>null</code>.
+     * @param errorHandler The consumer of the error output of Maven, may be <code>null</code>.
+     * @param timeoutInSeconds The maximum time to wait for Maven, a value less than or equal to zero to wait without
+     *            limit.
+     * @param terminator The terminator of the JVM and its descendants on timeout or interruption, must not be
+     *            <code>null</code>.
+     * @return The exit code of Maven.
+     * @throws CommandLineException if Maven failed with an exception, timed out or the JVM terminated.
+     */
+    int execute(
+            String[] args,
+            File workingDirectory,
+            ByteOutputHandler outputHandler,
+            ByteOutputHandler errorHandler,
+            int timeoutInSeconds,
+            ProcessTerminator terminator)
+            throws CommandLineException {
+        builds++;
+        jvmErrorHandler = errorHandler;
+
+        try {
+            requests.writeInt(args.length);
+            for (String arg : args) {
+                EmbeddedMavenServer.writeString(requests, arg);
+            }
+            EmbeddedMavenServer.writeString(requests, workingDirectory.getPath());
+            requests.flush();
+
+            Response response = new Response(outputHandler, errorHandler);
+            InvokerThreads.newThread("maven-invoker-warm-jvm-stdout", response).start();
+
+            if (timeoutInSeconds > 0) {
+                if (!response.done.await(timeoutInSeconds, TimeUnit.SECONDS)) {
+                    terminator.timeOut(process);
+                    terminator.terminate(process);
+                    throw new CommandLineTimeOutException(
+                            String.format("Process timed out after %d seconds.", timeoutInSeconds));
+                }
+            } else {
+                response.done.await();
+            }
+
+            if (response.exception != null) {
+                throw response.exception;
+            }
+
+            return response.exitCode;
+        } catch (IOException e) {
+            destroy();
+            throw new CommandLineException("Failure communicating with warm Maven JVM.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminator.terminate(process);
+            throw new CommandLineTimeOutException("Error while executing external command, process killed.", e);
+        } finally {
+            jvmErrorHandler = null;
+        }
+    }
+
+    /**
+     * Tells whether this JVM is still running.
+     */
+    boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Gets the number of requests executed by this JVM.
+     */
+    int getBuilds() {
+        return builds;
+    }
+
+    /**
+     * Gets the growth of the heap retained after garbage collection since the first request executed by this JVM.
+     */
+    long getHeapGrowth() {
+        return initialHeap < 0 ? 0 : retainedHeap - initialHeap;
+    }
+
+    /**
+     * Releases this JVM, which makes it terminate once it has finished its current request.
+     */
+    void release() {
+        if (requests == null) {
+            // not connected yet, the JVM would wait for requests forever
+            destroy();
+            return;
+        }
+        try {
+            requests.close();
+        } catch (IOException e) {
+            destroy();
+        }
+    }
+
+    /**
+     * Destroys this JVM immediately.
+     */
+    void destroy() {
+        process.destroy();
+        close(serverSocket);
+        if (socket != null) {
+            close(socket);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private void pumpJvmOutput() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = process.getInputStream()) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                ByteOutputHandler handler = jvmErrorHandler;
+                if (handler != null && read > 0) {
+                    handler.consume(buffer, 0, read);
+                }
+            }
+        } catch (IOException e) {
+            // the JVM has terminated
+        } finally {
+            // let awaitReady() fail instead of waiting for a connection which never comes
+            close(serverSocket);
+        }
+    }
+
+    /**
+     * Reads the frames of the response to a request, passing the output of Maven to the handlers.
+     */
+    private final class Response implements Runnable {
+
+        private final ByteOutputHandlerStream out;
+
+        private final ByteOutputHandlerStream err;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile int exitCode;
+
+        private volatile CommandLineException exception;
+
+        Response(ByteOutputHandler outputHandler, ByteOutputHandler errorHandler) {
+            this.out = new ByteOutputHandlerStream(outputHandler);
+            this.err = new ByteOutputHandlerStream(errorHandler);
+        }
+
+        public void run() {
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (true) {
+                    int type = frames.readUnsignedByte();
+                    if (type == EmbeddedMavenServer.OUT || type == EmbeddedMavenServer.ERR) {
+                        ByteOutputHandlerStream target = type == EmbeddedMavenServer.OUT ? out : err;
+                        for (int remaining = frames.readInt(); remaining > 0; ) {
+                            int read = Math.min(remaining, buffer.length);
+                            frames.readFully(buffer, 0, read);
+                            target.write(buffer, 0, read);
+                            remaining -= read;
+                        }
+                    } else if (type == EmbeddedMavenServer.EXIT) {
+                        exitCode = frames.readInt();
+                    } else if (type == EmbeddedMavenServer.ERROR) {
+                        exception = new CommandLineException(
+                                "Error executing Maven in warm JVM: " + EmbeddedMavenServer.readString(frames));
+                    } else if (type == EmbeddedMavenServer.STATS) {
+                        retainedHeap = frames.readLong();
+                        if (initialHeap < 0) {
+                            initialHeap = retainedHeap;
+                        }
+                        break;
+                    } else {
+                        throw new IOException("Unexpected frame: " + type);
+                    }
+                }
+                out.close();
+                err.close();
+            } catch (IOException | RuntimeException e) {
+                destroy();
+                exception = new CommandLineException("Failure communicating with warm Maven JVM.", e);
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker.spy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.eventspy.EventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Records the progress of a build in the compact binary format described by {@link BuildEvents}. The invoker loads
+ * this spy into Maven with the <code>maven.ext.class.path</code> property and passes the file receiving the events
+ * with the {@link BuildEvents#FILE_PROPERTY} user property.
+ * <p>
+ * The spy must not break the build, so it stops recording once the file cannot be written.
+ *
+ * @since 3.4.0
+ */
+public class BuildEventSpy implements EventSpy {
+
+    private static final int MAX_FAILURE_LENGTH = 8192;
+
+    private DataOutputStream events;
+
+    private long startTime;
+
+    @Override
+    public synchronized void init(Context context) throws Exception {
+        startTime = System.nanoTime();
+
+        String file = null;
+        Object userProperties = context.getData().get("userProperties");
+        if (userProperties instanceof Properties) {
+            file = ((Properties) userProperties).getProperty(BuildEvents.FILE_PROPERTY);
+        }
+        if (file == null) {
+            file = System.getProperty(BuildEvents.FILE_PROPERTY);
+        }
+
+        if (file != null) {
+            events = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        }
+    }
+
+    @Override
+    public synchronized void onEvent(Object event) {
+        if (events == null || !(event instanceof ExecutionEvent)) {
+            return;
+        }
+
+        try {
+            record((ExecutionEvent) event);
+        } catch (IOException | RuntimeException e) {
+            stop();
+        }
+    }
+
+    private void record(ExecutionEvent event) throws IOException {
+        // by name, which neither depends on the constants of the Maven version nor needs a synthetic switch map
+        switch (event.getType().name()) {
+            case "SessionStarted":
+                List<MavenProject> projects = event.getSession().getProjects();
+                writeHeader(BuildEvents.SESSION_STARTED);
+                events.writeInt(projects.size());
+                for (MavenProject project : projects) {
+                    writeString(getId(project));
+                    writeString(project.getName() != null ? project.getName() : project.getArtifactId());
+                }
+                writeDependencies(event.getSession().getProjectDependencyGraph(), projects);
+                break;
+            case "ProjectStarted":
+                writeHeader(BuildEvents.PROJECT_STARTED);
+                writeString(getId(event.getProject()));
+                break;
+            case "ProjectSucceeded":
+                writeFinished(BuildEvents.PROJECT_FINISHED, event, BuildEvents.SUCCESS);
+                break;
+            case "ProjectFailed":
+                writeFinished(BuildEvents.PROJECT_FINISHED, event, BuildEvents.FAILURE);
+                break;
+            case "ProjectSkipped":
+                writeFinished(BuildEvents.PROJECT_FINISHED, event, BuildEvents.SKIPPED);
+                break;
+            case "MojoStarted":
+                MojoExecution mojo = event.getMojoExecution();
+                writeHeader(BuildEvents.MOJO_STARTED);
+                writeString(getId(event.getProject()));
+                writeString(mojo.getGroupId() + ':' + mojo.getArtifactId() + ':' + mojo.getVersion());
+                writeString(mojo.getGoal());
+                writeString(mojo.getExecutionId());
+                break;
+            case "MojoSucceeded":
+                writeFinished(BuildEvents.MOJO_FINISHED, event, BuildEvents.SUCCESS);
+                break;
+            case "MojoFailed":
+                writeFinished(BuildEvents.MOJO_FINISHED, event, BuildEvents.FAILURE);
+                break;
+            case "MojoSkipped":
+                writeFinished(BuildEvents.MOJO_FINISHED, event, BuildEvents.SKIPPED);
+                break;
+            case "SessionEnded":
+                boolean failed = event.getSession().getResult().hasExceptions();
+                writeHeader(BuildEvents.SESSION_FINISHED);
+                events.writeByte(failed ? BuildEvents.FAILURE : BuildEvents.SUCCESS);
+                events.flush();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeDependencies(ProjectDependencyGraph graph, List<MavenProject> projects) throws IOException {
+        if (graph == null) {
+            return;
+        }
+
+        writeHeader(BuildEvents.PROJECT_DEPENDENCIES);
+        events.writeInt(projects.size());
+        for (MavenProject project : projects) {
+            List<MavenProject> upstream = graph.getUpstreamProjects(project, false);
+            writeString(getId(project));
+            events.writeInt(upstream.size());
+            for (MavenProject dependency : upstream) {
+                writeString(getId(dependency));
+            }
+        }
+    }
+
+    private void writeFinished(int type, ExecutionEvent event, int status) throws IOException {
+        writeHeader(type);
+        writeString(getId(event.getProject()));
+        events.writeByte(status);
+
+        Exception exception = event.getException();
+        String failure = null;
+        if (exception != null) {
+            failure = exception.getMessage() != null ? exception.getMessage() : exception.toString();
+        }
+        if (failure != null && failure.length() > MAX_FAILURE_LENGTH) {
+            failure = failure.substring(0, MAX_FAILURE_LENGTH);
+        }
+        writeString(failure);
+
+        if (type == BuildEvents.PROJECT_FINISHED) {
+            // keep the finished projects if the process gets killed
+            events.flush();
+        }
+    }
+
+    private void writeHeader(int type) throws IOException {
+        events.writeByte(type);
+        events.writeLong((System.nanoTime() - startTime) / 1000000L);
+    }
+
+    private void writeString(String value) throws IOException {
+        events.writeUTF(value != null ? value : "");
+    }
+
+    private static String getId(MavenProject project) {
+        return project != null ? project.getGroupId() + ':' + project.getArtifactId() : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        stop();
+    }
+
+    private void stop() {
+        if (events != null) {
+            try {
+                events.close();
+            } catch (IOException e) {
+                // nothing more to record
+            }
+            events = null;
+        }
+    }
+}
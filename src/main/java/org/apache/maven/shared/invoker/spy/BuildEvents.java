@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker.spy;
+
+/**
+ * Describes the binary format of the build events written by {@link BuildEventSpy}. The events are written with a
+ * {@link java.io.DataOutputStream} as records starting with their type and the time in milliseconds since Maven
+ * started, followed by the fields listed for each type. Strings are written with
+ * {@link java.io.DataOutputStream#writeUTF(String)}, an absent string is written as an empty string.
+ * <p>
+ * This class only depends on the JDK, so the invoker can read the events without Maven on its class path.
+ *
+ * @since 3.4.0
+ */
+public final class BuildEvents {
+
+    /**
+     * The name of the user property with the path of the file receiving the build events. Without this property, the
+     * spy does not record anything.
+     */
+    public static final String FILE_PROPERTY = "maven.invoker.buildEvents";
+
+    /** Record of the start of the session: number of projects, then id and name of each project. */
+    public static final int SESSION_STARTED = 1;
+
+    /** Record of the start of a project: project id. */
+    public static final int PROJECT_STARTED = 2;
+
+    /** Record of the end of a project: project id, status, failure. */
+    public static final int PROJECT_FINISHED = 3;
+
+    /** Record of the start of a mojo: project id, plugin id, goal, execution id. */
+    public static final int MOJO_STARTED = 4;
+
+    /** Record of the end of a mojo: project id, status, failure. */
+    public static final int MOJO_FINISHED = 5;
+
+    /** Record of the end of the session: status. */
+    public static final int SESSION_FINISHED = 6;
+
+    /**
+     * Record of the dependencies between the projects, written after {@link #SESSION_STARTED}: number of projects, then
+     * id of each project followed by the number and ids of the projects of the session it directly depends on.
+     */
+    public static final int PROJECT_DEPENDENCIES = 7;
+
+    /** Status of a successful project or mojo. */
+    public static final int SUCCESS = 0;
+
+    /** Status of a failed project or mojo. */
+    public static final int FAILURE = 1;
+
+    /** Status of a skipped project or mojo. */
+    public static final int SKIPPED = 2;
+
+    private BuildEvents() {
+        // constants only
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates the threads used to await forked Maven processes and to pump their streams. This Java 21+ variant uses
+ * virtual threads, so hundreds of concurrent invocations do not cost a platform thread and its stack per stream.
+ */
+final class InvokerThreads {
+
+    private InvokerThreads() {
+        // utility class
+    }
+
+    /**
+     * Creates a new, unstarted virtual thread.
+     *
+     * @param name The name of the thread, must not be <code>null</code>.
+     * @param task The task to run, must not be <code>null</code>.
+     * @return The unstarted thread, never <code>null</code>.
+     */
+    static Thread newThread(String name, Runnable task) {
+        return Thread.ofVirtual().name(name).unstarted(task);
+    }
+
+    /**
+     * Creates an executor that runs each task in a virtual thread of its own.
+     *
+     * @param namePrefix The prefix for the names of the created threads, must not be <code>null</code>.
+     * @return The executor, never <code>null</code>.
+     */
+    static ExecutorService newExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 1).factory());
+    }
+
+    /**
+     * Waits for the termination of the given process. {@link Process#waitFor()} blocks in {@link Object#wait()},
+     * which pins the carrier of a virtual thread, so this waits for {@link Process#onExit()} instead.
+     *
+     * @param process The process to wait for, must not be <code>null</code>.
+     * @param timeoutInSeconds The maximum time to wait, a value less than or equal to zero to wait without limit.
+     * @return <code>true</code> if the process has terminated, <code>false</code> if the timeout elapsed before.
+     * @throws InterruptedException if the current thread is interrupted while waiting.
+     */
+    static boolean waitFor(Process process, int timeoutInSeconds) throws InterruptedException {
+        try {
+            if (timeoutInSeconds > 0) {
+                process.onExit().get(timeoutInSeconds, TimeUnit.SECONDS);
+            } else {
+                process.onExit().get();
+            }
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // onExit() is never completed exceptionally, fall back to the blocking wait
+            process.waitFor();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Finds and signals the processes of a forked Maven process tree. This Java 9+ variant uses {@link Process#pid()} and
+ * {@link ProcessHandle}, which handle descendants on every platform supporting them.
+ */
+final class ProcessTree {
+
+    private ProcessTree() {
+        // utility class
+    }
+
+    /**
+     * Gets the pid of the given process.
+     *
+     * @param process The process, must not be <code>null</code>.
+     * @return The pid or <code>-1</code> if it cannot be determined.
+     */
+    static long pid(Process process) {
+        try {
+            return process.pid();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the pids of the live descendants of the given process.
+     *
+     * @param pid The pid of the root of the tree.
+     * @return The pids of the descendants, never <code>null</code>.
+     */
+    static List<Long> descendants(long pid) {
+        return ProcessHandle.of(pid)
+                .map(handle -> handle.descendants().map(ProcessHandle::pid).collect(Collectors.toList()))
+                .orElse(List.of());
+    }
+
+    /**
+     * Gets the live descendants of the given process, bound to their start time.
+     *
+     * @param pid The pid of the root of the tree.
+     * @return The descendants, never <code>null</code>.
+     */
+    static List<DescendantProcess> descendantProcesses(long pid) {
+        return ProcessHandle.of(pid).stream()
+                .flatMap(ProcessHandle::descendants)
+                .map(Descendant::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tells whether the given process is alive.
+     *
+     * @param pid The pid of the process.
+     * @return <code>true</code> if the process is alive, <code>false</code> otherwise.
+     */
+    static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    /**
+     * Gets the executable of the given process.
+     *
+     * @param pid The pid of the process.
+     * @return The path to the executable or <code>null</code> if it cannot be determined.
+     */
+    static String command(long pid) {
+        return ProcessHandle.of(pid).flatMap(handle -> handle.info().command()).orElse(null);
+    }
+
+    /**
+     * A descendant as a {@link ProcessHandle}, which records the start time of the process and checks it before
+     * signaling the pid.
+     */
+    private static final class Descendant implements DescendantProcess {
+
+        private final ProcessHandle handle;
+
+        Descendant(ProcessHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public long pid() {
+            return handle.pid();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return handle.isAlive();
+        }
+
+        @Override
+        public void destroy(boolean forcibly) {
+            if (forcibly) {
+                handle.destroyForcibly();
+            } else {
+                handle.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.maven.shared.invoker.AsyncPrintStreamHandler.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncPrintStreamHandlerTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    void writesAllLinesInOrder() {
+        AsyncPrintStreamHandler handler = newHandler(new PrintStream(output, false), 4, OverflowPolicy.BLOCK);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            handler.consumeLine("line " + i);
+            expected.add("line " + i);
+        }
+        handler.consumeLine(null);
+        expected.add("");
+        handler.close();
+
+        assertEquals(expected, lines());
+        assertEquals(0, handler.getDroppedLines());
+    }
+
+    @Test
+    void flushWritesConsumedLines() {
+        AsyncPrintStreamHandler handler = newHandler(new PrintStream(output, false), 16, OverflowPolicy.BLOCK);
+        try {
+            handler.consumeLine("first");
+            handler.consumeLine("second");
+            handler.flush();
+
+            assertEquals(Arrays.asList("first", "second"), lines());
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    void dropOldestKeepsLatestLines() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        AsyncPrintStreamHandler handler =
+                newHandler(new PrintStream(new BlockingStream(released), false), 4, OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 100; i++) {
+            handler.consumeLine("line " + i);
+        }
+        released.countDown();
+        handler.close();
+
+        List<String> lines = lines();
+        assertTrue(handler.getDroppedLines() > 0);
+        assertEquals(100, lines.size() + handler.getDroppedLines());
+        assertEquals("line 99", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void sampleKeepsSomeLines() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        AsyncPrintStreamHandler handler =
+                newHandler(new PrintStream(new BlockingStream(released), false), 4, OverflowPolicy.SAMPLE);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                handler.consumeLine("line " + i);
+            }
+        });
+        producer.start();
+        while (handler.getDroppedLines() == 0) {
+            Thread.sleep(1);
+        }
+        released.countDown();
+        producer.join();
+        handler.close();
+
+        assertTrue(handler.getDroppedLines() > 0);
+        assertEquals(100, lines().size() + handler.getDroppedLines());
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new AsyncPrintStreamHandler(System.out, 0, OverflowPolicy.BLOCK, 0));
+    }
+
+    private AsyncPrintStreamHandler newHandler(PrintStream out, int capacity, OverflowPolicy overflowPolicy) {
+        return new AsyncPrintStreamHandler(out, capacity, overflowPolicy, 10);
+    }
+
+    private List<String> lines() {
+        String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split(System.lineSeparator(), -1)));
+        lines.remove(lines.size() - 1);
+        return lines;
+    }
+
+    /**
+     * Writes to {@link #output} once released, like a stalled console.
+     */
+    private final class BlockingStream extends OutputStream {
+
+        private final CountDownLatch released;
+
+        BlockingStream(CountDownLatch released) {
+            this.released = released;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (output) {
+                output.write(b, off, len);
+            }
+        }
+    }
+}
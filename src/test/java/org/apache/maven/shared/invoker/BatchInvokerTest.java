@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchInvokerTest {
+
+    private final List<CompletableFuture<InvocationResult>> executions = new ArrayList<>();
+
+    private final AsyncInvoker invoker = new DefaultInvoker() {
+        @Override
+        public CompletableFuture<InvocationResult> executeAsync(InvocationRequest request) {
+            CompletableFuture<InvocationResult> execution = new CompletableFuture<>();
+            executions.add(execution);
+            return execution;
+        }
+    };
+
+    @Test
+    void runsRequestsWithinParallelism() {
+        List<InvocationRequest> completed = new ArrayList<>();
+        BatchInvoker batchInvoker = new BatchInvoker(invoker)
+                .setParallelism(2)
+                .setListener((request, result, failure) -> completed.add(request));
+
+        List<InvocationRequest> requests = newRequests(3);
+        CompletableFuture<BatchResult> future = batchInvoker.executeAllAsync(requests);
+
+        assertEquals(2, executions.size());
+
+        executions.get(1).complete(newResult(0));
+        assertEquals(3, executions.size());
+        assertEquals(Collections.singletonList(requests.get(1)), completed);
+
+        executions.get(0).complete(newResult(1));
+        assertFalse(future.isDone());
+
+        executions.get(2).completeExceptionally(new MavenInvocationException("bad"));
+
+        BatchResult result = future.join();
+        assertEquals(3, completed.size());
+        assertEquals(1, result.getSuccessCount());
+        assertFalse(result.isSuccessful());
+        assertEquals(Arrays.asList(requests.get(0), requests.get(2)), result.getFailedRequests());
+        assertEquals(1, result.getResult(0).getExitCode());
+        assertNull(result.getResult(2));
+        assertInstanceOf(MavenInvocationException.class, result.getFailure(2));
+    }
+
+    @Test
+    void failingListenerDoesNotStallBatch() {
+        BatchInvoker batchInvoker = new BatchInvoker(invoker)
+                .setParallelism(1)
+                .setListener((request, result, failure) -> {
+                    throw new IllegalStateException("listener");
+                });
+
+        CompletableFuture<BatchResult> future = batchInvoker.executeAllAsync(newRequests(2));
+
+        executions.get(0).complete(newResult(0));
+        assertEquals(2, executions.size());
+
+        executions.get(1).complete(newResult(0));
+        assertTrue(future.join().isSuccessful());
+    }
+
+    @Test
+    void completesSynchronousExecutions() throws Exception {
+        AsyncInvoker completing = new DefaultInvoker() {
+            @Override
+            public CompletableFuture<InvocationResult> executeAsync(InvocationRequest request) {
+                return CompletableFuture.completedFuture(newResult(0));
+            }
+        };
+
+        BatchResult result = new BatchInvoker(completing).setParallelism(1).executeAll(newRequests(10000));
+
+        assertTrue(result.isSuccessful());
+        assertEquals(10000, result.getSuccessCount());
+    }
+
+    @Test
+    void emptyBatch() throws Exception {
+        BatchResult result = new BatchInvoker(invoker).executeAll(Collections.emptyList());
+
+        assertEquals(0, result.size());
+        assertTrue(result.isSuccessful());
+    }
+
+    @Test
+    void failFastStopsStartingRequests() {
+        BatchInvoker batchInvoker = new BatchInvoker(invoker).setParallelism(1).setFailFast(true);
+
+        CompletableFuture<BatchResult> future = batchInvoker.executeAllAsync(newRequests(3));
+
+        executions.get(0).complete(newResult(1));
+
+        BatchResult result = future.join();
+        assertEquals(1, executions.size());
+        assertInstanceOf(CancellationException.class, result.getFailure(1));
+        assertInstanceOf(CancellationException.class, result.getFailure(2));
+    }
+
+    @Test
+    void cancelBatchCancelsRunningRequests() {
+        BatchInvoker batchInvoker = new BatchInvoker(invoker).setParallelism(1);
+
+        CompletableFuture<BatchResult> future = batchInvoker.executeAllAsync(newRequests(2));
+
+        assertTrue(future.cancel(true));
+
+        assertTrue(executions.get(0).isCancelled());
+        assertEquals(1, executions.size());
+    }
+
+    @Test
+    void resultsKeepBatchOrder() {
+        List<InvocationRequest> requests = newRequests(2);
+        CompletableFuture<BatchResult> future =
+                new BatchInvoker(invoker).setParallelism(2).executeAllAsync(requests);
+
+        InvocationResult second = newResult(0);
+        executions.get(1).complete(second);
+        executions.get(0).complete(newResult(0));
+
+        assertSame(second, future.join().getResult(1));
+        assertSame(requests.get(1), future.join().getRequests().get(1));
+    }
+
+    private static List<InvocationRequest> newRequests(int count) {
+        List<InvocationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new DefaultInvocationRequest());
+        }
+        return requests;
+    }
+
+    private static InvocationResult newResult(int exitCode) {
+        DefaultInvocationResult result = new DefaultInvocationResult();
+        result.setExitCode(exitCode);
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+
+import org.apache.maven.shared.invoker.spy.BuildEvents;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BuildEventReaderTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream events = new DataOutputStream(bytes);
+
+    @Test
+    void readsBuild() throws Exception {
+        header(BuildEvents.SESSION_STARTED, 0);
+        events.writeInt(2);
+        events.writeUTF("org.example:a");
+        events.writeUTF("Module A");
+        events.writeUTF("org.example:b");
+        events.writeUTF("Module B");
+        header(BuildEvents.PROJECT_STARTED, 10);
+        events.writeUTF("org.example:a");
+        header(BuildEvents.MOJO_STARTED, 20);
+        events.writeUTF("org.example:a");
+        events.writeUTF("org.apache.maven.plugins:maven-compiler-plugin:3.13.0");
+        events.writeUTF("compile");
+        events.writeUTF("default-compile");
+        header(BuildEvents.MOJO_FINISHED, 120);
+        events.writeUTF("org.example:a");
+        events.writeByte(BuildEvents.FAILURE);
+        events.writeUTF("Compilation failure");
+        header(BuildEvents.PROJECT_FINISHED, 130);
+        events.writeUTF("org.example:a");
+        events.writeByte(BuildEvents.FAILURE);
+        events.writeUTF("Failed to execute goal");
+        header(BuildEvents.PROJECT_FINISHED, 140);
+        events.writeUTF("org.example:b");
+        events.writeByte(BuildEvents.SKIPPED);
+        events.writeUTF("");
+        header(BuildEvents.SESSION_FINISHED, 150);
+        events.writeByte(BuildEvents.FAILURE);
+
+        BuildSummary summary = read();
+
+        assertEquals(BuildStatus.FAILURE, summary.getStatus());
+        assertEquals(Duration.ofMillis(150), summary.getTotalTime());
+        assertEquals(2, summary.getProjects().size());
+
+        ProjectSummary a = summary.getProjects().get(0);
+        assertEquals("org.example:a", a.getId());
+        assertEquals("Module A", a.getName());
+        assertEquals(BuildStatus.FAILURE, a.getStatus());
+        assertEquals(Duration.ofMillis(120), a.getDuration());
+        assertEquals("Failed to execute goal", a.getFailure());
+        assertEquals(1, a.getMojos().size());
+
+        MojoSummary mojo = a.getMojos().get(0);
+        assertEquals("org.apache.maven.plugins:maven-compiler-plugin:3.13.0", mojo.getPluginId());
+        assertEquals("compile", mojo.getGoal());
+        assertEquals("default-compile", mojo.getExecutionId());
+        assertEquals(BuildStatus.FAILURE, mojo.getStatus());
+        assertEquals(Duration.ofMillis(100), mojo.getDuration());
+        assertEquals("Compilation failure", mojo.getFailure());
+
+        ProjectSummary b = summary.getProject("Module B");
+        assertEquals(BuildStatus.SKIPPED, b.getStatus());
+        assertNull(b.getDuration());
+        assertNull(b.getFailure());
+    }
+
+    @Test
+    void reportsProjectsNotBuiltAfterFailureAsSkipped() throws Exception {
+        header(BuildEvents.SESSION_STARTED, 0);
+        events.writeInt(1);
+        events.writeUTF("org.example:a");
+        events.writeUTF("a");
+        header(BuildEvents.SESSION_FINISHED, 10);
+        events.writeByte(BuildEvents.FAILURE);
+
+        assertEquals(BuildStatus.SKIPPED, read().getProject("a").getStatus());
+    }
+
+    @Test
+    void readsProjectDependencies() throws Exception {
+        header(BuildEvents.SESSION_STARTED, 0);
+        events.writeInt(2);
+        events.writeUTF("org.example:a");
+        events.writeUTF("a");
+        events.writeUTF("org.example:b");
+        events.writeUTF("b");
+        header(BuildEvents.PROJECT_DEPENDENCIES, 0);
+        events.writeInt(2);
+        events.writeUTF("org.example:a");
+        events.writeInt(0);
+        events.writeUTF("org.example:b");
+        events.writeInt(1);
+        events.writeUTF("org.example:a");
+
+        BuildSummary summary = read();
+
+        assertEquals(Collections.emptyList(), summary.getProject("a").getUpstreamProjects());
+        assertEquals(
+                Collections.singletonList("org.example:a"),
+                summary.getProject("b").getUpstreamProjects());
+    }
+
+    @Test
+    void ignoresTruncatedRecord() throws Exception {
+        header(BuildEvents.PROJECT_STARTED, 10);
+        events.writeUTF("org.example:a");
+        header(BuildEvents.PROJECT_FINISHED, 20);
+        events.writeUTF("org.example:a");
+
+        BuildSummary summary = read();
+
+        assertNull(summary.getStatus());
+        assertEquals(1, summary.getProjects().size());
+        assertNull(summary.getProjects().get(0).getStatus());
+    }
+
+    @Test
+    void rejectsUnknownRecord() throws Exception {
+        header(42, 0);
+
+        assertThrows(IOException.class, this::read);
+    }
+
+    private void header(int type, long time) throws IOException {
+        events.writeByte(type);
+        events.writeLong(time);
+    }
+
+    private BuildSummary read() throws IOException {
+        events.flush();
+        return BuildEventReader.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BuildSummaryParserTest {
+
+    private final BuildSummaryParser parser = new BuildSummaryParser();
+
+    @Test
+    void reactorBuild() {
+        consume(
+                "[INFO] Scanning for projects...",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Reactor Build Order:",
+                "[INFO] ",
+                "[INFO] parent                                                             [pom]",
+                "[INFO] module-a                                                           [jar]",
+                "[INFO] module-b                                                           [jar]",
+                "[INFO] module-c                                                           [jar]",
+                "[INFO] ",
+                "[INFO] ------------------------< org.example:parent >-------------------------",
+                "[INFO] Building parent 1.0-SNAPSHOT                                        [1/4]",
+                "[INFO]   from pom.xml",
+                "[INFO] --------------------------------[ pom ]---------------------------------",
+                "[INFO] ",
+                "[INFO] -----------------------< org.example:module-a >------------------------",
+                "[INFO] Building module-a 1.0-SNAPSHOT                                      [2/4]",
+                "[INFO]   from module-a/pom.xml",
+                "[INFO] --------------------------------[ jar ]---------------------------------",
+                "[INFO] Building jar: /work/module-a/target/module-a-1.0-SNAPSHOT.jar",
+                "[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 1, Time elapsed: 0.05 s - in org.example.ATest",
+                "[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 1",
+                "[INFO] Tests run: 3, Failures: 0, Errors: 0, Skipped: 0",
+                "[INFO] ",
+                "[INFO] -----------------------< org.example:module-b >------------------------",
+                "[INFO] Building module-b 2.0                                               [3/4]",
+                "[INFO]   from module-b/pom.xml",
+                "[INFO] --------------------------------[ jar ]---------------------------------",
+                "[ERROR] Tests run: 4, Failures: 1, Errors: 1, Skipped: 0",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Reactor Summary for parent 1.0-SNAPSHOT:",
+                "[INFO] ",
+                "[INFO] parent ............................................. SUCCESS [  0.123 s]",
+                "[INFO] module-a ........................................... SUCCESS [01:02 min]",
+                "[INFO] module-b 2.0 ....................................... FAILURE [  1,500 s]",
+                "[INFO] module-c ........................................... SKIPPED",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] BUILD FAILURE",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Total time:  01:04 min",
+                "[INFO] Finished at: 2024-05-07T20:49:21Z",
+                "[INFO] ------------------------------------------------------------------------");
+
+        BuildSummary summary = parser.getSummary();
+
+        assertEquals(BuildStatus.FAILURE, summary.getStatus());
+        assertEquals(Duration.ofSeconds(64), summary.getTotalTime());
+        assertEquals(4, summary.getProjects().size());
+
+        ProjectSummary parent = summary.getProjects().get(0);
+        assertEquals("org.example:parent", parent.getId());
+        assertEquals("parent", parent.getName());
+        assertEquals(BuildStatus.SUCCESS, parent.getStatus());
+        assertEquals(Duration.ofMillis(123), parent.getDuration());
+
+        ProjectSummary moduleA = summary.getProject("org.example:module-a");
+        assertEquals(BuildStatus.SUCCESS, moduleA.getStatus());
+        assertEquals(Duration.ofSeconds(62), moduleA.getDuration());
+        assertEquals(5, moduleA.getTestsRun());
+        assertEquals(1, moduleA.getTestsSkipped());
+
+        ProjectSummary moduleB = summary.getProject("module-b");
+        assertEquals("org.example:module-b", moduleB.getId());
+        assertEquals(BuildStatus.FAILURE, moduleB.getStatus());
+        assertEquals(Duration.ofMillis(1500), moduleB.getDuration());
+        assertEquals(4, moduleB.getTestsRun());
+        assertEquals(1, moduleB.getTestFailures());
+        assertEquals(1, moduleB.getTestErrors());
+
+        ProjectSummary moduleC = summary.getProject("module-c");
+        assertNull(moduleC.getId());
+        assertEquals(BuildStatus.SKIPPED, moduleC.getStatus());
+        assertNull(moduleC.getDuration());
+        assertEquals(0, moduleC.getTestsRun());
+
+        assertEquals(1, summary.getProjects(BuildStatus.FAILURE).size());
+    }
+
+    @Test
+    void singleModuleBuild() {
+        consume(
+                "[INFO] Scanning for projects...",
+                "[INFO] ",
+                "[INFO] ------------------------< org.example:single >-------------------------",
+                "[INFO] Building Single Module 1.0",
+                "[INFO] --------------------------------[ jar ]---------------------------------",
+                "[INFO] Tests run: 1, Failures: 0, Errors: 0, Skipped: 0",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] BUILD SUCCESS",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Total time:  2.5 s");
+
+        BuildSummary summary = parser.getSummary();
+
+        assertEquals(BuildStatus.SUCCESS, summary.getStatus());
+        assertEquals(1, summary.getProjects().size());
+        ProjectSummary project = summary.getProjects().get(0);
+        assertEquals("org.example:single", project.getId());
+        assertEquals("Single Module", project.getName());
+        assertEquals(BuildStatus.SUCCESS, project.getStatus());
+        assertEquals(Duration.ofMillis(2500), project.getDuration());
+        assertEquals(1, project.getTestsRun());
+    }
+
+    @Test
+    void unfinishedBuild() {
+        consume(
+                "[\u001B[1;34mINFO\u001B[m] Scanning for projects...",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Building legacy 1.0",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Building next 1.0");
+
+        BuildSummary summary = parser.getSummary();
+
+        assertNull(summary.getStatus());
+        assertNull(summary.getTotalTime());
+        assertEquals(2, summary.getProjects().size());
+        assertNull(summary.getProject("legacy").getId());
+        assertEquals(2, summary.getProjects(null).size());
+    }
+
+    @Test
+    void durations() {
+        assertEquals(Duration.ofMillis(1234), BuildSummaryParser.parseDuration("1.234 s"));
+        assertEquals(Duration.ofMillis(1200), BuildSummaryParser.parseDuration("1.2s"));
+        assertEquals(Duration.ofSeconds(125), BuildSummaryParser.parseDuration("02:05 min"));
+        assertEquals(Duration.ofMinutes(65), BuildSummaryParser.parseDuration("01:05 h"));
+        assertEquals(Duration.ofSeconds(3723), BuildSummaryParser.parseDuration("01:02:03 h"));
+        assertNull(BuildSummaryParser.parseDuration("soon"));
+    }
+
+    private void consume(String... lines) {
+        for (String line : lines) {
+            parser.consumeLine(line);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisabledOnOs(OS.WINDOWS)
+class CachingInvokerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private File project;
+
+    private File invocations;
+
+    private CachingInvoker invoker;
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        project = Files.createDirectory(temporaryFolder.resolve("project")).toFile();
+        invocations = temporaryFolder.resolve("invocations.log").toFile();
+        write("pom.xml", "<project/>");
+
+        // a fake Maven counting its invocations
+        File mvn = temporaryFolder.resolve("mvn").toFile();
+        Files.write(
+                mvn.toPath(),
+                ("#!/bin/sh\necho invoked >> \"$INVOCATIONS_FILE\"\necho \"[INFO] Executed $*\"\n"
+                                + "echo warning >&2\nmkdir -p target && date > target/output.txt\n"
+                                + "if [ -n \"$GENERATED_FILE\" ]; then echo generated > \"$GENERATED_FILE\"; fi\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        mvn.setExecutable(true);
+
+        invoker = new CachingInvoker(
+                new DefaultInvoker(),
+                new FileInvocationResultStore(temporaryFolder.resolve("store").toFile()));
+
+        request.setBaseDirectory(project);
+        request.setBatchMode(true);
+        request.setMavenExecutable(mvn);
+        request.addShellEnvironment("INVOCATIONS_FILE", invocations.getAbsolutePath());
+        request.setGoals(Collections.singletonList("verify"));
+    }
+
+    @Test
+    void replaysUnchangedInvocation() throws Exception {
+        List<String> firstOutput = new ArrayList<>();
+        List<String> firstError = new ArrayList<>();
+        request.setOutputHandler(firstOutput::add);
+        request.setErrorHandler(firstError::add);
+        assertEquals(0, invoker.execute(request).getExitCode());
+
+        List<String> secondOutput = new ArrayList<>();
+        List<String> secondError = new ArrayList<>();
+        request.setOutputHandler(secondOutput::add);
+        request.setErrorHandler(secondError::add);
+        request.setOutputTailSize(1024);
+        InvocationResult result = invoker.execute(request);
+
+        assertNull(result.getExecutionException());
+        assertEquals(0, result.getExitCode());
+        assertEquals("[INFO] Executed -B verify\n", result.getOutputTail());
+        assertEquals("warning\n", result.getErrorTail());
+        assertEquals(firstOutput, secondOutput);
+        assertEquals(firstError, secondError);
+        assertEquals(1, countInvocations());
+    }
+
+    @Test
+    void executesChangedProject() throws Exception {
+        invoker.execute(request);
+        write("src/main/java/A.java", "class A {}");
+        invoker.execute(request);
+        invoker.execute(request);
+
+        assertEquals(2, countInvocations());
+    }
+
+    @Test
+    void doesNotStoreInvocationChangingProject() throws Exception {
+        request.addShellEnvironment("GENERATED_FILE", "generated.txt");
+        invoker.execute(request);
+        Files.delete(new File(project, "generated.txt").toPath());
+        invoker.execute(request);
+
+        assertEquals(2, countInvocations());
+    }
+
+    @Test
+    void replaysWatchedProject() throws Exception {
+        File indexDirectory = temporaryFolder.resolve("index").toFile();
+        invoker.setIndexDirectory(indexDirectory).setWatching(true);
+        try {
+            invoker.execute(request);
+            invoker.execute(request);
+        } finally {
+            invoker.dispose();
+        }
+
+        assertEquals(1, countInvocations());
+        assertEquals(1, indexDirectory.list().length);
+    }
+
+    @Test
+    void executesChangedCommandLine() throws Exception {
+        invoker.execute(request);
+        request.setGoals(Collections.singletonList("install"));
+        invoker.execute(request);
+        request.addShellEnvironment("MAVEN_OPTS", "-Xmx1g");
+        invoker.execute(request);
+
+        assertEquals(3, countInvocations());
+    }
+
+    @Test
+    void executesFailedInvocationAgain() throws Exception {
+        File mvn = request.getMavenExecutable();
+        Files.write(
+                mvn.toPath(),
+                "#!/bin/sh\necho invoked >> \"$INVOCATIONS_FILE\"\nexit 1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, invoker.execute(request).getExitCode());
+        assertEquals(1, invoker.execute(request).getExitCode());
+
+        assertEquals(2, countInvocations());
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(project, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int countInvocations() throws Exception {
+        return Files.readAllLines(invocations.toPath()).size();
+    }
+}
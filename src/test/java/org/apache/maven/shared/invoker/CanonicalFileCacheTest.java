@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CanonicalFileCacheTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    @Test
+    void canonicalizes() throws Exception {
+        CanonicalFileCache cache = new CanonicalFileCache();
+        File file = new File(temporaryFolder.toFile(), "a/../settings.xml");
+
+        assertEquals(file.getCanonicalFile(), cache.getCanonicalFile(file));
+    }
+
+    @Test
+    void reusesCachedFile() throws Exception {
+        CanonicalFileCache cache = new CanonicalFileCache();
+        File file = new File(temporaryFolder.toFile(), "settings.xml");
+
+        assertSame(cache.getCanonicalFile(file), cache.getCanonicalFile(new File(file.getPath())));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFile() throws Exception {
+        CanonicalFileCache cache = new CanonicalFileCache(2, CanonicalFileCache.DEFAULT_TIME_TO_LIVE);
+        File first = new File(temporaryFolder.toFile(), "first");
+        File second = new File(temporaryFolder.toFile(), "second");
+        File third = new File(temporaryFolder.toFile(), "third");
+
+        File canonicalFirst = cache.getCanonicalFile(first);
+        File canonicalSecond = cache.getCanonicalFile(second);
+        cache.getCanonicalFile(first);
+        cache.getCanonicalFile(third);
+
+        assertSame(canonicalFirst, cache.getCanonicalFile(first));
+        assertNotSame(canonicalSecond, cache.getCanonicalFile(second));
+    }
+
+    @Test
+    void expiresEntries() throws Exception {
+        CanonicalFileCache cache = new CanonicalFileCache(2, 0);
+        File file = new File(temporaryFolder.toFile(), "settings.xml");
+
+        assertNotSame(cache.getCanonicalFile(file), cache.getCanonicalFile(file));
+    }
+}
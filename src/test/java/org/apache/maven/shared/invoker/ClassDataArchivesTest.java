@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.maven.shared.utils.Os;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ClassDataArchivesTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final InvokerLogger logger = new SystemOutLogger();
+
+    private File java;
+
+    private ClassDataArchives archives;
+
+    @BeforeEach
+    void setUp() {
+        File javaHome = new File(System.getProperty("java.home"));
+        java = new File(javaHome, Os.isFamily(Os.FAMILY_WINDOWS) ? "bin/java.exe" : "bin/java");
+        archives = new ClassDataArchives(temporaryFolder.resolve("archives").toFile());
+    }
+
+    @Test
+    void trainArchiveOnFirstUse() throws Exception {
+        File javaHome = java.getParentFile().getParentFile();
+        assumeTrue(DirectLaunchCache.getJavaVersion(javaHome) >= ClassDataArchives.DYNAMIC_ARCHIVE_JAVA_VERSION);
+
+        File mavenHome = copyMavenHome();
+
+        assertNull(archives.getArchive(mavenHome, java, logger));
+        archives.awaitTrainings();
+        File archive = archives.getArchive(mavenHome, java, logger);
+
+        assertNotNull(archive);
+        assertTrue(archive.isFile());
+        assertArrayEquals(new File[] {archive}, archives.getDirectory().listFiles());
+        assertEquals(archive, archives.getArchive(mavenHome, java, logger));
+
+        // an updated Maven home gets a new archive
+        File lib = new File(mavenHome, "lib");
+        assertTrue(lib.setLastModified(lib.lastModified() - 60_000));
+
+        assertNull(archives.getArchive(mavenHome, java, logger));
+        archives.awaitTrainings();
+        File updated = archives.getArchive(mavenHome, java, logger);
+
+        assertNotNull(updated);
+        assertNotEquals(archive, updated);
+        assertArrayEquals(new File[] {updated}, archives.getDirectory().listFiles());
+    }
+
+    @Test
+    void noArchiveWithoutDynamicArchiving() throws Exception {
+        Path javaHome =
+                Files.createDirectories(temporaryFolder.resolve("jdk11/bin")).getParent();
+        Files.write(javaHome.resolve("release"), "JAVA_VERSION=\"11.0.2\"\n".getBytes(StandardCharsets.US_ASCII));
+        File oldJava = Files.createFile(javaHome.resolve("bin/java")).toFile();
+
+        assertNull(archives.getArchive(new File(System.getProperty("maven.home")), oldJava, logger));
+        assertFalse(archives.getDirectory().exists());
+    }
+
+    @Test
+    void noArchiveWithoutClassWorlds() throws Exception {
+        File javaHome = java.getParentFile().getParentFile();
+        assumeTrue(DirectLaunchCache.getJavaVersion(javaHome) >= ClassDataArchives.DYNAMIC_ARCHIVE_JAVA_VERSION);
+
+        File mavenHome = Files.createDirectories(temporaryFolder.resolve("maven/bin"))
+                .getParent()
+                .toFile();
+
+        assertNull(archives.getArchive(mavenHome, java, logger));
+        archives.awaitTrainings();
+        assertNull(archives.getArchive(mavenHome, java, logger));
+        assertFalse(archives.getDirectory().exists());
+    }
+
+    private File copyMavenHome() throws Exception {
+        Path source =
+                new File(System.getProperty("maven.home")).getCanonicalFile().toPath();
+        Path target = temporaryFolder.resolve("maven");
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path copy = target.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(file, copy);
+                }
+            }
+        }
+        return target.toFile();
+    }
+}
@@ -18,15 +18,26 @@
  */
 package org.apache.maven.shared.invoker;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.shared.utils.Os;
 import org.apache.maven.shared.utils.StringUtils;
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.apache.maven.shared.utils.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
@@ -34,7 +45,12 @@ import org.junit.jupiter.api.condition.OS;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class DefaultInvokerTest {
 
@@ -82,6 +98,7 @@ class DefaultInvokerTest {
 
         // We check the exception to be sure the failure is based on timeout.
         assertTrue(result.getExecutionException().getMessage().contains("timed out"));
+        assertTrue(result.isTimedOut());
 
         // WARN - Windows issue MSHARED-867 - Maven and child surefire test process stays alive on Windows
         // workaround implemented in this test to timeout test after 15 sec
@@ -217,6 +234,268 @@ class DefaultInvokerTest {
         assertTrue(output.contains("INVOKER_TEST_ENV_2=test-env-value-2"));
     }
 
+    @Test
+    void byteOutputHandlerReceivesRawOutput() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.addArg("test-wrapper-goal");
+        request.setMavenExecutable(new File("./mvnw"));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        request.setOutputHandler(line -> fail("line handler called: " + line));
+        request.setByteOutputHandler(output::write);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(0, result.getExitCode());
+        if (Os.isFamily(Os.FAMILY_WINDOWS)) {
+            assertEquals("Windows Wrapper executed", output.toString().trim());
+        } else {
+            assertEquals("Unix Wrapper executed", output.toString().trim());
+        }
+    }
+
+    @Test
+    void redirectOutputToFile() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.addArg("test-wrapper-goal");
+        request.setMavenExecutable(new File("./mvnw"));
+
+        File log = new File(basedir, "target/build.log");
+        log.getParentFile().mkdirs();
+        Files.write(log.toPath(), "previous build\n".getBytes(StandardCharsets.UTF_8));
+
+        request.setOutputHandler(line -> fail("output handler called: " + line));
+        request.setOutputRedirect(ProcessBuilder.Redirect.appendTo(log));
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(0, result.getExitCode());
+        String output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        if (Os.isFamily(Os.FAMILY_WINDOWS)) {
+            assertEquals("previous build\nWindows Wrapper executed", output.trim());
+        } else {
+            assertEquals("previous build\nUnix Wrapper executed", output.trim());
+        }
+    }
+
+    @Test
+    void outputTailOfFailedBuild() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setMavenExecutable(new File("./mvnw"));
+        request.setOutputHandler(null);
+        request.setOutputTailSize(100);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(1, result.getExitCode());
+        String tail = result.getOutputTail();
+        assertTrue(tail.length() <= 100, tail);
+        assertTrue(tail.startsWith("line "), tail);
+        assertTrue(tail.trim().endsWith("line 1000" + System.lineSeparator() + "BUILD FAILURE"), tail);
+        assertEquals("", result.getErrorTail());
+    }
+
+    @Test
+    void buildSummary() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setMavenExecutable(new File("./mvnw"));
+        request.setBuildSummaryParsed(true);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(1, result.getExitCode());
+        BuildSummary summary = result.getBuildSummary();
+        assertEquals(BuildStatus.FAILURE, summary.getStatus());
+        assertEquals(2, summary.getProjects().size());
+        ProjectSummary failed = summary.getProjects(BuildStatus.FAILURE).get(0);
+        assertEquals("org.example:module-a", failed.getId());
+        assertEquals(3, failed.getTestsRun());
+        assertEquals(1, failed.getTestFailures());
+    }
+
+    @Test
+    void buildEvents() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setGoals(Arrays.asList("compile"));
+        request.setBuildEventsRecorded(true);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(1, result.getExitCode());
+        BuildSummary summary = result.getBuildSummary();
+        assertEquals(BuildStatus.FAILURE, summary.getStatus());
+        assertEquals(3, summary.getProjects().size());
+        assertEquals(
+                BuildStatus.SUCCESS, summary.getProject("test-build-events").getStatus());
+
+        ProjectSummary failed = summary.getProject("org.apache.maven.shared.invoker:module-a");
+        assertEquals(BuildStatus.FAILURE, failed.getStatus());
+        assertNotNull(failed.getFailure());
+        MojoSummary compile = failed.getMojos().get(failed.getMojos().size() - 1);
+        assertEquals("compile", compile.getGoal());
+        assertEquals(BuildStatus.FAILURE, compile.getStatus());
+        assertNotNull(compile.getDuration());
+
+        assertEquals(BuildStatus.SKIPPED, summary.getProject("module-b").getStatus());
+        assertEquals(
+                Arrays.asList(
+                        "org.apache.maven.shared.invoker:test-build-events",
+                        "org.apache.maven.shared.invoker:module-a"),
+                summary.getProject("module-b").getUpstreamProjects());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void measureResourceUsage() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setGoals(Arrays.asList("validate"));
+        request.setResourceUsageMeasured(true);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(0, result.getExitCode());
+        ResourceUsage usage = result.getResourceUsage();
+        assertTrue(usage.getWallTime().toMillis() > 0, usage.toString());
+        if (new File("/proc/self/stat").isFile()) {
+            assertTrue(usage.getUserCpuTime().toMillis() > 0, usage.toString());
+            assertTrue(usage.getPeakResidentSetSize() > 0, usage.toString());
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void timeoutTerminatesProcessTree() throws Exception {
+        assumeTrue(new File("/proc/self/stat").isFile());
+
+        File childPidFile = File.createTempFile("child", ".pid");
+        childPidFile.deleteOnExit();
+
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setMavenExecutable(new File("./mvnw"));
+        request.addShellEnvironment("CHILD_PID_FILE", childPidFile.getAbsolutePath());
+        request.setTimeoutInSeconds(2);
+        request.setTimeoutGracePeriodInSeconds(1);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertTrue(result.isTimedOut());
+        assertTrue(result.getExecutionException().getMessage().contains("timed out"));
+        assertNull(result.getThreadDump());
+
+        long child =
+                Long.parseLong(new String(Files.readAllBytes(childPidFile.toPath()), StandardCharsets.US_ASCII).trim());
+        for (int i = 0; i < 50 && ProcessTree.isAlive(child); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(ProcessTree.isAlive(child), "descendant " + child + " is alive");
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void classDataSharing() throws Exception {
+        File javaHome = new File(System.getProperty("java.home"));
+        assumeTrue(DirectLaunchCache.getJavaVersion(javaHome) >= ClassDataArchives.DYNAMIC_ARCHIVE_JAVA_VERSION);
+
+        File archiveDirectory = Files.createTempDirectory("archives").toFile();
+        try {
+            ((DefaultInvoker) invoker).setClassDataArchiveDirectory(archiveDirectory);
+
+            File basedir = getBasedirForBuild();
+            request.setBaseDirectory(basedir);
+            request.setJavaHome(javaHome);
+            request.setMavenOpts("-Xmx256m");
+            request.setGoals(Arrays.asList("validate"));
+
+            // the first build starts the training in the background and runs without archive
+            Commandline cli = ((DefaultInvoker) invoker).buildCommandLine(request);
+            assertTrue(
+                    Arrays.asList(cli.getEnvironmentVariables()).contains("MAVEN_OPTS=-Xmx256m"),
+                    Arrays.toString(cli.getEnvironmentVariables()));
+
+            File[] archives = archiveDirectory.listFiles((dir, name) -> name.endsWith(".jsa"));
+            for (int i = 0; i < 3000 && archives.length == 0; i++) {
+                Thread.sleep(100);
+                archives = archiveDirectory.listFiles((dir, name) -> name.endsWith(".jsa"));
+            }
+            assertEquals(1, archives.length);
+
+            cli = ((DefaultInvoker) invoker).buildCommandLine(request);
+            assertTrue(
+                    Arrays.asList(cli.getEnvironmentVariables())
+                            .contains("MAVEN_OPTS=-XX:SharedArchiveFile=" + archives[0].getPath() + " -Xmx256m"),
+                    Arrays.toString(cli.getEnvironmentVariables()));
+
+            InvocationResult result = invoker.execute(request);
+
+            assertEquals(0, result.getExitCode());
+        } finally {
+            FileUtils.deleteDirectory(archiveDirectory);
+        }
+    }
+
+    @Test
+    void executeAsync() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setMavenExecutable(new File("./mvnw"));
+
+        final StringBuilder outlines = new StringBuilder();
+        request.setOutputHandler(outlines::append);
+
+        CompletableFuture<InvocationResult> future = ((AsyncInvoker) invoker).executeAsync(request);
+        InvocationResult result = future.get(30, TimeUnit.SECONDS);
+
+        assertEquals(0, result.getExitCode());
+        if (Os.isFamily(Os.FAMILY_WINDOWS)) {
+            assertEquals("Windows Wrapper executed asynchronously", outlines.toString());
+        } else {
+            assertEquals("Unix Wrapper executed asynchronously", outlines.toString());
+        }
+    }
+
+    @Test
+    void executeAsyncShouldFailForMissingExecutable() {
+        request.setBaseDirectory(new File("."));
+        request.setMavenExecutable(new File("missing-mvn-executable"));
+
+        CompletableFuture<InvocationResult> future = ((AsyncInvoker) invoker).executeAsync(request);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof MavenInvocationException);
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void cancelAsync() throws Exception {
+        File basedir = getBasedirForBuild();
+        request.setBaseDirectory(basedir);
+        request.setMavenExecutable(new File("./mvnw"));
+
+        CountDownLatch started = new CountDownLatch(1);
+        request.setOutputHandler(line -> started.countDown());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ((AsyncInvoker) invoker).setExecutor(executor);
+
+            CompletableFuture<InvocationResult> future = ((AsyncInvoker) invoker).executeAsync(request);
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+
+            // the only executor thread is released as soon as the forked process has been killed
+            executor.submit(() -> {}).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private Invoker newInvoker() {
         Invoker invoker = new DefaultInvoker();
 
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.utils.Os;
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectInvokerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final DirectInvoker invoker = new DirectInvoker();
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    private File javaHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.write(
+                temporaryFolder.resolve("pom.xml"),
+                ("<project><modelVersion>4.0.0</modelVersion>"
+                                + "<groupId>test</groupId><artifactId>direct</artifactId><version>1</version>"
+                                + "</project>")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        javaHome = new File(System.getProperty("java.home"));
+
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setBatchMode(true);
+        request.setJavaHome(javaHome);
+        request.setGoals(Collections.singletonList("validate"));
+    }
+
+    @Test
+    void executeWithJava() throws Exception {
+        invoker.setMavenHome(new File(System.getProperty("maven.home")));
+        String localRepository = System.getProperty("maven.repo.local", "");
+        if (!localRepository.isEmpty()) {
+            invoker.setLocalRepositoryDirectory(new File(localRepository));
+        }
+
+        List<String> lines = new ArrayList<>();
+        request.setOutputHandler(lines::add);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertNull(result.getExecutionException());
+        assertEquals(0, result.getExitCode());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("BUILD SUCCESS")), lines.toString());
+    }
+
+    @Test
+    void buildJavaCommandLine() throws Exception {
+        File mavenHome = createMavenHome();
+        request.setMavenHome(mavenHome);
+
+        Path module = Files.createDirectory(temporaryFolder.resolve("module"));
+        Files.createDirectory(temporaryFolder.resolve(".mvn"));
+        Files.write(
+                temporaryFolder.resolve(".mvn/jvm.config"),
+                "# memory\r\n-Xmx512m\r\n\n-Dfoo=bar # options\n".getBytes(StandardCharsets.UTF_8));
+        request.setBaseDirectory(module.toFile());
+        request.setMavenOpts("-ea");
+
+        Commandline cli = invoker.buildCommandLine(request);
+
+        File java = new File(javaHome, Os.isFamily(Os.FAMILY_WINDOWS) ? "bin/java.exe" : "bin/java");
+        assertEquals(
+                java.getAbsolutePath(), cli.getExecutable().replace("'", "").replace("\"", ""));
+
+        List<String> expected = new ArrayList<>();
+        if (DirectLaunchCache.getJavaVersion(javaHome) >= 17) {
+            expected.add("--enable-native-access=ALL-UNNAMED");
+        }
+        expected.addAll(Arrays.asList(
+                "-Xmx512m",
+                "-Dfoo=bar",
+                "-ea",
+                "-classpath",
+                new File(mavenHome, "boot/plexus-classworlds-2.9.0.jar").getAbsolutePath(),
+                "-Dclassworlds.conf=" + new File(mavenHome, "bin/m2.conf").getPath(),
+                "-Dmaven.home=" + mavenHome.getPath(),
+                "-Dlibrary.jansi.path=" + new File(mavenHome, "lib/jansi-native").getPath(),
+                "-Dmaven.multiModuleProjectDirectory="
+                        + temporaryFolder.toFile().getCanonicalPath(),
+                DirectCommandLineBuilder.LAUNCHER,
+                "-B",
+                "validate"));
+        assertEquals(expected, Arrays.asList(cli.getArguments()));
+    }
+
+    @Test
+    void splitInvalidlyQuotedOptionsLikeScript() throws Exception {
+        request.setMavenHome(createMavenHome());
+        request.setMavenOpts("-ea \"-Dfoo=bar");
+
+        List<String> arguments = Arrays.asList(invoker.buildCommandLine(request).getArguments());
+
+        int ea = arguments.indexOf("-ea");
+        assertTrue(ea >= 0, arguments.toString());
+        assertEquals("\"-Dfoo=bar", arguments.get(ea + 1));
+    }
+
+    @Test
+    void fallBackWithoutClassWorlds() throws Exception {
+        File mavenHome = createMavenHome();
+        Files.delete(mavenHome.toPath().resolve("boot/plexus-classworlds-2.9.0.jar"));
+        request.setMavenHome(mavenHome);
+
+        Commandline cli = invoker.buildCommandLine(request);
+
+        assertTrue(cli.getExecutable().contains("mvn"), cli.getExecutable());
+        assertEquals(Arrays.asList("-B", "validate"), Arrays.asList(cli.getArguments()));
+    }
+
+    @Test
+    void fallBackWithUnreadableJvmConfig() throws Exception {
+        request.setMavenHome(createMavenHome());
+        Files.createDirectory(temporaryFolder.resolve(".mvn"));
+        Files.write(temporaryFolder.resolve(".mvn/jvm.config"), new byte[] {'-', 'X', (byte) 0xff});
+
+        Commandline cli = invoker.buildCommandLine(request);
+
+        assertTrue(cli.getExecutable().contains("mvn"), cli.getExecutable());
+        assertEquals(Arrays.asList("-B", "validate"), Arrays.asList(cli.getArguments()));
+    }
+
+    @Test
+    void fallBackWithExplicitMavenExecutable() {
+        request.setMavenExecutable(new File("./mvnw"));
+
+        assertEquals(
+                MavenCommandLineBuilder.class,
+                invoker.newCommandLineBuilder(request).getClass());
+    }
+
+    @Test
+    void javaVersion() throws Exception {
+        Path release = temporaryFolder.resolve("release");
+
+        Files.write(release, "JAVA_VERSION=\"1.8.0_392\"\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(8, DirectLaunchCache.getJavaVersion(temporaryFolder.toFile()));
+
+        Files.write(release, "IMPLEMENTOR=\"x\"\nJAVA_VERSION=\"21\"\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(21, DirectLaunchCache.getJavaVersion(temporaryFolder.toFile()));
+
+        Files.delete(release);
+        assertEquals(-1, DirectLaunchCache.getJavaVersion(temporaryFolder.toFile()));
+    }
+
+    private File createMavenHome() throws Exception {
+        Path mavenHome = Files.createDirectory(temporaryFolder.resolve("maven"));
+        Files.createDirectories(mavenHome.resolve("bin"));
+        Files.createFile(mavenHome.resolve("bin/m2.conf"));
+        Files.createFile(mavenHome.resolve("bin/mvn"));
+        Files.createFile(mavenHome.resolve("bin/mvn.cmd"));
+        Files.createDirectories(mavenHome.resolve("boot"));
+        Files.createFile(mavenHome.resolve("boot/plexus-classworlds-2.9.0.jar"));
+        return mavenHome.toFile();
+    }
+}
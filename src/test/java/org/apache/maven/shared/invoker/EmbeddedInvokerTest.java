@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedInvokerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final EmbeddedInvoker invoker = new EmbeddedInvoker();
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.write(
+                temporaryFolder.resolve("pom.xml"),
+                ("<project><modelVersion>4.0.0</modelVersion>"
+                                + "<groupId>test</groupId><artifactId>embedded</artifactId><version>1</version>"
+                                + "</project>")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        invoker.setMavenHome(new File(System.getProperty("maven.home")));
+        invoker.setLogger(new PrintStreamLogger(new PrintStream(log, true), InvokerLogger.DEBUG));
+        String localRepository = System.getProperty("maven.repo.local", "");
+        if (!localRepository.isEmpty()) {
+            invoker.setLocalRepositoryDirectory(new File(localRepository));
+        }
+
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setBatchMode(true);
+        request.setGoals(Collections.singletonList("validate"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoker.dispose();
+    }
+
+    @Test
+    void executeTwiceInProcess() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            List<String> lines = new ArrayList<>();
+            request.setOutputHandler(lines::add);
+
+            InvocationResult result = invoker.execute(request);
+
+            assertNull(result.getExecutionException());
+            assertEquals(0, result.getExitCode());
+            assertTrue(lines.stream().anyMatch(line -> line.contains("BUILD SUCCESS")), lines.toString());
+        }
+
+        assertTrue(log.toString().contains("Executing embedded"), log.toString());
+    }
+
+    @Test
+    void recordBuildEventsInProcess() throws Exception {
+        request.setBuildEventsRecorded(true);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(0, result.getExitCode());
+        BuildSummary summary = result.getBuildSummary();
+        assertEquals(BuildStatus.SUCCESS, summary.getStatus());
+        assertEquals(BuildStatus.SUCCESS, summary.getProject("test:embedded").getStatus());
+        assertTrue(log.toString().contains("Executing embedded"), log.toString());
+    }
+
+    @Test
+    void executeFailingBuildInProcess() throws Exception {
+        request.setGoals(Collections.singletonList("no-such-phase"));
+        request.setOutputTailSize(4096);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertNull(result.getExecutionException());
+        assertEquals(1, result.getExitCode());
+        assertTrue(result.getOutputTail().contains("no-such-phase"), result.getOutputTail());
+    }
+
+    @Test
+    void requestsNeedingProcessAreForked() {
+        assertTrue(invoker.canEmbed(request));
+
+        request.setMavenOpts("-Xmx1g");
+        assertFalse(invoker.canEmbed(request));
+        request.setMavenOpts(null);
+
+        request.setTimeoutInSeconds(10);
+        assertFalse(invoker.canEmbed(request));
+        request.setTimeoutInSeconds(0);
+
+        request.setOutputRedirect(
+                ProcessBuilder.Redirect.to(temporaryFolder.resolve("build.log").toFile()));
+        assertFalse(invoker.canEmbed(request));
+        request.setOutputRedirect(null);
+
+        request.setBatchMode(false);
+        request.setInputStream(new ByteArrayInputStream(new byte[0]));
+        assertFalse(invoker.canEmbed(request));
+    }
+
+    @Test
+    void mavenScriptIsEmbeddable() throws Exception {
+        File mavenHome = new File(System.getProperty("maven.home")).getCanonicalFile();
+
+        Commandline cli = new Commandline();
+        cli.setExecutable(new File(mavenHome, "bin/mvn").getPath());
+
+        assertEquals(mavenHome, EmbeddedInvoker.findEmbeddableMavenHome(cli));
+    }
+
+    @Test
+    void unquoteExecutable() {
+        assertEquals("/opt/maven/bin/mvn", EmbeddedInvoker.unquote("'/opt/maven/bin/mvn'"));
+        assertEquals("/opt/it's/bin/mvn", EmbeddedInvoker.unquote("'/opt/it'\"'\"'s/bin/mvn'"));
+        assertEquals("C:\\maven\\bin\\mvn.cmd", EmbeddedInvoker.unquote("C:\\maven\\bin\\mvn.cmd"));
+    }
+
+    @Test
+    void wrapperIsNotEmbeddable() throws Exception {
+        Commandline cli = new Commandline();
+        cli.setExecutable(temporaryFolder.resolve("mvnw").toString());
+
+        assertNull(EmbeddedInvoker.findEmbeddableMavenHome(cli));
+    }
+}
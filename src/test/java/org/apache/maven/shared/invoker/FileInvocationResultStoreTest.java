@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileInvocationResultStoreTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    @Test
+    void saveAndLoad() throws Exception {
+        FileInvocationResultStore store = new FileInvocationResultStore(new File(temporaryFolder.toFile(), "store"));
+        byte[] output = "[INFO] BUILD SUCCESS\n".getBytes(StandardCharsets.UTF_8);
+        byte[] error = new byte[0];
+
+        assertNull(store.load("a"));
+
+        store.save("a", new CachedInvocation(output, error));
+        CachedInvocation invocation = store.load("a");
+
+        assertNotNull(invocation);
+        assertArrayEquals(output, invocation.getOutput());
+        assertArrayEquals(error, invocation.getError());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws Exception {
+        FileInvocationResultStore store = new FileInvocationResultStore(temporaryFolder.toFile()).setMaxEntries(2);
+        long now = System.currentTimeMillis();
+
+        store.save("a", newInvocation(10));
+        store.save("b", newInvocation(10));
+        new File(temporaryFolder.toFile(), "a.result").setLastModified(now - 2000);
+        new File(temporaryFolder.toFile(), "b.result").setLastModified(now - 1000);
+        store.load("a");
+        store.save("c", newInvocation(10));
+
+        assertTrue(new File(temporaryFolder.toFile(), "a.result").isFile());
+        assertFalse(new File(temporaryFolder.toFile(), "b.result").exists());
+        assertTrue(new File(temporaryFolder.toFile(), "c.result").isFile());
+    }
+
+    @Test
+    void evictsEntriesExceedingMaxSize() throws Exception {
+        FileInvocationResultStore store = new FileInvocationResultStore(temporaryFolder.toFile());
+        long now = System.currentTimeMillis();
+
+        store.save("a", newInvocation(100));
+        new File(temporaryFolder.toFile(), "a.result").setLastModified(now - 1000);
+        store.setMaxSize(new File(temporaryFolder.toFile(), "a.result").length() + 1);
+        store.save("b", newInvocation(100));
+
+        assertNull(store.load("a"));
+        assertNotNull(store.load("b"));
+    }
+
+    private static CachedInvocation newInvocation(int size) {
+        byte[] output = new byte[size];
+        for (int i = 0; i < size; i++) {
+            output[i] = (byte) (i * 31 + size);
+        }
+        return new CachedInvocation(output, new byte[0]);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileTreeIndexTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private File root;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createDirectory(temporaryFolder.resolve("project")).toFile();
+        write("pom.xml", "<project/>");
+        write("src/main/java/A.java", "class A {}");
+    }
+
+    @Test
+    void hashesContents() throws Exception {
+        FileTreeIndex index = new FileTreeIndex(root, Collections.singleton("target"), null);
+        String hash = index.getHash();
+
+        assertEquals(hash, index.getHash());
+        assertEquals(2, index.size());
+
+        write("target/classes/A.class", "ignored");
+        assertEquals(hash, index.getHash());
+
+        write("src/main/java/A.java", "class B {}");
+        assertNotEquals(hash, index.getHash());
+
+        write("src/main/java/A.java", "class A {}");
+        assertEquals(hash, index.getHash());
+
+        write("src/main/java/B.java", "class B {}");
+        assertNotEquals(hash, index.getHash());
+        assertEquals(3, index.size());
+
+        Files.delete(new File(root, "src/main/java/B.java").toPath());
+        assertEquals(hash, index.getHash());
+    }
+
+    @Test
+    void excludesNamesOnlyInModuleDirectories() throws Exception {
+        write("module/pom.xml", "<project/>");
+        write("src/test/resources/target/expected.txt", "expected");
+        FileTreeIndex index = new FileTreeIndex(root, Collections.singleton("target"), null);
+        String hash = index.getHash();
+
+        write("module/target/classes/A.class", "ignored");
+        assertEquals(hash, index.getHash());
+
+        write("src/test/resources/target/expected.txt", "changed");
+        assertNotEquals(hash, index.getHash());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void followsSymbolicLinks() throws Exception {
+        write("../shared/B.java", "class B {}");
+        Files.createSymbolicLink(root.toPath().resolve("src/main/java/B.java"), Paths.get("../../../../shared/B.java"));
+        Files.createSymbolicLink(root.toPath().resolve("src/main/loop"), Paths.get(".."));
+        FileTreeIndex index = new FileTreeIndex(root, null, null);
+        String hash = index.getHash();
+        assertEquals(3, index.size());
+
+        write("../shared/B.java", "class C {}");
+        String changed = index.getHash();
+        assertNotEquals(hash, changed);
+
+        // a dangling link is hashed by the path it points to
+        Files.delete(temporaryFolder.resolve("shared/B.java"));
+        String dangling = index.getHash();
+        assertNotEquals(changed, dangling);
+        assertEquals(3, index.size());
+
+        Files.delete(root.toPath().resolve("src/main/java/B.java"));
+        Files.createSymbolicLink(root.toPath().resolve("src/main/java/B.java"), Paths.get("missing/B.java"));
+        assertNotEquals(dangling, index.getHash());
+    }
+
+    @Test
+    void rewritesCorruptIndexFile() throws Exception {
+        File indexFile = temporaryFolder.resolve("project.index").toFile();
+        long lastModified = System.currentTimeMillis() - 60_000;
+        new File(root, "pom.xml").setLastModified(lastModified);
+        new File(root, "src/main/java/A.java").setLastModified(lastModified);
+        String hash = new FileTreeIndex(root, null, indexFile).getHash();
+        byte[] written = Files.readAllBytes(indexFile.toPath());
+        Files.write(indexFile.toPath(), Arrays.copyOf(written, written.length / 2));
+
+        assertEquals(hash, new FileTreeIndex(root, null, indexFile).getHash());
+        assertEquals(written.length, Files.size(indexFile.toPath()));
+    }
+
+    @Test
+    void reusesPersistedHashesOfUnchangedFiles() throws Exception {
+        File indexFile = temporaryFolder.resolve("project.index").toFile();
+        long lastModified = System.currentTimeMillis() - 60_000;
+        File source = new File(root, "src/main/java/A.java");
+        source.setLastModified(lastModified);
+
+        String hash = new FileTreeIndex(root, null, indexFile).getHash();
+        assertTrue(indexFile.isFile());
+
+        // a change keeping size and modification time is only seen without the index file
+        write("src/main/java/A.java", "class Z {}");
+        source.setLastModified(lastModified);
+
+        assertEquals(hash, new FileTreeIndex(root, null, indexFile).getHash());
+        assertNotEquals(hash, new FileTreeIndex(root, null, null).getHash());
+    }
+
+    @Test
+    void hashesRecentlyModifiedFilesAgain() throws Exception {
+        FileTreeIndex index = new FileTreeIndex(root, null, null);
+        File source = new File(root, "src/main/java/A.java");
+        long lastModified = source.lastModified();
+        String hash = index.getHash();
+
+        write("src/main/java/A.java", "class Z {}");
+        source.setLastModified(lastModified);
+
+        assertNotEquals(hash, index.getHash());
+    }
+
+    @Test
+    void watchesChanges() throws Exception {
+        try (FileTreeIndex index = new FileTreeIndex(root, null, null)) {
+            index.watch();
+            String hash = index.getHash();
+
+            assertTrue(index.isWatching());
+            assertEquals(hash, index.getHash());
+
+            write("src/main/java/A.java", "class B {}");
+            String changed = hash;
+            for (int i = 0; i < 100 && changed.equals(hash); i++) {
+                Thread.sleep(100);
+                changed = index.getHash();
+            }
+            assertNotEquals(hash, changed);
+
+            write("src/test/java/ATest.java", "class ATest {}");
+            String added = changed;
+            for (int i = 0; i < 100 && added.equals(changed); i++) {
+                Thread.sleep(100);
+                added = index.getHash();
+            }
+            assertNotEquals(changed, added);
+            assertEquals(3, index.size());
+        }
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
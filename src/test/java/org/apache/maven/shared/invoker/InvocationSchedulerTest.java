@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvocationSchedulerTest {
+
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    private final List<CompletableFuture<InvocationResult>> executions = new ArrayList<>();
+
+    private boolean completeImmediately;
+
+    private final AsyncInvoker invoker = new DefaultInvoker() {
+        @Override
+        public CompletableFuture<InvocationResult> executeAsync(InvocationRequest request) {
+            if ("fail".equals(request.getThreads())) {
+                throw new IllegalStateException("fail");
+            }
+            CompletableFuture<InvocationResult> execution = new CompletableFuture<>();
+            executions.add(execution);
+            if (completeImmediately) {
+                execution.complete(new DefaultInvocationResult());
+            }
+            return execution;
+        }
+    };
+
+    @Test
+    void coreCost() {
+        assertEquals(1, InvocationScheduler.coreCost(null, 8));
+        assertEquals(1, InvocationScheduler.coreCost("", 8));
+        assertEquals(4, InvocationScheduler.coreCost("4", 8));
+        assertEquals(8, InvocationScheduler.coreCost("1C", 8));
+        assertEquals(12, InvocationScheduler.coreCost("1.5C", 8));
+        assertEquals(1, InvocationScheduler.coreCost("0.1C", 2));
+        assertEquals(1, InvocationScheduler.coreCost("invalid", 8));
+    }
+
+    @Test
+    void memoryCost() {
+        assertEquals(42, InvocationScheduler.memoryCost(null, 42));
+        assertEquals(42, InvocationScheduler.memoryCost("-Xms1g -ea", 42));
+        assertEquals(2 * GB, InvocationScheduler.memoryCost("-Xmx2g", 0));
+        assertEquals(512L * 1024 * 1024, InvocationScheduler.memoryCost("-Xmx512M -ea", 0));
+        assertEquals(1024L * 1024, InvocationScheduler.memoryCost("-Xmx1024k", 0));
+        assertEquals(4096, InvocationScheduler.memoryCost("-Xmx4096", 0));
+        assertEquals(GB, InvocationScheduler.memoryCost("-Xmx4g -Xmx1g", 0));
+    }
+
+    @Test
+    void admitsRequestsWithinCoreBudget() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 4, Long.MAX_VALUE);
+
+        CompletableFuture<InvocationResult> first = scheduler.schedule(newRequest("2", null));
+        scheduler.schedule(newRequest("2", null));
+        scheduler.schedule(newRequest("2", null));
+
+        assertEquals(2, executions.size());
+        assertEquals(1, scheduler.getQueueSize());
+        assertEquals(4, scheduler.getUsedCores());
+
+        InvocationResult result = new DefaultInvocationResult();
+        executions.get(0).complete(result);
+
+        assertSame(result, first.join());
+        assertEquals(3, executions.size());
+        assertEquals(0, scheduler.getQueueSize());
+        assertEquals(4, scheduler.getUsedCores());
+    }
+
+    @Test
+    void admitsRequestsWithinMemoryBudget() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 16, 3 * GB).setDefaultMemory(GB);
+
+        scheduler.schedule(newRequest(null, "-Xmx2g"));
+        scheduler.schedule(newRequest(null, null));
+        scheduler.schedule(newRequest(null, "-Xmx512m"));
+
+        assertEquals(2, executions.size());
+        assertEquals(3 * GB, scheduler.getUsedMemory());
+
+        executions.get(1).complete(new DefaultInvocationResult());
+
+        assertEquals(3, executions.size());
+        assertEquals(2 * GB + GB / 2, scheduler.getUsedMemory());
+    }
+
+    @Test
+    void admitsOversizedRequestAlone() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 4, Long.MAX_VALUE);
+
+        scheduler.schedule(newRequest("1", null));
+        scheduler.schedule(newRequest("16", null));
+
+        assertEquals(1, executions.size());
+
+        executions.get(0).complete(new DefaultInvocationResult());
+
+        assertEquals(2, executions.size());
+        assertEquals(4, scheduler.getUsedCores());
+    }
+
+    @Test
+    void cancelQueuedRequest() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 1, Long.MAX_VALUE);
+
+        scheduler.schedule(newRequest(null, null));
+        CompletableFuture<InvocationResult> queued = scheduler.schedule(newRequest(null, null));
+
+        assertTrue(queued.cancel(true));
+        assertEquals(0, scheduler.getQueueSize());
+
+        executions.get(0).complete(new DefaultInvocationResult());
+
+        assertEquals(1, executions.size());
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    @Test
+    void cancelRunningRequest() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 1, Long.MAX_VALUE);
+
+        CompletableFuture<InvocationResult> running = scheduler.schedule(newRequest(null, null));
+        scheduler.schedule(newRequest(null, null));
+
+        assertTrue(running.cancel(true));
+
+        assertTrue(executions.get(0).isCancelled());
+        assertEquals(2, executions.size());
+        assertFalse(executions.get(1).isDone());
+        assertEquals(1, scheduler.getRunningCount());
+    }
+
+    @Test
+    void releasesBudgetOfFailedStart() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 1, Long.MAX_VALUE);
+
+        CompletableFuture<InvocationResult> failed = scheduler.schedule(newRequest("fail", null));
+        scheduler.schedule(newRequest(null, null));
+
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(1, executions.size());
+        assertEquals(1, scheduler.getRunningCount());
+    }
+
+    @Test
+    void startsSynchronouslyCompletingRequestsWithoutRecursion() {
+        InvocationScheduler scheduler = new InvocationScheduler(invoker, 1, Long.MAX_VALUE);
+
+        scheduler.schedule(newRequest(null, null));
+        List<CompletableFuture<InvocationResult>> queued = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            queued.add(scheduler.schedule(newRequest(null, null)));
+        }
+
+        completeImmediately = true;
+        executions.get(0).complete(new DefaultInvocationResult());
+
+        assertTrue(queued.stream().allMatch(CompletableFuture::isDone));
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    private static InvocationRequest newRequest(String threads, String mavenOpts) {
+        return new DefaultInvocationRequest().setThreads(threads).setMavenOpts(mavenOpts);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvocationTemplateTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final DefaultInvoker invoker = new DefaultInvoker();
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.write(
+                temporaryFolder.resolve("pom.xml"),
+                ("<project><modelVersion>4.0.0</modelVersion>"
+                                + "<groupId>test</groupId><artifactId>template</artifactId><version>1</version>"
+                                + "</project>")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        invoker.setMavenHome(new File(System.getProperty("maven.home")));
+
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setBatchMode(true);
+        request.setProperties(properties);
+        request.setProfiles(Collections.singletonList("profile"));
+        request.setAlsoMake(true);
+        request.setMavenOpts("-Xmx256m");
+    }
+
+    @Test
+    void derivesSameCommandLineAsRequest() throws Exception {
+        InvocationTemplate template = invoker.newTemplate(request);
+
+        request.setGoals(Arrays.asList("clean", "install"));
+        request.setProjects(Arrays.asList("a", "b"));
+        Commandline expected = invoker.buildCommandLine(request);
+
+        Commandline cli = template.newCommandLine(Arrays.asList("clean", "install"), Arrays.asList("a", "b"));
+
+        assertEquals(expected.getExecutable(), cli.getExecutable());
+        assertEquals(expected.getWorkingDirectory(), cli.getWorkingDirectory());
+        assertArrayEquals(expected.getEnvironmentVariables(), cli.getEnvironmentVariables());
+        assertEquals(sorted(expected.getArguments()), sorted(cli.getArguments()));
+
+        List<String> arguments = Arrays.asList(cli.getArguments());
+        assertEquals(
+                Arrays.asList("-pl", "a,b", "-am", "clean", "install"),
+                arguments.subList(arguments.size() - 5, arguments.size()));
+    }
+
+    @Test
+    void ignoresGoalsAndProjectsOfRequest() throws Exception {
+        request.setGoals(Collections.singletonList("deploy"));
+        request.setProjects(Collections.singletonList("c"));
+
+        InvocationTemplate template = invoker.newTemplate(request);
+
+        List<String> arguments =
+                Arrays.asList(template.newCommandLine(null, null).getArguments());
+        assertTrue(!arguments.contains("deploy") && !arguments.contains("-pl"), arguments.toString());
+    }
+
+    @Test
+    void laterChangesOfRequestDoNotAffectTemplate() throws Exception {
+        InvocationTemplate template = invoker.newTemplate(request);
+
+        request.setOffline(true);
+        request.setMavenOpts(null);
+
+        assertTrue(!Arrays.asList(template.newCommandLine(null, null).getArguments())
+                .contains("-o"));
+        assertEquals("-Xmx256m", template.getRequest().getMavenOpts());
+    }
+
+    @Test
+    void snapshotRendersSameCommandLine() throws Exception {
+        request.setGoals(Arrays.asList("clean", "install"));
+        request.setProjects(Arrays.asList("a", "b"));
+        request.setOffline(true);
+        request.setUpdateSnapshots(true);
+        request.setThreads("2");
+        request.setQuiet(true);
+        request.addArg("-Dfoo=bar");
+        request.addShellEnvironment("FOO", "bar");
+
+        InvocationRequest snapshot = InvocationTemplate.snapshot(request);
+        request.getProperties().setProperty("key", "changed");
+        request.getGoals().set(0, "validate");
+
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        request.setProperties(properties);
+        request.setGoals(Arrays.asList("clean", "install"));
+
+        Commandline expected = invoker.buildCommandLine(request);
+        Commandline cli = invoker.buildCommandLine(snapshot);
+
+        assertEquals(Arrays.asList(expected.getArguments()), Arrays.asList(cli.getArguments()));
+        assertArrayEquals(expected.getEnvironmentVariables(), cli.getEnvironmentVariables());
+    }
+
+    @Test
+    void snapshotCopiesEverySetting() throws Exception {
+        InvocationRequest defaults = new DefaultInvocationRequest();
+        for (Method setter : InvocationRequest.class.getMethods()) {
+            if (setter.getName().startsWith("set") || setter.getName().startsWith("add")) {
+                Object[] values = new Object[setter.getParameterCount()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = newValue(setter, i, defaults);
+                }
+                setter.invoke(request, values);
+            }
+        }
+
+        InvocationRequest snapshot = InvocationTemplate.snapshot(request);
+
+        for (Method getter : InvocationRequest.class.getMethods()) {
+            if (getter.getName().startsWith("get") || getter.getName().startsWith("is")) {
+                Object[] defaultValues = new Object[getter.getParameterCount()];
+                Object value = getter.invoke(request, defaultValues);
+                assertNotEquals(getter.invoke(defaults, defaultValues), value, getter.getName() + " not set");
+                assertEquals(value, getter.invoke(snapshot, defaultValues), getter.getName() + " not copied");
+            }
+        }
+    }
+
+    /**
+     * Creates a value for the given parameter of the given setter differing from the default of the request.
+     */
+    private static Object newValue(Method setter, int index, InvocationRequest defaults) throws Exception {
+        Class<?> type = setter.getParameterTypes()[index];
+        String name = setter.getName().substring(3) + index;
+        Object defaultValue = getDefault(setter, defaults);
+        if (type == boolean.class) {
+            return !Boolean.TRUE.equals(defaultValue);
+        } else if (type == int.class) {
+            return name.length() + 100;
+        } else if (type == String.class) {
+            return name;
+        } else if (type == File.class) {
+            return new File(name);
+        } else if (type == List.class || type == Collection.class) {
+            return Collections.singletonList(name);
+        } else if (type == Properties.class) {
+            Properties properties = new Properties();
+            properties.setProperty(name, name);
+            return properties;
+        } else if (type == InputStream.class) {
+            return new ByteArrayInputStream(new byte[0]);
+        } else if (type == ProcessBuilder.Redirect.class) {
+            return ProcessBuilder.Redirect.to(new File(name));
+        } else if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants[0] != defaultValue ? constants[0] : constants[1];
+        } else if (type.isInterface()) {
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[] {type},
+                    (proxy, method, args) -> method.getName().equals("equals") ? proxy == args[0] : null);
+        }
+        throw new AssertionError("No value for " + setter);
+    }
+
+    private static Object getDefault(Method setter, InvocationRequest defaults) throws Exception {
+        for (String prefix : Arrays.asList("is", "get")) {
+            try {
+                return InvocationRequest.class
+                        .getMethod(prefix + setter.getName().substring(3))
+                        .invoke(defaults);
+            } catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void executeTemplate() throws Exception {
+        List<String> lines = new ArrayList<>();
+        request.setOutputHandler(lines::add);
+
+        InvocationTemplate template = invoker.newTemplate(request);
+
+        InvocationResult result = invoker.execute(template, Collections.singletonList("validate"), null);
+
+        assertEquals(0, result.getExitCode());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("BUILD SUCCESS")), lines.toString());
+    }
+
+    private static List<String> sorted(String[] values) {
+        List<String> list = new ArrayList<>(Arrays.asList(values));
+        Collections.sort(list);
+        return list;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineByteOutputHandlerTest {
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final LineByteOutputHandler handler = new LineByteOutputHandler(lines::add, StandardCharsets.UTF_8);
+
+    @Test
+    void splitsLinesLikeReadLine() throws Exception {
+        consume("a\nb\r\nc\rd\n\ne");
+        handler.complete();
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "", "e"), lines);
+    }
+
+    @Test
+    void joinsLinesSpanningChunks() throws Exception {
+        consume("hel");
+        consume("lo\r");
+        consume("\nwö");
+        consume("rld\n");
+        handler.complete();
+
+        assertEquals(Arrays.asList("hello", "wörld"), lines);
+    }
+
+    @Test
+    void decodesCharactersSplitAcrossChunks() throws Exception {
+        byte[] bytes = "ä\n".getBytes(StandardCharsets.UTF_8);
+        handler.consume(bytes, 0, 1);
+        handler.consume(bytes, 1, bytes.length - 1);
+
+        assertEquals(Collections.singletonList("ä"), lines);
+    }
+
+    @Test
+    void growsBufferForLongLines() throws Exception {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            line.append(i % 10);
+        }
+        consume(line.toString());
+        handler.complete();
+
+        assertEquals(Collections.singletonList(line.toString()), lines);
+    }
+
+    private void consume(String text) throws Exception {
+        byte[] bytes = ("#" + text).getBytes(StandardCharsets.UTF_8);
+        handler.consume(bytes, 1, bytes.length - 1);
+    }
+}
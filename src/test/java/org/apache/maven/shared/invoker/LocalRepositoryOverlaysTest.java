@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRepositoryOverlaysTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private File base;
+
+    private LocalRepositoryOverlays overlays;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        base = temporaryFolder.resolve("repository").toFile();
+        write(base, "org/test/lib/1.0/lib-1.0.jar", "jar");
+        write(base, "org/test/lib/1.0/_remote.repositories", "lib-1.0.jar>central=");
+        write(base, "org/test/lib/maven-metadata-central.xml", "<metadata/>");
+        write(base, "org/test/lib/2.0-SNAPSHOT/lib-2.0-SNAPSHOT.jar", "snapshot");
+
+        overlays = new LocalRepositoryOverlays(
+                        base, temporaryFolder.resolve("overlays").toFile())
+                .setMavenHome(mavenHome("3.9.11"));
+    }
+
+    @Test
+    void linksImmutableFiles() throws Exception {
+        try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+            File directory = overlay.getDirectory();
+
+            assertTrue(isSameFile(base, directory, "org/test/lib/1.0/lib-1.0.jar"));
+            assertFalse(isSameFile(base, directory, "org/test/lib/1.0/_remote.repositories"));
+            assertFalse(isSameFile(base, directory, "org/test/lib/maven-metadata-central.xml"));
+            assertFalse(isSameFile(base, directory, "org/test/lib/2.0-SNAPSHOT/lib-2.0-SNAPSHOT.jar"));
+            assertEquals("<metadata/>", read(directory, "org/test/lib/maven-metadata-central.xml"));
+            assertEquals("snapshot", read(directory, "org/test/lib/2.0-SNAPSHOT/lib-2.0-SNAPSHOT.jar"));
+        }
+    }
+
+    @Test
+    void copiesAllFilesForMavenBefore39() throws Exception {
+        overlays.setMavenHome(mavenHome("3.8.8"));
+
+        try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+            File directory = overlay.getDirectory();
+            write(directory, "org/test/other/1.0/other-1.0.jar", "other");
+            assertEquals(1, overlay.merge());
+
+            assertFalse(isSameFile(base, directory, "org/test/lib/1.0/lib-1.0.jar"));
+            assertFalse(isSameFile(base, directory, "org/test/other/1.0/other-1.0.jar"));
+            assertEquals("jar", read(directory, "org/test/lib/1.0/lib-1.0.jar"));
+        }
+    }
+
+    @Test
+    void detectsMavenVersion() throws Exception {
+        assertTrue(LocalRepositoryOverlays.isMaven39OrLater(mavenHome("3.9.0")));
+        assertTrue(LocalRepositoryOverlays.isMaven39OrLater(mavenHome("4.0.0-rc-4")));
+        assertFalse(LocalRepositoryOverlays.isMaven39OrLater(mavenHome("3.8.8")));
+        assertFalse(LocalRepositoryOverlays.isMaven39OrLater(temporaryFolder.toFile()));
+    }
+
+    @Test
+    void isolatesWrites() throws Exception {
+        File directory;
+        try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+            directory = overlay.getDirectory();
+
+            // in place like the metadata, replaced by renaming like artifacts
+            write(directory, "org/test/lib/maven-metadata-central.xml", "<metadata>changed</metadata>");
+            File jar = new File(directory, "org/test/lib/1.0/lib-1.0.jar");
+            File download = new File(directory, "org/test/lib/1.0/lib-1.0.jar.part");
+            Files.write(download.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+            Files.move(download.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        assertFalse(directory.exists());
+        assertEquals("<metadata/>", read(base, "org/test/lib/maven-metadata-central.xml"));
+        assertEquals("jar", read(base, "org/test/lib/1.0/lib-1.0.jar"));
+    }
+
+    @Test
+    void mergesNewFiles() throws Exception {
+        try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+            File directory = overlay.getDirectory();
+            write(directory, "org/test/other/1.0/other-1.0.jar", "other");
+            write(directory, "org/test/other/1.0/other-1.0.pom", "<project/>");
+            write(directory, "org/test/missing/1.0/missing-1.0.jar.lastUpdated", "failed");
+            write(directory, "org/test/lib/maven-metadata-central.xml", "<metadata>changed</metadata>");
+
+            assertEquals(2, overlay.merge());
+            assertEquals(0, overlay.merge());
+        }
+
+        assertEquals("other", read(base, "org/test/other/1.0/other-1.0.jar"));
+        assertEquals("<project/>", read(base, "org/test/other/1.0/other-1.0.pom"));
+        assertFalse(new File(base, "org/test/missing/1.0/missing-1.0.jar.lastUpdated").exists());
+        assertEquals("<metadata/>", read(base, "org/test/lib/maven-metadata-central.xml"));
+
+        try (LocalRepositoryOverlay overlay = overlays.newOverlay()) {
+            assertEquals("other", read(overlay.getDirectory(), "org/test/other/1.0/other-1.0.jar"));
+        }
+    }
+
+    private File mavenHome(String version) throws Exception {
+        File mavenHome = temporaryFolder.resolve("maven-" + version).toFile();
+        write(mavenHome, "lib/maven-core-" + version + ".jar", "");
+        return mavenHome;
+    }
+
+    private static boolean isSameFile(File base, File overlay, String path) throws Exception {
+        return Files.isSameFile(new File(base, path).toPath(), new File(overlay, path).toPath());
+    }
+
+    private static void write(File repository, String path, String content) throws Exception {
+        File file = new File(repository, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File repository, String path) throws Exception {
+        return new String(Files.readAllBytes(new File(repository, path).toPath()), StandardCharsets.UTF_8);
+    }
+}
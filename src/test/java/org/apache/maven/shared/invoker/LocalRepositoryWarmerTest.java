@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledOnOs(OS.WINDOWS)
+class LocalRepositoryWarmerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private File mvn;
+
+    private File invocations;
+
+    private final LocalRepositoryWarmer warmer = new LocalRepositoryWarmer(new DefaultInvoker());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        invocations = temporaryFolder.resolve("invocations.log").toFile();
+
+        // a fake Maven logging its directory and arguments, failing for the given patterns
+        mvn = temporaryFolder.resolve("mvn").toFile();
+        Files.write(
+                mvn.toPath(),
+                ("#!/bin/sh\nline=\"$PWD $*\"\necho \"$line\" >> \"$INVOCATIONS_FILE\"\n"
+                                + "for pattern in $FAIL_PATTERNS; do case \"$line\" in *\"$pattern\"*) exit 1;; esac; done\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        mvn.setExecutable(true);
+    }
+
+    @Test
+    void resolvesProjectsInOneInvocation() throws Exception {
+        InvocationRequest a = newRequest("project-a", "");
+        InvocationRequest aAgain = newRequest("project-a", "");
+        InvocationRequest b = newRequest("project-b", "");
+        b.setProjects(Collections.singletonList("core")).setAlsoMake(true).addArg("-Dskip.warm.up");
+
+        List<InvocationRequest> offline = warmer.warmUp(Arrays.asList(a, aAgain, b));
+
+        assertEquals(Arrays.asList(a, aAgain, b), offline);
+        assertTrue(a.isOffline() && aAgain.isOffline() && b.isOffline());
+
+        List<String> lines = readInvocations();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("maven-invoker-warm-up"), lines.get(0));
+        assertTrue(
+                lines.get(0).endsWith(" dependency:go-offline") && lines.get(0).contains(" -fae "), lines.get(0));
+        assertFalse(lines.get(0).contains(" -o "), lines.get(0));
+        assertFalse(lines.get(0).contains(" -pl ") || lines.get(0).contains(" -am "), lines.get(0));
+        assertFalse(lines.get(0).contains("-Dskip.warm.up"), lines.get(0));
+        assertEquals(Collections.singletonList("-Dskip.warm.up"), b.getArgs());
+    }
+
+    @Test
+    void groupsRequestsByResolutionSettings() throws Exception {
+        InvocationRequest a = newRequest("project-a", "");
+        InvocationRequest b = newRequest("project-b", "");
+        b.setProfiles(Collections.singletonList("release"));
+
+        warmer.warmUp(Arrays.asList(a, b));
+
+        List<String> lines = readInvocations();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("project-a"), lines.get(0));
+        assertTrue(lines.get(1).contains("project-b") && lines.get(1).contains("-P release"), lines.get(1));
+    }
+
+    @Test
+    void resolvesProjectsOneByOneIfAggregationFails() throws Exception {
+        InvocationRequest a = newRequest("project-a", "maven-invoker-warm-up");
+        InvocationRequest b = newRequest("project-b", "maven-invoker-warm-up");
+
+        List<InvocationRequest> offline = warmer.warmUp(Arrays.asList(a, b));
+
+        assertEquals(Arrays.asList(a, b), offline);
+        assertEquals(3, readInvocations().size());
+    }
+
+    @Test
+    void keepsFailedProjectsOnline() throws Exception {
+        InvocationRequest a = newRequest("project-a", "maven-invoker-warm-up project-b");
+        InvocationRequest b = newRequest("project-b", "maven-invoker-warm-up project-b");
+
+        List<InvocationRequest> offline = warmer.warmUp(Arrays.asList(a, b));
+
+        assertEquals(Collections.singletonList(a), offline);
+        assertTrue(a.isOffline());
+        assertFalse(b.isOffline());
+    }
+
+    private InvocationRequest newRequest(String project, String failPatterns) throws Exception {
+        File directory = temporaryFolder.resolve(project).toFile();
+        directory.mkdirs();
+        Files.write(new File(directory, "pom.xml").toPath(), "<project/>".getBytes(StandardCharsets.UTF_8));
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setBaseDirectory(directory);
+        request.setMavenExecutable(mvn);
+        request.setGoals(Collections.singletonList("verify"));
+        request.addShellEnvironment("INVOCATIONS_FILE", invocations.getAbsolutePath());
+        request.addShellEnvironment("FAIL_PATTERNS", failPatterns);
+        return request;
+    }
+
+    private List<String> readInvocations() throws Exception {
+        return Files.readAllLines(invocations.toPath());
+    }
+}
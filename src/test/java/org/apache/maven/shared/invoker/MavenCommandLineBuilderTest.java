@@ -705,6 +705,31 @@ class MavenCommandLineBuilderTest {
         assertArgumentsPresentInOrder(cli, "-D", "key with spaces=value with spaces");
     }
 
+    @Test
+    void shouldMergeBuildEventSpyIntoExtensionClassPath() throws Exception {
+
+        Properties properties = new Properties();
+        properties.setProperty("maven.ext.class.path", "extension.jar");
+        InvocationRequest request = newRequest().setProperties(properties).setBuildEventsRecorded(true);
+
+        mclb.setProperties(request, cli);
+        mclb.setBuildEventSpy(request, cli);
+
+        String[] args = cli.getArguments();
+        assertEquals(2, args.length);
+        assertEquals("-D", args[0]);
+        assertTrue(args[1].startsWith("maven.ext.class.path=extension.jar" + File.pathSeparator), args[1]);
+        assertTrue(new File(args[1].substring(args[1].indexOf(File.pathSeparatorChar) + 1)).isFile(), args[1]);
+    }
+
+    @Test
+    void shouldNotLoadBuildEventSpyByDefault() throws Exception {
+
+        mclb.setBuildEventSpy(newRequest(), cli);
+
+        assertEquals(0, cli.getArguments().length);
+    }
+
     @Test
     @SuppressWarnings("deprecation")
     void shouldSpecifySingleGoalFromRequest() throws Exception {
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MavenExecutableCacheTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final MavenExecutableCache cache = new MavenExecutableCache();
+
+    private final AtomicInteger detections = new AtomicInteger();
+
+    private File baseDirectory;
+
+    private File mavenHome;
+
+    private File executable;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        baseDirectory =
+                Files.createDirectory(temporaryFolder.resolve("project")).toFile();
+        mavenHome = Files.createDirectory(temporaryFolder.resolve("maven")).toFile();
+        executable = Files.createFile(
+                        Files.createDirectory(mavenHome.toPath().resolve("bin")).resolve("mvn"))
+                .toFile();
+    }
+
+    @Test
+    void reusesDetectedExecutable() {
+        assertSame(executable, get());
+        assertSame(executable, get());
+
+        assertEquals(1, detections.get());
+    }
+
+    @Test
+    void detectsAgainAfterDirectoryChanged() throws Exception {
+        get();
+
+        Files.createFile(baseDirectory.toPath().resolve("mvn"));
+        baseDirectory.setLastModified(baseDirectory.lastModified() + 2000);
+
+        get();
+
+        assertEquals(2, detections.get());
+    }
+
+    @Test
+    void doesNotCacheMissingExecutable() {
+        assertNull(cache.get(baseDirectory, mavenHome, "mvnw", this::detectNothing));
+        assertNull(cache.get(baseDirectory, mavenHome, "mvnw", this::detectNothing));
+
+        assertEquals(2, detections.get());
+    }
+
+    @Test
+    void keysIncludeExecutableName() {
+        get();
+        cache.get(baseDirectory, mavenHome, "mvnDebug", this::detect);
+
+        assertEquals(2, detections.get());
+    }
+
+    @Test
+    void reusesResolvedMavenHome() {
+        assertSame(mavenHome, cache.getMavenHome(executable, this::resolveMavenHome));
+        assertSame(mavenHome, cache.getMavenHome(executable, this::resolveMavenHome));
+
+        assertEquals(1, detections.get());
+    }
+
+    @Test
+    void resolvesMavenHomeAgainAfterDirectoryChanged() throws Exception {
+        cache.getMavenHome(executable, this::resolveMavenHome);
+
+        File bin = executable.getParentFile();
+        Files.createFile(bin.toPath().resolve("mvnDebug"));
+        bin.setLastModified(bin.lastModified() + 2000);
+
+        cache.getMavenHome(executable, this::resolveMavenHome);
+
+        assertEquals(2, detections.get());
+    }
+
+    @Test
+    void doesNotCacheInvalidMavenHome() {
+        Supplier<File> invalid = () -> {
+            detections.incrementAndGet();
+            throw new IllegalStateException("not a directory");
+        };
+
+        assertThrows(IllegalStateException.class, () -> cache.getMavenHome(executable, invalid));
+        assertThrows(IllegalStateException.class, () -> cache.getMavenHome(executable, invalid));
+
+        assertEquals(2, detections.get());
+    }
+
+    private File get() {
+        return cache.get(baseDirectory, mavenHome, "mvn", this::detect);
+    }
+
+    private File detect() {
+        detections.incrementAndGet();
+        return executable;
+    }
+
+    private File resolveMavenHome() {
+        detections.incrementAndGet();
+        return mavenHome;
+    }
+
+    private File detectNothing() {
+        detections.incrementAndGet();
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.net.URL;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the packaged JAR on Java 21 to verify that it contains and selects the versioned variants.
+ */
+class MultiReleaseJarIT {
+
+    @Test
+    void loadsVersionedVariants() {
+        assertVersioned(ProcessTree.class, 9);
+        assertVersioned(InvokerThreads.class, 21);
+    }
+
+    @Test
+    void createsVirtualThreads() throws Exception {
+        Thread thread = InvokerThreads.newThread("test", () -> {});
+
+        assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+    }
+
+    private static void assertVersioned(Class<?> type, int version) {
+        URL resource = type.getResource(type.getSimpleName() + ".class");
+        assertEquals("jar", resource.getProtocol(), resource.toString());
+        assertTrue(resource.getPath().contains("!/META-INF/versions/" + version + "/"), resource.toString());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MvndInvokerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final MvndInvoker invoker = new MvndInvoker();
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    private File mvndHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mvndHome = Files.createDirectory(temporaryFolder.resolve("mvnd")).toFile();
+        invoker.setMvndHome(mvndHome);
+
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setBatchMode(true);
+        request.setGoals(Collections.singletonList("validate"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void executeWithDaemonClient() throws Exception {
+        Path bin = Files.createDirectory(mvndHome.toPath().resolve("bin"));
+        Path mvnd = bin.resolve("mvnd");
+        Files.write(mvnd, "#!/bin/sh\necho \"$@\"\n".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(mvnd.toFile().setExecutable(true));
+
+        request.setMavenOpts("-Xmx1g -ea");
+
+        List<String> lines = new ArrayList<>();
+        request.setOutputHandler(lines::add);
+
+        InvocationResult result = invoker.execute(request);
+
+        assertEquals(0, result.getExitCode());
+        assertEquals(Collections.singletonList("-D mvnd.jvmArgs=-Xmx1g -ea -B validate"), lines);
+    }
+
+    @Test
+    void fallBackWithoutDaemonClient() {
+        assertNull(invoker.findMvndExecutable());
+        assertEquals(
+                MavenCommandLineBuilder.class,
+                invoker.newCommandLineBuilder(request).getClass());
+    }
+
+    @Test
+    void fallBackWithExplicitMavenExecutable() throws Exception {
+        Files.createDirectory(mvndHome.toPath().resolve("bin"));
+        Files.createFile(mvndHome.toPath().resolve("bin/mvnd"));
+        Files.createFile(mvndHome.toPath().resolve("bin/mvnd.cmd"));
+
+        request.setMavenExecutable(new File("./mvnw"));
+
+        assertEquals(
+                MavenCommandLineBuilder.class,
+                invoker.newCommandLineBuilder(request).getClass());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.utils.cli.Commandline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledInvokerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private final PooledInvoker invoker = new PooledInvoker();
+
+    private final InvocationRequest request = new DefaultInvocationRequest();
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.write(
+                temporaryFolder.resolve("pom.xml"),
+                ("<project><modelVersion>4.0.0</modelVersion>"
+                                + "<groupId>test</groupId><artifactId>pooled</artifactId><version>1</version>"
+                                + "</project>")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        invoker.setMavenHome(new File(System.getProperty("maven.home")));
+        invoker.setLogger(new PrintStreamLogger(new PrintStream(log, true), InvokerLogger.DEBUG));
+        String localRepository = System.getProperty("maven.repo.local", "");
+        if (!localRepository.isEmpty()) {
+            invoker.setLocalRepositoryDirectory(new File(localRepository));
+        }
+        invoker.setMinIdleJvms(0);
+
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setBatchMode(true);
+        request.setMavenOpts("-Xmx256m");
+        request.setGoals(Collections.singletonList("validate"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoker.dispose();
+    }
+
+    @Test
+    void executeRepeatedlyInWarmJvm() throws Exception {
+        invoker.setMaxBuildsPerJvm(2);
+
+        for (int i = 0; i < 3; i++) {
+            List<String> lines = new ArrayList<>();
+            request.setOutputHandler(lines::add);
+
+            InvocationResult result = invoker.execute(request);
+
+            assertNull(result.getExecutionException());
+            assertEquals(0, result.getExitCode());
+            assertTrue(lines.stream().anyMatch(line -> line.contains("BUILD SUCCESS")), lines.toString());
+        }
+
+        assertTrue(log.toString().contains("Executing in warm JVM"), log.toString());
+    }
+
+    @Test
+    void executeFailingBuildInWarmJvm() throws Exception {
+        request.setGoals(Collections.singletonList("no-such-phase"));
+
+        InvocationResult result = invoker.execute(request);
+
+        assertNull(result.getExecutionException());
+        assertEquals(1, result.getExitCode());
+    }
+
+    @Test
+    void destroyJvmNotBootingInTime() throws Exception {
+        File java = new File(System.getProperty("java.home"), "bin/java");
+        WarmMavenJvm jvm = WarmMavenJvm.start(
+                Arrays.asList(java.getPath(), "-cp", System.getProperty("java.class.path"), Sleeper.class.getName()),
+                null);
+
+        IOException e = assertThrows(IOException.class, () -> jvm.awaitReady(1));
+
+        assertTrue(e.getMessage().contains("did not boot"), e.getMessage());
+        for (int i = 0; i < 100 && jvm.isAlive(); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(jvm.isAlive());
+    }
+
+    @Test
+    void requestsNeedingOwnProcessAreForked() throws Exception {
+        Commandline cli = new Commandline();
+        cli.setWorkingDirectory(temporaryFolder.toFile());
+
+        assertTrue(invoker.canPool(cli, request));
+
+        Files.createDirectory(temporaryFolder.resolve(".mvn"));
+        Files.createFile(temporaryFolder.resolve(".mvn/jvm.config"));
+        assertFalse(invoker.canPool(cli, request));
+        Files.delete(temporaryFolder.resolve(".mvn/jvm.config"));
+
+        request.addShellEnvironment("FOO", "bar");
+        assertFalse(invoker.canPool(cli, request));
+    }
+
+    /**
+     * Stands in for a JVM which never connects to the invoker.
+     */
+    static final class Sleeper {
+        public static void main(String[] args) throws InterruptedException {
+            Thread.sleep(60_000);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessTerminatorTest {
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void killsDescendantIgnoringTermination() throws Exception {
+        assumeTrue(new File("/proc/self/stat").isFile());
+
+        // a shell with a child ignoring SIGTERM, like a hung Surefire fork
+        Process process = new ProcessBuilder(
+                        "/bin/sh", "-c", "sh -c 'trap \"\" TERM; while :; do sleep 1; done' & echo $!; wait")
+                .start();
+        long child = Long.parseLong(readLine(process));
+
+        ProcessTerminator terminator = new ProcessTerminator(1, false);
+        long start = System.nanoTime();
+        terminator.terminate(process);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        assertTrue(awaitTermination(child), "descendant " + child + " is alive");
+        assertTrue(elapsed >= 1000 && elapsed < 5000, elapsed + " ms");
+        assertFalse(terminator.isTimedOut());
+        assertNull(terminator.getThreadDump());
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void toleratesDescendantExitingDuringGracePeriod() throws Exception {
+        assumeTrue(new File("/proc/self/stat").isFile());
+
+        // a shell ignoring SIGTERM with a child terminating on it, whose pid may be reused during the grace period
+        Process process = new ProcessBuilder(
+                        "/bin/sh", "-c", "sleep 30 & echo $!; trap '' TERM; while :; do sleep 1; done")
+                .start();
+        long child = Long.parseLong(readLine(process));
+        DescendantProcess descendant = ProcessTree.descendantProcesses(ProcessTree.pid(process)).stream()
+                .filter(candidate -> candidate.pid() == child)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+
+        ProcessTerminator terminator = new ProcessTerminator(2, false);
+        long start = System.nanoTime();
+        terminator.terminate(process);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        assertFalse(descendant.isAlive());
+        assertTrue(elapsed >= 2000 && elapsed < 6000, elapsed + " ms");
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void doesNotSignalProcessReusingPid() throws Exception {
+        assumeTrue(new File("/proc/self/stat").isFile());
+
+        Process process = new ProcessBuilder("sleep", "30").start();
+        try {
+            // the process as if it had reused the pid of a descendant started at another time
+            DescendantProcess descendant = new ProcessTree.Descendant(ProcessTree.pid(process), "0");
+
+            assertFalse(descendant.isAlive());
+            descendant.destroy(true);
+            assertFalse(process.waitFor(500, TimeUnit.MILLISECONDS));
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    void dumpsThreadsOnTimeout() throws Exception {
+        File java = new File(System.getProperty("java.home"), "bin/java");
+        Process process = new ProcessBuilder(
+                        java.getPath(), "-cp", System.getProperty("java.class.path"), Sleeper.class.getName())
+                .start();
+        try {
+            assertEquals("ready", readLine(process));
+
+            ProcessTerminator terminator = new ProcessTerminator(5, true);
+            terminator.timeOut(process);
+
+            assertTrue(terminator.isTimedOut());
+            String dump = terminator.getThreadDump();
+            assertNotNull(dump);
+            assertTrue(dump.contains(Sleeper.class.getName() + ".main"), dump);
+            assertTrue(process.isAlive());
+
+            terminator.terminate(process);
+            assertFalse(process.isAlive());
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private static String readLine(Process process) throws Exception {
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        return reader.readLine();
+    }
+
+    private static boolean awaitTermination(long pid) throws InterruptedException {
+        for (int i = 0; i < 50 && ProcessTree.isAlive(pid); i++) {
+            Thread.sleep(ProcessTerminator.POLLING_INTERVAL);
+        }
+        return !ProcessTree.isAlive(pid);
+    }
+
+    /**
+     * A Java process waiting until it is terminated.
+     */
+    static final class Sleeper {
+
+        public static void main(String[] args) throws InterruptedException {
+            System.out.println("ready");
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import org.apache.maven.shared.invoker.spy.BuildEvents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactorShardPlannerTest {
+    @TempDir
+    private Path temporaryFolder;
+
+    private File mvn;
+
+    private File invocations;
+
+    private final ReactorShardPlanner planner = new ReactorShardPlanner(new DefaultInvoker());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        invocations = temporaryFolder.resolve("invocations.log").toFile();
+
+        // a fake Maven logging its arguments, failing for the given patterns and writing the given build events
+        mvn = temporaryFolder.resolve("mvn").toFile();
+        Files.write(
+                mvn.toPath(),
+                ("#!/bin/sh\necho \"$*\" >> \"$INVOCATIONS_FILE\"\n"
+                                + "for arg; do case \"$arg\" in " + BuildEvents.FILE_PROPERTY + "=*) "
+                                + "[ -n \"$EVENTS_FILE\" ] && cp \"$EVENTS_FILE\" \"${arg#*=}\";; esac; done\n"
+                                + "for pattern in $FAIL_PATTERNS; do case \"$*\" in *\"$pattern\"*) exit 1;; esac; done\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        mvn.setExecutable(true);
+    }
+
+    @Test
+    void plansChildrenOfParentInParallelShards() {
+        planner.setShardCount(3);
+
+        List<ReactorShard> plan = planner.plan(newSummary("p", "a:p", "b:p", "c:p", "d:p"));
+
+        assertEquals(3, plan.size());
+        assertEquals(Arrays.asList("g:p", "g:a"), plan.get(0).getProjects());
+        assertEquals(Collections.emptyList(), plan.get(0).getUpstreamShards());
+        assertEquals(Arrays.asList("g:b", "g:d"), plan.get(1).getProjects());
+        assertEquals(Collections.singletonList(0), plan.get(1).getUpstreamShards());
+        assertEquals(Collections.singletonList("g:c"), plan.get(2).getProjects());
+        assertEquals(Collections.singletonList(0), plan.get(2).getUpstreamShards());
+    }
+
+    @Test
+    void plansChainInSingleShard() {
+        planner.setShardCount(4);
+
+        List<ReactorShard> plan = planner.plan(newSummary("a", "b:a", "c:b", "d:c"));
+
+        assertEquals(1, plan.size());
+        assertEquals(Arrays.asList("g:a", "g:b", "g:c", "g:d"), plan.get(0).getProjects());
+    }
+
+    @Test
+    void plansIndependentReactorsInSeparateShards() {
+        planner.setShardCount(2);
+
+        List<ReactorShard> plan = planner.plan(newSummary("a", "x", "b:a", "y:x"));
+
+        assertEquals(2, plan.size());
+        assertEquals(Arrays.asList("g:a", "g:b"), plan.get(0).getProjects());
+        assertEquals(Arrays.asList("g:x", "g:y"), plan.get(1).getProjects());
+        assertEquals(Collections.emptyList(), plan.get(1).getUpstreamShards());
+    }
+
+    @Test
+    void plansShardsRespectingDependencies() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<String> specs = new ArrayList<>();
+            int modules = 1 + random.nextInt(40);
+            for (int i = 0; i < modules; i++) {
+                StringBuilder spec = new StringBuilder("m" + i);
+                for (int j = 0; j < i; j++) {
+                    if (random.nextInt(i + 1) < 2) {
+                        spec.append(spec.indexOf(":") < 0 ? ':' : ',')
+                                .append('m')
+                                .append(j);
+                    }
+                }
+                specs.add(spec.toString());
+            }
+            BuildSummary summary = newSummary(specs.toArray(new String[0]));
+            planner.setShardCount(1 + random.nextInt(8));
+
+            assertValidPlan(summary, planner.plan(summary));
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void readsModulesFromValidatePhase() throws Exception {
+        File events = temporaryFolder.resolve("events").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(events))) {
+            writeEvents(out, newSummary("p", "a:p", "b:p", "c:p"), null);
+        }
+        InvocationRequest request = newRequest("");
+        request.addShellEnvironment("EVENTS_FILE", events.getAbsolutePath());
+        planner.setShardCount(3);
+
+        List<ReactorShard> plan = planner.plan(request);
+
+        assertEquals(3, plan.size());
+        assertEquals(Arrays.asList("g:p", "g:a"), plan.get(0).getProjects());
+        assertEquals(Collections.singletonList("g:b"), plan.get(1).getProjects());
+        assertEquals(Collections.singletonList("g:c"), plan.get(2).getProjects());
+        List<String> lines = readInvocations();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains(" validate ") && !lines.get(0).contains(" install "), lines.get(0));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void executesShardsAfterUpstreamShards() throws Exception {
+        planner.setShardCount(3);
+        List<ReactorShard> plan = planner.plan(newSummary("p", "a:p", "b:p", "c:p"));
+
+        InvocationRequest request = newRequest("");
+        request.setAlsoMake(true);
+        BatchResult result = planner.execute(request, plan);
+
+        assertTrue(result.isSuccessful());
+        List<String> lines = readInvocations();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("-pl g:p,g:a "), lines.get(0));
+        for (String line : lines) {
+            assertTrue(line.contains(" install ") && !line.contains(" -am "), line);
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void skipsShardsOfFailedUpstreamShard() throws Exception {
+        planner.setShardCount(3);
+        List<ReactorShard> plan = planner.plan(newSummary("p", "a:p", "b:p", "c:p"));
+
+        BatchResult result = planner.execute(newRequest("g:p"), plan);
+
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(1, result.getResult(0).getExitCode());
+        assertInstanceOf(CancellationException.class, result.getFailure(1));
+        assertInstanceOf(CancellationException.class, result.getFailure(2));
+        assertEquals(1, readInvocations().size());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void resumesShardFromFailedModule() throws Exception {
+        BuildSummary summary = newSummary("p", "a:p", "b:a");
+        File events = temporaryFolder.resolve("events").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(events))) {
+            writeEvents(out, summary, "g:a");
+        }
+        InvocationRequest request = newRequest("");
+        request.addShellEnvironment("EVENTS_FILE", events.getAbsolutePath());
+        ReactorShard shard = planner.plan(summary).get(0);
+
+        InvocationResult result = new DefaultInvoker().execute(planner.newShardRequest(request, shard));
+
+        InvocationRequest resume = planner.newResumeRequest(request, shard, result);
+        assertEquals("g:a", resume.getResumeFrom());
+        assertEquals(shard.getProjects(), resume.getProjects());
+        assertEquals(
+                "g:p",
+                planner.newResumeRequest(request, shard, null).getProjects().get(0));
+        assertNull(planner.newResumeRequest(request, shard, null).getResumeFrom());
+    }
+
+    /**
+     * Creates a summary of modules <code>g:name</code> from specs like <code>name:upstream1,upstream2</code>.
+     */
+    private static BuildSummary newSummary(String... specs) {
+        List<ProjectSummary> projects = new ArrayList<>();
+        for (String spec : specs) {
+            String[] parts = spec.split(":");
+            List<String> upstream = new ArrayList<>();
+            if (parts.length > 1) {
+                for (String name : parts[1].split(",")) {
+                    upstream.add("g:" + name);
+                }
+            }
+            projects.add(new ProjectSummary.Builder("g:" + parts[0], parts[0])
+                    .setUpstreamProjects(upstream)
+                    .build());
+        }
+        return new BuildSummary(projects, null, null);
+    }
+
+    /**
+     * Writes the events of a session of the given modules, which fails at the given module if any.
+     */
+    private static void writeEvents(DataOutputStream out, BuildSummary summary, String failed) throws IOException {
+        List<ProjectSummary> projects = summary.getProjects();
+        header(out, BuildEvents.SESSION_STARTED);
+        out.writeInt(projects.size());
+        for (ProjectSummary project : projects) {
+            out.writeUTF(project.getId());
+            out.writeUTF(project.getName());
+        }
+        header(out, BuildEvents.PROJECT_DEPENDENCIES);
+        out.writeInt(projects.size());
+        for (ProjectSummary project : projects) {
+            out.writeUTF(project.getId());
+            out.writeInt(project.getUpstreamProjects().size());
+            for (String upstream : project.getUpstreamProjects()) {
+                out.writeUTF(upstream);
+            }
+        }
+        for (ProjectSummary project : projects) {
+            header(out, BuildEvents.PROJECT_STARTED);
+            out.writeUTF(project.getId());
+            header(out, BuildEvents.PROJECT_FINISHED);
+            out.writeUTF(project.getId());
+            out.writeByte(project.getId().equals(failed) ? BuildEvents.FAILURE : BuildEvents.SUCCESS);
+            out.writeUTF("");
+            if (project.getId().equals(failed)) {
+                break;
+            }
+        }
+        header(out, BuildEvents.SESSION_FINISHED);
+        out.writeByte(failed != null ? BuildEvents.FAILURE : BuildEvents.SUCCESS);
+    }
+
+    private static void header(DataOutputStream out, int type) throws IOException {
+        out.writeByte(type);
+        out.writeLong(0);
+    }
+
+    /**
+     * Asserts that the plan contains every module once and that the upstream modules of each module are built before
+     * it, either earlier in its shard or in a transitive upstream shard.
+     */
+    private static void assertValidPlan(BuildSummary summary, List<ReactorShard> plan) {
+        Map<String, Integer> shards = new HashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        for (ReactorShard shard : plan) {
+            for (int upstream : shard.getUpstreamShards()) {
+                assertTrue(upstream < shard.getIndex(), plan.toString());
+            }
+            for (int i = 0; i < shard.getProjects().size(); i++) {
+                assertNull(shards.put(shard.getProjects().get(i), shard.getIndex()), plan.toString());
+                positions.put(shard.getProjects().get(i), i);
+            }
+        }
+        assertEquals(summary.getProjects().size(), shards.size());
+
+        for (ProjectSummary project : summary.getProjects()) {
+            int shard = shards.get(project.getId());
+            for (String upstream : project.getUpstreamProjects()) {
+                int upstreamShard = shards.get(upstream);
+                if (upstreamShard == shard) {
+                    assertTrue(positions.get(upstream) < positions.get(project.getId()), plan.toString());
+                } else {
+                    assertTrue(getUpstreamShards(plan, shard).contains(upstreamShard), plan.toString());
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> getUpstreamShards(List<ReactorShard> plan, int shard) {
+        Set<Integer> upstream = new HashSet<>();
+        List<Integer> pending = new ArrayList<>(plan.get(shard).getUpstreamShards());
+        while (!pending.isEmpty()) {
+            int next = pending.remove(pending.size() - 1);
+            if (upstream.add(next)) {
+                pending.addAll(plan.get(next).getUpstreamShards());
+            }
+        }
+        return upstream;
+    }
+
+    private InvocationRequest newRequest(String failPatterns) {
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setBaseDirectory(temporaryFolder.toFile());
+        request.setMavenExecutable(mvn);
+        request.setGoals(Collections.singletonList("install"));
+        request.addShellEnvironment("INVOCATIONS_FILE", invocations.getAbsolutePath());
+        request.addShellEnvironment("FAIL_PATTERNS", failPatterns);
+        return request;
+    }
+
+    private List<String> readInvocations() throws Exception {
+        return Files.readAllLines(invocations.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ResourceMonitorTest {
+
+    @Test
+    void parsesValues() {
+        String status = "Name:\tjava\nVmHWM:\t  2048 kB\nVmRSS:\t  1024 kB\n";
+
+        assertEquals(1024 * 1024, ResourceMonitor.parseKiloBytes(status, "VmRSS:"));
+        assertEquals(2048 * 1024, ResourceMonitor.parseKiloBytes(status, "VmHWM:"));
+        assertEquals(-1, ResourceMonitor.parseKiloBytes(status, "VmSwap:"));
+        assertEquals(42, ResourceMonitor.parseValue("read_bytes: 42\nwrite_bytes: 7\n", "read_bytes:"));
+        assertEquals(7, ResourceMonitor.parseValue("read_bytes: 42\nwrite_bytes: 7\n", "write_bytes:"));
+    }
+
+    @Test
+    void parsesTicksIncludingReapedChildren() {
+        String stat = "42 (java (x) y) S 1 42 42 0 -1 4194304 100 0 0 0 30 7 200 50 20 0 1 0 12345 1024 256";
+
+        assertArrayEquals(new long[] {230, 57}, ResourceMonitor.parseTicks(stat));
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void measuresProcessTree() throws Exception {
+        assumeTrue(new File("/proc/self/stat").isFile());
+
+        // a shell with a busy child, like the mvn script launching Java
+        Process process = new ProcessBuilder(
+                        "/bin/sh", "-c", "i=0; while [ $i -lt 300000 ]; do i=$((i + 1)); done & wait")
+                .start();
+
+        ResourceMonitor monitor = new ResourceMonitor();
+        monitor.start(process);
+        try {
+            assertEquals(0, process.waitFor());
+        } finally {
+            monitor.stop();
+            process.destroy();
+        }
+
+        ResourceUsage usage = monitor.getUsage();
+        assertTrue(usage.getWallTime().toNanos() > 0, usage.toString());
+        assertNotNull(usage.getUserCpuTime(), usage.toString());
+        assertNotNull(usage.getSystemCpuTime(), usage.toString());
+        assertTrue(usage.getPeakResidentSetSize() > 0, usage.toString());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.invoker;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailOutputHandlerTest {
+
+    private final TailOutputHandler handler = new TailOutputHandler(8);
+
+    @Test
+    void keepsEverythingUntilFull() {
+        consume("abc");
+        consume("defgh");
+
+        assertFalse(handler.isTruncated());
+        assertEquals("abcdefgh", handler.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keepsLastBytesAcrossWrapAround() {
+        consume("abcde");
+        consume("fghij");
+
+        assertTrue(handler.isTruncated());
+        assertArrayEquals("cdefghij".getBytes(StandardCharsets.UTF_8), handler.toByteArray());
+    }
+
+    @Test
+    void keepsLastBytesOfLargeChunk() {
+        consume("a");
+        consume("0123456789");
+
+        assertArrayEquals("23456789".getBytes(StandardCharsets.UTF_8), handler.toByteArray());
+    }
+
+    @Test
+    void skipsPartialFirstLineOnceTruncated() {
+        consume("first\nsecond\nthird\n");
+
+        assertEquals("third\n", handler.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keepsSinglePartialLine() {
+        consume("0123456789");
+
+        assertEquals("23456789", handler.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new TailOutputHandler(0));
+    }
+
+    private void consume(String text) {
+        byte[] bytes = ("#" + text).getBytes(StandardCharsets.UTF_8);
+        handler.consume(bytes, 1, bytes.length - 1);
+    }
+}
@@ -0,0 +1,36 @@
+@REM ----------------------------------------------------------------------------
+@REM Licensed to the Apache Software Foundation (ASF) under one
+@REM or more contributor license agreements.  See the NOTICE file
+@REM distributed with this work for additional information
+@REM regarding copyright ownership.  The ASF licenses this file
+@REM to you under the Apache License, Version 2.0 (the
+@REM "License"); you may not use this file except in compliance
+@REM with the License.  You may obtain a copy of the License at
+@REM
+@REM    http://www.apache.org/licenses/LICENSE-2.0
+@REM
+@REM Unless required by applicable law or agreed to in writing,
+@REM software distributed under the License is distributed on an
+@REM "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+@REM KIND, either express or implied.  See the License for the
+@REM specific language governing permissions and limitations
+@REM under the License.
+@REM ----------------------------------------------------------------------------
+@ECHO off
+
+echo [INFO] ------------------------^< org.example:parent ^>-------------------------
+echo [INFO] Building parent 1.0-SNAPSHOT                                        [1/2]
+echo [INFO] --------------------------------[ pom ]---------------------------------
+echo [INFO] -----------------------^< org.example:module-a ^>------------------------
+echo [INFO] Building module-a 1.0-SNAPSHOT                                      [2/2]
+echo [INFO] --------------------------------[ jar ]---------------------------------
+echo [ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0
+echo [INFO] ------------------------------------------------------------------------
+echo [INFO] Reactor Summary for parent 1.0-SNAPSHOT:
+echo [INFO] parent ............................................. SUCCESS [  0.100 s]
+echo [INFO] module-a ........................................... FAILURE [  2.000 s]
+echo [INFO] ------------------------------------------------------------------------
+echo [INFO] BUILD FAILURE
+echo [INFO] ------------------------------------------------------------------------
+echo [INFO] Total time:  2.200 s
+exit /B 1